@@ -0,0 +1,4 @@
+package fst.perf.jmh_generated;
+public class ConfigLoadBenchmark_jmhType extends ConfigLoadBenchmark_jmhType_B3 {
+}
+
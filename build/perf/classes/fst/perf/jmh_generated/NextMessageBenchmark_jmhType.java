@@ -0,0 +1,4 @@
+package fst.perf.jmh_generated;
+public class NextMessageBenchmark_jmhType extends NextMessageBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package fst.perf.jmh_generated;
+public class OrderMessageBenchmark_jmhType extends OrderMessageBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package fst.perf.jmh_generated;
+public class PaintBenchmark_jmhType extends PaintBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package fst.perf.jmh_generated;
+public class PlacementBenchmark_jmhType extends PlacementBenchmark_jmhType_B3 {
+}
+
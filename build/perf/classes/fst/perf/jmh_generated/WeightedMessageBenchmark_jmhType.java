@@ -0,0 +1,4 @@
+package fst.perf.jmh_generated;
+public class WeightedMessageBenchmark_jmhType extends WeightedMessageBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,355 @@
+package fst.perf;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.Map;
+import javax.swing.JScrollPane;
+
+/**
+ * Reaches the application classes, which live in the unnamed package and so cannot be imported,
+ * through constant method handles. JMH only accepts benchmarks in a named package; the JIT inlines
+ * calls through static final handles, so they cost the same as direct calls.
+ */
+final class App {
+  private static final MethodHandle ORDER_MESSAGE;
+  private static final MethodHandle NEW_SELECTOR;
+  private static final MethodHandle NEXT_MESSAGE;
+  private static final MethodHandle IS_WEIGHTED;
+  private static final MethodHandle WEIGHTED_SET;
+  private static final MethodHandle NEW_SPRITE_CACHE;
+  private static final MethodHandle GET_SPRITE;
+  private static final MethodHandle SPRITE_BOUNDS;
+  private static final MethodHandle NEW_STATE;
+  private static final MethodHandle PAINT_MESSAGE;
+  private static final MethodHandle READ_CONFIG;
+  private static final MethodHandle CONFIG_MESSAGES;
+  private static final MethodHandle CONFIG_SETTINGS;
+  private static final MethodHandle READ_SNAPSHOT;
+  private static final MethodHandle WRITE_SNAPSHOT;
+  private static final MethodHandle LOCAL_OVERLAYS;
+  private static final MethodHandle SET_OVERLAY_MODE;
+  private static final MethodHandle GET_SCREEN;
+  private static final MethodHandle SCREEN_BOUNDS;
+  private static final MethodHandle SHOW_OVERLAY;
+  private static final MethodHandle HIDE_OVERLAY;
+  private static final MethodHandle NEW_GRID;
+  private static final MethodHandle GRID_IS_FREE;
+  private static final MethodHandle GRID_TRY_OCCUPY;
+  private static final MethodHandle GRID_RELEASE;
+  private static final MethodHandle PARSE_CONFIG;
+  private static final MethodHandle STARTUP_LOG;
+  private static final MethodHandle STARTUP_MARK;
+  private static final MethodHandle NEW_ABOUT_TAB;
+  private static final MethodHandle NEW_OPTIONS_TAB;
+  private static final MethodHandle NEW_MESSAGES_TAB;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      Class<?> selector = Class.forName("MessageSelector");
+      Class<?> spriteCache = Class.forName("SpriteCache");
+      Class<?> sprite = Class.forName("SpriteCache$Sprite");
+      Class<?> fst = Class.forName("FST");
+      Class<?> state = Class.forName("FST$MessageState");
+      Class<?> configFile = Class.forName("ConfigFile");
+      Class<?> configSnapshot = Class.forName("ConfigSnapshot");
+      Class<?> overlayManager = Class.forName("OverlayManager");
+      Class<?> screen = Class.forName("OverlayManager$Screen");
+      Class<?> grid = Class.forName("OccupancyGrid");
+      Class<?> messageSet = Class.forName("MessageSet");
+      Class<?> config = Class.forName("Config");
+      Class<?> startupTiming = Class.forName("StartupTiming");
+      MethodHandles.Lookup fstLookup = MethodHandles.privateLookupIn(fst, lookup);
+      MethodHandles.Lookup selectorLookup = MethodHandles.privateLookupIn(selector, lookup);
+
+      ORDER_MESSAGE =
+          generic(
+              lookup.findStatic(
+                  selector,
+                  "orderMessage",
+                  MethodType.methodType(String.class, String.class, int.class, int.class)));
+      NEW_SELECTOR =
+          generic(
+              lookup.findConstructor(
+                  selector,
+                  MethodType.methodType(void.class, List.class, int.class, int.class, int.class)));
+      NEXT_MESSAGE =
+          generic(
+              lookup.findVirtual(selector, "getNextMessage", MethodType.methodType(String.class)));
+      IS_WEIGHTED =
+          generic(
+              selectorLookup.findVirtual(
+                  selector, "isWeighted", MethodType.methodType(boolean.class)));
+      WEIGHTED_SET =
+          generic(
+              lookup.findStatic(
+                  messageSet, "of", MethodType.methodType(messageSet, List.class, double[].class)));
+      NEW_SPRITE_CACHE =
+          generic(
+              lookup.findConstructor(spriteCache, MethodType.methodType(void.class, long.class)));
+      GET_SPRITE =
+          generic(
+              lookup.findVirtual(
+                  spriteCache,
+                  "get",
+                  MethodType.methodType(
+                      sprite, String.class, Font.class, Color.class, GraphicsConfiguration.class)));
+      SPRITE_BOUNDS =
+          generic(
+              lookup.findVirtual(
+                  sprite,
+                  "getBounds",
+                  MethodType.methodType(Rectangle.class, int.class, int.class)));
+      NEW_STATE =
+          generic(
+              lookup.findConstructor(
+                  state,
+                  MethodType.methodType(
+                      void.class, String.class, int.class, int.class, Font.class, Color.class)));
+      PAINT_MESSAGE =
+          generic(
+              fstLookup.findStatic(
+                  fst,
+                  "paintMessage",
+                  MethodType.methodType(
+                      void.class,
+                      Graphics.class,
+                      state,
+                      spriteCache,
+                      GraphicsConfiguration.class,
+                      int.class,
+                      int.class)));
+      READ_CONFIG =
+          generic(
+              lookup.findStatic(configFile, "read", MethodType.methodType(configFile, File.class)));
+      CONFIG_MESSAGES =
+          generic(lookup.findVirtual(configFile, "getMessages", MethodType.methodType(messageSet)));
+      CONFIG_SETTINGS =
+          generic(lookup.findVirtual(configFile, "getSettings", MethodType.methodType(Map.class)));
+      READ_SNAPSHOT =
+          generic(
+              lookup.findStatic(
+                  configSnapshot,
+                  "read",
+                  MethodType.methodType(configFile, File.class, File.class)));
+      WRITE_SNAPSHOT =
+          generic(
+              lookup.findStatic(
+                  configSnapshot,
+                  "write",
+                  MethodType.methodType(
+                      void.class, File.class, File.class, Map.class, List.class)));
+      LOCAL_OVERLAYS =
+          generic(
+              lookup.findStatic(
+                  overlayManager,
+                  "forLocalScreens",
+                  MethodType.methodType(overlayManager, long.class)));
+      SET_OVERLAY_MODE =
+          generic(
+              lookup.findVirtual(
+                  overlayManager, "setMode", MethodType.methodType(void.class, int.class)));
+      GET_SCREEN =
+          generic(
+              lookup.findVirtual(
+                  overlayManager, "getScreen", MethodType.methodType(screen, int.class)));
+      SCREEN_BOUNDS =
+          generic(lookup.findVirtual(screen, "getBounds", MethodType.methodType(Rectangle.class)));
+      SHOW_OVERLAY =
+          generic(
+              lookup.findVirtual(overlayManager, "show", MethodType.methodType(void.class, state)));
+      HIDE_OVERLAY =
+          generic(lookup.findVirtual(overlayManager, "hide", MethodType.methodType(void.class)));
+      NEW_GRID =
+          generic(
+              lookup.findConstructor(
+                  grid, MethodType.methodType(void.class, Rectangle.class, int.class)));
+      GRID_IS_FREE =
+          generic(
+              lookup.findVirtual(
+                  grid, "isFree", MethodType.methodType(boolean.class, Rectangle.class)));
+      GRID_TRY_OCCUPY =
+          generic(
+              lookup.findVirtual(
+                  grid, "tryOccupy", MethodType.methodType(boolean.class, Rectangle.class)));
+      GRID_RELEASE =
+          generic(
+              lookup.findVirtual(
+                  grid, "release", MethodType.methodType(void.class, Rectangle.class)));
+      PARSE_CONFIG =
+          fstLookup.findStatic(fst, "parseConfigFile", MethodType.methodType(void.class));
+      STARTUP_LOG = lookup.findStatic(startupTiming, "enable", MethodType.methodType(void.class));
+      STARTUP_MARK =
+          generic(
+              lookup.findStatic(
+                  startupTiming, "mark", MethodType.methodType(void.class, String.class)));
+      NEW_ABOUT_TAB =
+          generic(
+              MethodHandles.privateLookupIn(config, lookup)
+                  .findStatic(config, "createAbout", MethodType.methodType(JScrollPane.class)));
+      NEW_OPTIONS_TAB =
+          generic(
+              lookup.findConstructor(
+                  Class.forName("OptionsConfigPanel"), MethodType.methodType(void.class)));
+      NEW_MESSAGES_TAB =
+          generic(
+              lookup.findConstructor(
+                  Class.forName("MessageConfigPanel"), MethodType.methodType(void.class)));
+    } catch (ReflectiveOperationException ex) {
+      throw new ExceptionInInitializerError(ex);
+    }
+  }
+
+  private App() {
+    // Static helpers only
+  }
+
+  /** Erases every reference type to Object so callers can use invokeExact. */
+  private static MethodHandle generic(MethodHandle handle) {
+    return handle.asType(handle.type().erase());
+  }
+
+  static String orderMessage(String msg, int wordOrder, int letterOrder) throws Throwable {
+    return (String) (Object) ORDER_MESSAGE.invokeExact((Object) msg, wordOrder, letterOrder);
+  }
+
+  static Object newSelector(List<String> messages, int messageOrder, int wordOrder, int letterOrder)
+      throws Throwable {
+    return (Object)
+        NEW_SELECTOR.invokeExact((Object) messages, messageOrder, wordOrder, letterOrder);
+  }
+
+  static String nextMessage(Object selector) throws Throwable {
+    return (String) (Object) NEXT_MESSAGE.invokeExact(selector);
+  }
+
+  /** Returns whether a selector has read the weights of its messages. */
+  static boolean isWeighted(Object selector) throws Throwable {
+    return (boolean) IS_WEIGHTED.invokeExact(selector);
+  }
+
+  /** Returns a message set with the given weights, itself a list of the messages. */
+  @SuppressWarnings("unchecked")
+  static List<String> weightedSet(List<String> messages, double[] weights) throws Throwable {
+    return (List<String>) (Object) WEIGHTED_SET.invokeExact((Object) messages, (Object) weights);
+  }
+
+  static Object newSpriteCache(long budget) throws Throwable {
+    return (Object) NEW_SPRITE_CACHE.invokeExact(budget);
+  }
+
+  /** Returns the bounds of the cached sprite when its text origin is at (0, 0). */
+  static Rectangle spriteBounds(Object cache, String text, Font font, Color color)
+      throws Throwable {
+    Object sprite =
+        (Object)
+            GET_SPRITE.invokeExact(
+                cache, (Object) text, (Object) font, (Object) color, (Object) null);
+    return (Rectangle) (Object) SPRITE_BOUNDS.invokeExact(sprite, 0, 0);
+  }
+
+  static Object newState(String text, int x, int baseline, Font font, Color color)
+      throws Throwable {
+    return (Object)
+        NEW_STATE.invokeExact((Object) text, x, baseline, (Object) font, (Object) color);
+  }
+
+  static void paintMessage(Graphics g, Object state, Object cache, int left, int top)
+      throws Throwable {
+    PAINT_MESSAGE.invokeExact((Object) g, state, cache, (Object) null, left, top);
+  }
+
+  static Object readConfig(File file) throws Throwable {
+    return (Object) READ_CONFIG.invokeExact((Object) file);
+  }
+
+  @SuppressWarnings("unchecked")
+  static List<String> configMessages(Object config) throws Throwable {
+    return (List<String>) (Object) CONFIG_MESSAGES.invokeExact(config);
+  }
+
+  /** Writes the binary snapshot of a config file next to it. */
+  static void writeSnapshot(File binary, File xml, Object config) throws Throwable {
+    Object settings = (Object) CONFIG_SETTINGS.invokeExact(config);
+    Object messages = (Object) CONFIG_MESSAGES.invokeExact(config);
+    WRITE_SNAPSHOT.invokeExact((Object) binary, (Object) xml, settings, messages);
+  }
+
+  static Object readSnapshot(File binary, File xml) throws Throwable {
+    return (Object) READ_SNAPSHOT.invokeExact((Object) binary, (Object) xml);
+  }
+
+  /** Returns overlay windows for every local screen, which needs a display. */
+  static Object localOverlays(long spriteBytes) throws Throwable {
+    return (Object) LOCAL_OVERLAYS.invokeExact(spriteBytes);
+  }
+
+  static void setOverlayMode(Object overlays, int mode) throws Throwable {
+    SET_OVERLAY_MODE.invokeExact(overlays, mode);
+  }
+
+  static Rectangle screenBounds(Object overlays, int index) throws Throwable {
+    Object screen = (Object) GET_SCREEN.invokeExact(overlays, index);
+    return (Rectangle) (Object) SCREEN_BOUNDS.invokeExact(screen);
+  }
+
+  static void showOverlay(Object overlays, Object state) throws Throwable {
+    SHOW_OVERLAY.invokeExact(overlays, state);
+  }
+
+  static void hideOverlay(Object overlays) throws Throwable {
+    HIDE_OVERLAY.invokeExact(overlays);
+  }
+
+  static Object newGrid(Rectangle area, int cellSize) throws Throwable {
+    return (Object) NEW_GRID.invokeExact((Object) area, cellSize);
+  }
+
+  static boolean gridIsFree(Object grid, Rectangle box) throws Throwable {
+    return (boolean) GRID_IS_FREE.invokeExact(grid, (Object) box);
+  }
+
+  static boolean gridTryOccupy(Object grid, Rectangle box) throws Throwable {
+    return (boolean) GRID_TRY_OCCUPY.invokeExact(grid, (Object) box);
+  }
+
+  static void gridRelease(Object grid, Rectangle box) throws Throwable {
+    GRID_RELEASE.invokeExact(grid, (Object) box);
+  }
+
+  /** Reads the user's config the way FST does at startup. */
+  static void parseConfigFile() throws Throwable {
+    PARSE_CONFIG.invokeExact();
+  }
+
+  /** Turns on the startup log and prints its first mark. */
+  static void startupLog() throws Throwable {
+    STARTUP_LOG.invokeExact();
+  }
+
+  static void startupMark(String step) throws Throwable {
+    STARTUP_MARK.invokeExact((Object) step);
+  }
+
+  /** Builds the contents of the config window's About tab. */
+  static Component newAboutTab() throws Throwable {
+    return (Component) (Object) NEW_ABOUT_TAB.invokeExact();
+  }
+
+  static Component newOptionsTab() throws Throwable {
+    return (Component) (Object) NEW_OPTIONS_TAB.invokeExact();
+  }
+
+  static Component newMessagesTab() throws Throwable {
+    return (Component) (Object) NEW_MESSAGES_TAB.invokeExact();
+  }
+}
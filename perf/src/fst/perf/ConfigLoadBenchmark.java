@@ -0,0 +1,126 @@
+package fst.perf;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Time to load FSTConfig.xml with the streaming {@code ConfigFile} reader, next to the DOM parse
+ * and tag scans it replaced and the {@code ConfigSnapshot} binary copy used at startup. Run with
+ * {@code -prof gc} for allocation; {@link ConfigLoadFootprint} reports peak heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class ConfigLoadBenchmark {
+  private static final String[] SECTIONS = {
+    "fst", "startup", "font", "timing", "order", "position", "cache", "store"
+  };
+
+  @Param({"1000", "100000", "1000000"})
+  private int size;
+
+  private File config;
+  private File binary;
+
+  @Setup
+  public void setUp() throws Throwable {
+    config = writeConfig(size);
+    binary = writeSnapshot(config);
+  }
+
+  @TearDown
+  public void tearDown() {
+    config.delete();
+    binary.delete();
+  }
+
+  @Benchmark
+  public List<String> dom() throws Exception {
+    return loadDom(config);
+  }
+
+  @Benchmark
+  public List<String> stax() throws Throwable {
+    return App.configMessages(App.readConfig(config));
+  }
+
+  @Benchmark
+  public List<String> binary() throws Throwable {
+    return App.configMessages(App.readSnapshot(binary, config));
+  }
+
+  /** Writes the binary snapshot of a config file. */
+  static File writeSnapshot(File config) throws Throwable {
+    File file = new File(config.getPath() + ".bin");
+    file.deleteOnExit();
+    App.writeSnapshot(file, config, App.readConfig(config));
+    return file;
+  }
+
+  /** Writes a config file shaped like {@code FST.save} output with the given number of messages. */
+  static File writeConfig(int size) throws IOException {
+    File file = File.createTempFile("FSTConfig", ".xml");
+    file.deleteOnExit();
+    try (Writer out =
+        new BufferedWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+      out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+      out.write("<fst author=\"http://richard.warburton.it\">\n");
+      out.write("<startup checkUpdates=\"true\" configWindow=\"true\" nextUpdate=\"0\"/>\n");
+      out.write("<font color=\"#0000FF1E\" family=\"SansSerif\" size=\"35\" style=\"plain\"/>\n");
+      out.write("<order letter=\"forward\" message=\"random\" word=\"forward\"/>\n");
+      out.write("<timing off=\"300\" on=\"100\"/>\n");
+      out.write("<position x=\"random\" x-margin=\"40\" y=\"random\" y-margin=\"40\"/>\n");
+      out.write("<cache sprite-bytes=\"8388608\"/>\n");
+      for (String msg : Messages.list(size)) {
+        out.write("<message>");
+        out.write(msg);
+        out.write("</message>\n");
+      }
+      out.write("</fst>\n");
+    }
+    return file;
+  }
+
+  /** The DOM loading steps of the previous {@code FST.parseConfigFile}. */
+  static List<String> loadDom(File file) throws Exception {
+    Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file);
+    NodeList nl = doc.getElementsByTagName("message");
+    List<String> messages = new ArrayList<>(nl.getLength());
+    for (int x = 0; x < nl.getLength(); x++) {
+      messages.add(nl.item(x).getTextContent());
+    }
+    for (String section : SECTIONS) {
+      Element element = (Element) doc.getElementsByTagName(section).item(0);
+      if (element != null) {
+        element.getAttribute("size");
+      }
+    }
+    return messages;
+  }
+}
@@ -0,0 +1,90 @@
+package fst.perf;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints load time and peak heap of the DOM, streaming and binary snapshot config loaders for
+ * growing message counts. Peak heap is the sum of the heap pools' peak usage during a load,
+ * measured from a collected heap, so it includes garbage the collector had not yet reclaimed.
+ */
+public final class ConfigLoadFootprint {
+  private static final int[] SIZES = {1000, 100000, 1000000};
+  private static final int RUNS = 3;
+
+  private interface Loader {
+    List<String> load(File file) throws Throwable;
+  }
+
+  private ConfigLoadFootprint() {
+    // Run through main only
+  }
+
+  public static void main(String[] args) throws Throwable {
+    System.out.printf("%-6s %9s %10s %14s%n", "loader", "messages", "time ms", "peak heap MiB");
+    for (int size : SIZES) {
+      File config = ConfigLoadBenchmark.writeConfig(size);
+      File binary = ConfigLoadBenchmark.writeSnapshot(config);
+      try {
+        report("dom", size, config, ConfigLoadBenchmark::loadDom);
+        report("stax", size, config, file -> App.configMessages(App.readConfig(file)));
+        report("binary", size, config, file -> App.configMessages(App.readSnapshot(binary, file)));
+      } finally {
+        config.delete();
+        binary.delete();
+      }
+    }
+  }
+
+  private static void report(String name, int size, File config, Loader loader) throws Throwable {
+    long bestNanos = Long.MAX_VALUE;
+    long peak = 0;
+    for (int run = 0; run < RUNS; run++) {
+      System.gc();
+      long before = heapUsed();
+      resetPeaks();
+      long start = System.nanoTime();
+      List<String> messages = loader.load(config);
+      bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+      peak = Math.max(peak, heapPeak() - before);
+      if (messages.size() != size) {
+        throw new IllegalStateException(name + " loaded " + messages.size() + " of " + size);
+      }
+    }
+    System.out.printf(
+        "%-6s %9d %10.1f %14.1f%n",
+        name, size, bestNanos / (double) TimeUnit.MILLISECONDS.toNanos(1), peak / 1048576.0);
+  }
+
+  private static void resetPeaks() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  private static long heapUsed() {
+    long used = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        used += pool.getUsage().getUsed();
+      }
+    }
+    return used;
+  }
+
+  private static long heapPeak() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+}
@@ -0,0 +1,68 @@
+package fst.perf;
+
+import java.awt.Component;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JTabbedPane;
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+
+/**
+ * Prints the startup log up to a ready config window, with the tabs built lazily as the window
+ * builds them or all of them eagerly as it did before, so the two can be compared from one tree.
+ * Run each mode in its own JVM. The tabs are built into a tab pane without a frame, so it also runs
+ * without a display; native window creation and the first flash are not covered, run FST with
+ * {@code --startup-log} on a desktop for those.
+ */
+public final class ConfigWindowStartup {
+  private static final long IDLE_MILLIS = 2000L;
+
+  private interface Tab {
+    Component build() throws Throwable;
+  }
+
+  private ConfigWindowStartup() {
+    // Run through main only
+  }
+
+  /**
+   * Prints the startup log.
+   *
+   * @param args "eager" to build every tab, otherwise only the About tab shown when the window
+   *     opens
+   */
+  public static void main(String[] args) throws Throwable {
+    boolean eager = args.length > 0 && args[0].equals("eager");
+    App.startupLog();
+    App.parseConfigFile();
+    App.startupMark("config-read");
+    Throwable[] failure = new Throwable[1];
+    SwingUtilities.invokeAndWait(
+        () -> {
+          try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+            JTabbedPane tabs = new JTabbedPane();
+            addTab(tabs, "about", App::newAboutTab);
+            if (eager) {
+              addTab(tabs, "options", App::newOptionsTab);
+              addTab(tabs, "messages", App::newMessagesTab);
+            }
+            App.startupMark("config-window");
+          } catch (Throwable ex) {
+            failure[0] = ex;
+          }
+        });
+    if (failure[0] != null) {
+      throw failure[0];
+    }
+    TimeUnit.MILLISECONDS.sleep(IDLE_MILLIS);
+    System.gc();
+    App.startupMark("idle");
+    // Swing and the config journal may keep threads running
+    System.exit(0);
+  }
+
+  private static void addTab(JTabbedPane tabs, String name, Tab tab) throws Throwable {
+    tabs.addTab(name, tab.build());
+    App.startupMark("tab-" + name);
+  }
+}
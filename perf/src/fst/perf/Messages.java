@@ -0,0 +1,60 @@
+package fst.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Deterministic message text for benchmarks. */
+final class Messages {
+  private static final String[] WORDS = {
+    "I",
+    "am",
+    "calm",
+    "confident",
+    "and",
+    "focused",
+    "every",
+    "day",
+    "my",
+    "mind",
+    "is",
+    "clear",
+    "strong",
+    "healthy",
+    "grateful",
+    "relaxed"
+  };
+
+  private Messages() {
+    // Static helpers only
+  }
+
+  static String sentence(Random random, int words) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < words; i++) {
+      if (i > 0) {
+        sb.append(' ');
+      }
+      sb.append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    return sb.toString();
+  }
+
+  static List<String> list(int size) {
+    Random random = new Random(size);
+    List<String> messages = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      messages.add(sentence(random, 2 + random.nextInt(6)));
+    }
+    return messages;
+  }
+
+  /** Messages of weight 0 to 4, a fifth of them disabled. */
+  static List<String> weightedList(int size) throws Throwable {
+    double[] weights = new double[size];
+    for (int i = 0; i < size; i++) {
+      weights[i] = i % 5;
+    }
+    return App.weightedSet(list(size), weights);
+  }
+}
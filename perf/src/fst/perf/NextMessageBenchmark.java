@@ -0,0 +1,43 @@
+package fst.perf;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Cost of {@code MessageSelector.getNextMessage} across list sizes and selection modes. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NextMessageBenchmark {
+  @Param({"10", "1000", "100000"})
+  private int size;
+
+  // RANDOM, SEQUENTIAL, SHUFFLE, NO_REPEAT
+  @Param({"0", "1", "2", "3"})
+  private int messageOrder;
+
+  private Object selector;
+
+  @Setup
+  public void setUp() throws Throwable {
+    // Word and letter order FORWARD
+    selector = App.newSelector(Messages.list(size), messageOrder, 0, 0);
+  }
+
+  @Benchmark
+  public String getNextMessage() throws Throwable {
+    return App.nextMessage(selector);
+  }
+}
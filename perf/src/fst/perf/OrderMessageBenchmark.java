@@ -0,0 +1,46 @@
+package fst.perf;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Cost of {@code MessageSelector.orderMessage} for every word/letter mode and message length. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderMessageBenchmark {
+  // FORWARD, REVERSE, RND_INNER, RND, JOIN
+  @Param({"0", "1", "2", "3", "4"})
+  private int wordOrder;
+
+  @Param({"0", "1", "2", "3", "4"})
+  private int letterOrder;
+
+  @Param({"2", "8", "32"})
+  private int words;
+
+  private String message;
+
+  @Setup
+  public void setUp() {
+    message = Messages.sentence(new Random(words), words);
+  }
+
+  @Benchmark
+  public String orderMessage() throws Throwable {
+    return App.orderMessage(message, wordOrder, letterOrder);
+  }
+}
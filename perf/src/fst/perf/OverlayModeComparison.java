@@ -0,0 +1,227 @@
+package fst.perf;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import javax.swing.SwingUtilities;
+
+/**
+ * Flashes messages on the first screen in the per-flash and the persistent overlay mode and prints,
+ * for each, the CPU used by this process and how long the show and hide steps took on the event
+ * thread, which is what limits how accurately a flash keeps its display time. Work done by the X
+ * server or the compositor for the mapping and unmapping is not part of the CPU figure; watch them
+ * with top while this runs. Without a display it paints offscreen instead, into a text-sized image
+ * allocated per flash as a per-flash window's buffer is, or into a screen-sized image repainted
+ * only around the text as a persistent window's is; that compares the Java side of the two modes
+ * only, with no window system work at all.
+ */
+public final class OverlayModeComparison {
+  private static final String[] MODES = {"per-flash", "persistent"};
+  private static final int WARMUP = 30;
+  private static final int FLASHES = 300;
+  private static final long DISPLAY_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+  private static final long DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final Font FONT = new Font(Font.SANS_SERIF, Font.BOLD, 48);
+  private static final Color COLOR = new Color(255, 255, 255, 200);
+  private static final Color CLEAR = new Color(0, 0, 0, 0);
+  // Screen painted on when there is no display
+  private static final Rectangle SCREEN = new Rectangle(1920, 1080);
+
+  private OverlayModeComparison() {
+    // Run through main only
+  }
+
+  public static void main(String[] args) throws Throwable {
+    boolean offscreen = GraphicsEnvironment.isHeadless();
+    if (offscreen) {
+      System.out.println("No display: painting offscreen, without any window system work");
+    }
+    System.out.printf(
+        "%-10s %7s %12s %12s %12s %12s %12s%n",
+        "mode", "cpu %", "show p50 ms", "show p99 ms", "hide p50 ms", "hide p99 ms", "error p99");
+    for (int mode = 0; mode < MODES.length; mode++) {
+      if (offscreen) {
+        runOffscreen(mode);
+      } else {
+        run(mode);
+      }
+    }
+    System.exit(0);
+  }
+
+  private static void run(int mode) throws Throwable {
+    Object overlays = App.localOverlays(64L * 1024L * 1024L);
+    onEdt(() -> App.setOverlayMode(overlays, mode));
+    Rectangle area = App.screenBounds(overlays, 0);
+    Random rnd = new Random(1);
+    Object[] states = new Object[16];
+    for (int i = 0; i < states.length; i++) {
+      int x = area.x + rnd.nextInt(Math.max(1, area.width - 400));
+      int y = area.y + 60 + rnd.nextInt(Math.max(1, area.height - 120));
+      states[i] = App.newState("message " + i, x, y, FONT, COLOR);
+    }
+
+    for (int i = 0; i < WARMUP; i++) {
+      flash(overlays, states[i % states.length]);
+    }
+    long[] show = new long[FLASHES];
+    long[] hide = new long[FLASHES];
+    long[] error = new long[FLASHES];
+    long cpuStart = processCpuNanos();
+    long wallStart = System.nanoTime();
+    for (int i = 0; i < FLASHES; i++) {
+      long[] times = flash(overlays, states[i % states.length]);
+      show[i] = times[0];
+      hide[i] = times[1];
+      error[i] = Math.abs(times[2] - DISPLAY_NANOS);
+    }
+    double cpu = 100.0 * (processCpuNanos() - cpuStart) / (System.nanoTime() - wallStart);
+    System.out.printf(
+        "%-10s %7.1f %12.3f %12.3f %12.3f %12.3f %12.3f%n",
+        MODES[mode],
+        cpu,
+        percentile(show, 0.50),
+        percentile(show, 0.99),
+        percentile(hide, 0.50),
+        percentile(hide, 0.99),
+        percentile(error, 0.99));
+    onEdt(() -> App.hideOverlay(overlays));
+  }
+
+  private static void runOffscreen(int mode) throws Throwable {
+    Object cache = App.newSpriteCache(64L * 1024L * 1024L);
+    BufferedImage screen =
+        mode == 0
+            ? null
+            : new BufferedImage(SCREEN.width, SCREEN.height, BufferedImage.TYPE_INT_ARGB);
+    Random rnd = new Random(1);
+    Object[] states = new Object[16];
+    Rectangle[] bounds = new Rectangle[states.length];
+    for (int i = 0; i < states.length; i++) {
+      String text = "message " + i;
+      Rectangle sprite = App.spriteBounds(cache, text, FONT, COLOR);
+      int x = rnd.nextInt(SCREEN.width - 400);
+      int y = 60 + rnd.nextInt(SCREEN.height - 120);
+      states[i] = App.newState(text, x, y, FONT, COLOR);
+      bounds[i] = new Rectangle(x + sprite.x, y + sprite.y, sprite.width, sprite.height);
+    }
+
+    for (int i = 0; i < WARMUP; i++) {
+      flashOffscreen(screen, cache, states[i % states.length], bounds[i % states.length]);
+    }
+    long[] show = new long[FLASHES];
+    long[] hide = new long[FLASHES];
+    long[] error = new long[FLASHES];
+    long cpuStart = processCpuNanos();
+    long wallStart = System.nanoTime();
+    for (int i = 0; i < FLASHES; i++) {
+      long[] times =
+          flashOffscreen(screen, cache, states[i % states.length], bounds[i % states.length]);
+      show[i] = times[0];
+      hide[i] = times[1];
+      error[i] = Math.abs(times[2] - DISPLAY_NANOS);
+    }
+    double cpu = 100.0 * (processCpuNanos() - cpuStart) / (System.nanoTime() - wallStart);
+    System.out.printf(
+        "%-10s %7.1f %12.3f %12.3f %12.3f %12.3f %12.3f%n",
+        MODES[mode],
+        cpu,
+        percentile(show, 0.50),
+        percentile(show, 0.99),
+        percentile(hide, 0.50),
+        percentile(hide, 0.99),
+        percentile(error, 0.99));
+  }
+
+  /**
+   * Paints one message offscreen and clears it again, into a new text-sized image if screen is
+   * null, returning the show, hide and visible times in nanoseconds.
+   */
+  private static long[] flashOffscreen(
+      BufferedImage screen, Object cache, Object state, Rectangle bounds) throws Throwable {
+    long issued = System.nanoTime();
+    BufferedImage target =
+        screen != null
+            ? screen
+            : new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+    Rectangle dirty = screen != null ? bounds : new Rectangle(0, 0, bounds.width, bounds.height);
+    int left = screen != null ? 0 : bounds.x;
+    int top = screen != null ? 0 : bounds.y;
+    Graphics2D g = target.createGraphics();
+    g.setBackground(CLEAR);
+    g.clipRect(dirty.x, dirty.y, dirty.width, dirty.height);
+    g.clearRect(dirty.x, dirty.y, dirty.width, dirty.height);
+    App.paintMessage(g, state, cache, left, top);
+    g.dispose();
+    long shown = System.nanoTime();
+    waitUntil(shown + DISPLAY_NANOS);
+    long hiding = System.nanoTime();
+    g = target.createGraphics();
+    g.setBackground(CLEAR);
+    g.clearRect(dirty.x, dirty.y, dirty.width, dirty.height);
+    g.dispose();
+    long hidden = System.nanoTime();
+    waitUntil(hidden + DELAY_NANOS);
+    return new long[] {shown - issued, hidden - hiding, hidden - shown};
+  }
+
+  /** Shows and hides one message, returning the show, hide and visible times in nanoseconds. */
+  private static long[] flash(Object overlays, Object state) throws Throwable {
+    long issued = System.nanoTime();
+    onEdt(() -> App.showOverlay(overlays, state));
+    long shown = System.nanoTime();
+    waitUntil(shown + DISPLAY_NANOS);
+    long hiding = System.nanoTime();
+    onEdt(() -> App.hideOverlay(overlays));
+    long hidden = System.nanoTime();
+    waitUntil(hidden + DELAY_NANOS);
+    return new long[] {shown - issued, hidden - hiding, hidden - shown};
+  }
+
+  private interface Step {
+    void run() throws Throwable;
+  }
+
+  private static void onEdt(Step step) throws Exception {
+    Throwable[] failure = new Throwable[1];
+    SwingUtilities.invokeAndWait(
+        () -> {
+          try {
+            step.run();
+          } catch (Throwable ex) {
+            failure[0] = ex;
+          }
+        });
+    if (failure[0] != null) {
+      throw new IllegalStateException(failure[0]);
+    }
+  }
+
+  private static void waitUntil(long deadline) {
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > 0) {
+      LockSupport.parkNanos(remaining);
+    }
+  }
+
+  private static double percentile(long[] values, double fraction) {
+    long[] sorted = values.clone();
+    Arrays.sort(sorted);
+    int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+    return sorted[Math.max(0, index)] / NANOS_PER_MILLI;
+  }
+
+  private static long processCpuNanos() {
+    return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+        .getProcessCpuTime();
+  }
+}
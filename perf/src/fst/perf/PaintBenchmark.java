@@ -0,0 +1,83 @@
+package fst.perf;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of painting a flash into an offscreen image through {@code FST.paintMessage}, next to the
+ * plain drawString it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark {
+  private static final Color COLOR = new Color(0, 0, 255, 30);
+
+  @Param({"35", "120"})
+  private int fontSize;
+
+  @Param({"2", "8"})
+  private int words;
+
+  private BufferedImage target;
+  private Graphics2D g;
+  private Font font;
+  private String text;
+  private Object state;
+  private Object cache;
+  private Rectangle bounds;
+
+  @Setup
+  public void setUp() throws Throwable {
+    font = new Font("sans-serif", Font.PLAIN, fontSize);
+    text = Messages.sentence(new Random(words), words);
+    cache = App.newSpriteCache(8L * 1024L * 1024L);
+    bounds = App.spriteBounds(cache, text, font, COLOR);
+    target = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+    g = target.createGraphics();
+    g.setBackground(new Color(0, 0, 0, 0));
+    // Text origin placed so the sprite fills the image, as it fills the overlay window
+    state = App.newState(text, -bounds.x, -bounds.y, font, COLOR);
+  }
+
+  @TearDown
+  public void tearDown() {
+    g.dispose();
+  }
+
+  @Benchmark
+  public BufferedImage spriteBlit() throws Throwable {
+    g.clearRect(0, 0, target.getWidth(), target.getHeight());
+    App.paintMessage(g, state, cache, 0, 0);
+    return target;
+  }
+
+  @Benchmark
+  public BufferedImage drawString() {
+    g.clearRect(0, 0, target.getWidth(), target.getHeight());
+    g.setFont(font);
+    g.setColor(COLOR);
+    g.drawString(text, -bounds.x, -bounds.y);
+    return target;
+  }
+}
@@ -0,0 +1,61 @@
+package fst.perf;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Writes a JMH JSON result file as a baseline, keeping only what {@link PerfCompare} reads: the
+ * benchmark, mode, parameters, score, error and unit. Raw samples, percentiles and the JVM path of
+ * the machine it ran on are left out so the committed baseline stays small and diffs readably.
+ *
+ * <p>Usage: {@code PerfBaseline result.json baseline.json}
+ */
+public final class PerfBaseline {
+  private static final String[] KEPT = {"benchmark", "mode", "params"};
+  private static final String[] KEPT_METRIC = {"score", "scoreError", "scoreUnit"};
+
+  private PerfBaseline() {
+    // Run through main only
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: PerfBaseline result.json baseline.json");
+      System.exit(2);
+    }
+    JsonArray results;
+    try (Reader reader = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+      results = JsonParser.parseReader(reader).getAsJsonArray();
+    }
+    JsonArray baseline = new JsonArray();
+    for (JsonElement element : results) {
+      JsonObject result = element.getAsJsonObject();
+      JsonObject kept = copy(result, KEPT);
+      kept.add("primaryMetric", copy(result.getAsJsonObject("primaryMetric"), KEPT_METRIC));
+      baseline.add(kept);
+    }
+    try (Writer writer = Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+      new GsonBuilder().setPrettyPrinting().create().toJson(baseline, writer);
+      writer.write(System.lineSeparator());
+    }
+  }
+
+  private static JsonObject copy(JsonObject from, String[] names) {
+    JsonObject to = new JsonObject();
+    for (String name : names) {
+      if (from.has(name)) {
+        to.add(name, from.get(name));
+      }
+    }
+    return to;
+  }
+}
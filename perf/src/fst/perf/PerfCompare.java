@@ -0,0 +1,91 @@
+package fst.perf;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file against a baseline and exits with status 1 if any benchmark
+ * regressed by more than the threshold.
+ *
+ * <p>Usage: {@code PerfCompare baseline.json result.json thresholdPercent}
+ */
+public final class PerfCompare {
+  private PerfCompare() {
+    // Run through main only
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 3) {
+      System.err.println("Usage: PerfCompare baseline.json result.json thresholdPercent");
+      System.exit(2);
+    }
+    Map<String, JsonObject> baseline = load(args[0]);
+    Map<String, JsonObject> current = load(args[1]);
+    double threshold = Double.parseDouble(args[2]);
+
+    int regressions = 0;
+    System.out.println(
+        String.format("%-90s %12s %12s %8s", "benchmark", "baseline", "current", "change"));
+    for (Map.Entry<String, JsonObject> entry : current.entrySet()) {
+      JsonObject base = baseline.get(entry.getKey());
+      double now = score(entry.getValue());
+      if (base == null) {
+        System.out.println(String.format("%-90s %12s %12.3f %8s", entry.getKey(), "-", now, "new"));
+        continue;
+      }
+      double before = score(base);
+      // Throughput is better when higher, every other JMH mode is a time and better when lower
+      boolean higherIsBetter = "thrpt".equals(entry.getValue().get("mode").getAsString());
+      double change = before == 0 ? 0 : (now - before) / before * 100.0;
+      double regression = higherIsBetter ? -change : change;
+      boolean failed = regression > threshold;
+      if (failed) {
+        regressions++;
+      }
+      System.out.println(
+          String.format(
+              "%-90s %12.3f %12.3f %+7.1f%%%s",
+              entry.getKey(), before, now, change, failed ? "  REGRESSION" : ""));
+    }
+    if (regressions > 0) {
+      System.out.println(regressions + " benchmark(s) regressed by more than " + threshold + "%");
+      System.exit(1);
+    }
+    System.out.println("No benchmark regressed by more than " + threshold + "%");
+  }
+
+  private static double score(JsonObject result) {
+    return result.getAsJsonObject("primaryMetric").get("score").getAsDouble();
+  }
+
+  /** Loads results keyed by benchmark name, mode and sorted parameters. */
+  private static Map<String, JsonObject> load(String file) throws IOException {
+    Map<String, JsonObject> results = new TreeMap<>();
+    try (Reader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+      JsonArray array = JsonParser.parseReader(reader).getAsJsonArray();
+      for (JsonElement element : array) {
+        JsonObject result = element.getAsJsonObject();
+        StringBuilder key = new StringBuilder(result.get("benchmark").getAsString());
+        key.append(' ').append(result.get("mode").getAsString());
+        if (result.has("params")) {
+          Map<String, String> params = new TreeMap<>();
+          for (Map.Entry<String, JsonElement> p : result.getAsJsonObject("params").entrySet()) {
+            params.put(p.getKey(), p.getValue().getAsString());
+          }
+          key.append(' ').append(params);
+        }
+        results.put(key.toString(), result);
+      }
+    }
+    return results;
+  }
+}
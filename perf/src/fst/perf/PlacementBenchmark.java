@@ -0,0 +1,76 @@
+package fst.perf;
+
+import java.awt.Rectangle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of checking and claiming room for a flash in the occupancy grid of a 1080p screen that
+ * already holds a number of flashes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PlacementBenchmark {
+  private static final Rectangle SCREEN = new Rectangle(0, 0, 1920, 1080);
+  private static final int CANDIDATES = 1024;
+
+  @Param({"20"})
+  private int flashes;
+
+  private Object grid;
+  private Rectangle[] candidates;
+  private int next;
+
+  @Setup
+  public void setUp() throws Throwable {
+    Random rnd = new Random(1);
+    grid = App.newGrid(SCREEN, 16);
+    int placed = 0;
+    while (placed < flashes) {
+      if (App.gridTryOccupy(grid, box(rnd))) {
+        placed++;
+      }
+    }
+    candidates = new Rectangle[CANDIDATES];
+    for (int i = 0; i < CANDIDATES; i++) {
+      candidates[i] = box(rnd);
+    }
+  }
+
+  private static Rectangle box(Random rnd) {
+    int width = 150 + rnd.nextInt(400);
+    int height = 40 + rnd.nextInt(60);
+    return new Rectangle(
+        rnd.nextInt(SCREEN.width - width), rnd.nextInt(SCREEN.height - height), width, height);
+  }
+
+  @Benchmark
+  public boolean isFree() throws Throwable {
+    return App.gridIsFree(grid, candidates[next++ & (CANDIDATES - 1)]);
+  }
+
+  @Benchmark
+  public boolean occupyAndRelease() throws Throwable {
+    Rectangle box = candidates[next++ & (CANDIDATES - 1)];
+    boolean placed = App.gridTryOccupy(grid, box);
+    if (placed) {
+      App.gridRelease(grid, box);
+    }
+    return placed;
+  }
+}
@@ -0,0 +1,45 @@
+package fst.perf;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of {@code MessageSelector.getNextMessage} in random order over weighted messages, which
+ * should not grow with the list size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeightedMessageBenchmark {
+  @Param({"1000", "1000000"})
+  private int size;
+
+  private Object selector;
+
+  @Setup
+  public void setUp() throws Throwable {
+    // RANDOM order, word and letter order FORWARD
+    selector = App.newSelector(Messages.weightedList(size), 0, 0, 0);
+    while (!App.isWeighted(selector)) {
+      Thread.sleep(10);
+    }
+  }
+
+  @Benchmark
+  public String getNextMessage() throws Throwable {
+    return App.nextMessage(selector);
+  }
+}
@@ -0,0 +1,104 @@
+import java.util.Random;
+
+/**
+ * Samples indices in proportion to their weights in constant time with Vose's alias method. Each
+ * index gets a column holding its own probability and an alias; a sample picks a column uniformly
+ * and then either the column's index or its alias. Building takes linear time. Indices of weight 0
+ * are never returned. Immutable, so it can be shared between threads.
+ */
+public final class AliasTable {
+  private final double[] probability;
+  private final int[] alias;
+  private final double total;
+
+  /**
+   * Builds a table.
+   *
+   * @param weights non-negative weight of each index
+   */
+  public AliasTable(double[] weights) {
+    int n = weights.length;
+    probability = new double[n];
+    alias = new int[n];
+    double sum = 0;
+    int firstPositive = -1;
+    for (int i = 0; i < n; i++) {
+      if (!(weights[i] >= 0) || Double.isInfinite(weights[i])) {
+        throw new IllegalArgumentException("Weight " + weights[i] + " at " + i);
+      }
+      sum += weights[i];
+      if (firstPositive < 0 && weights[i] > 0) {
+        firstPositive = i;
+      }
+    }
+    total = sum;
+    if (sum == 0) {
+      return;
+    }
+
+    // Work lists of columns below and at or above the average, kept as stacks in one array
+    int[] work = new int[n];
+    int small = 0;
+    int large = n;
+    for (int i = 0; i < n; i++) {
+      probability[i] = weights[i] * n / sum;
+      if (probability[i] < 1.0) {
+        work[small++] = i;
+      } else {
+        work[--large] = i;
+      }
+    }
+    while (small > 0 && large < n) {
+      int less = work[--small];
+      int more = work[large++];
+      alias[less] = more;
+      probability[more] -= 1.0 - probability[less];
+      if (probability[more] < 1.0) {
+        work[small++] = more;
+      } else {
+        work[--large] = more;
+      }
+    }
+    // Whatever is left is within rounding error of the average
+    while (large < n) {
+      probability[work[large++]] = 1.0;
+    }
+    while (small > 0) {
+      int left = work[--small];
+      probability[left] = weights[left] > 0 ? 1.0 : 0.0;
+      alias[left] = firstPositive;
+    }
+  }
+
+  /**
+   * Returns an index with probability proportional to its weight.
+   *
+   * @param rnd source of randomness
+   * @return sampled index, or -1 if every weight is 0
+   */
+  public int sample(Random rnd) {
+    if (total == 0) {
+      return -1;
+    }
+    int column = rnd.nextInt(probability.length);
+    return rnd.nextDouble() < probability[column] ? column : alias[column];
+  }
+
+  /**
+   * Returns the number of indices.
+   *
+   * @return table size
+   */
+  public int size() {
+    return probability.length;
+  }
+
+  /**
+   * Returns the sum of the weights.
+   *
+   * @return total weight, 0 if nothing can be sampled
+   */
+  public double getTotal() {
+    return total;
+  }
+}
@@ -6,7 +6,9 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
+import javax.swing.JEditorPane;
 import javax.swing.JOptionPane;
+import javax.swing.JScrollPane;
 import javax.swing.UIManager;
 
 /**
@@ -22,21 +24,18 @@ public class Config extends javax.swing.JFrame implements Runnable {
     }
     initComponents();
 
-    try { // Load instructions
-      aboutPane.setText(
-          new Scanner(
-                  this.getClass().getResource("About.html").openStream(), StandardCharsets.UTF_8)
-              .useDelimiter("\\Z")
-              .next()
-              .replaceAll("\\#VERSION\\#", FST.VERSION));
-    } catch (IOException ex) {
-    }
-    if (FST.configWindow == 2) {
+    // Tabs are built the first time they are shown, none while the window starts minimised
+    aboutTab.setContent("about", Config::createAbout);
+    optionsTab.setContent("options", OptionsConfigPanel::new);
+    messagesTab.setContent("messages", MessageConfigPanel::new);
+    jTabbedPane1.addChangeListener(e -> buildSelectedTab());
+    addWindowStateListener(e -> buildSelectedTab());
+    if (FST.settings().getConfigWindow() == 2) {
       setExtendedState(ICONIFIED);
     }
     setVisible(true);
-    FST.canSave = true;
-    if (System.currentTimeMillis() / 1000L > FST.nextUpdate) {
+    buildSelectedTab();
+    if (System.currentTimeMillis() / 1000L > FST.settings().getNextUpdate()) {
       new Thread(this).start();
     }
   }
@@ -45,10 +44,9 @@ public class Config extends javax.swing.JFrame implements Runnable {
   private void initComponents() {
 
     jTabbedPane1 = new javax.swing.JTabbedPane();
-    jScrollPane2 = new javax.swing.JScrollPane();
-    aboutPane = new javax.swing.JEditorPane();
-    optionsConfigPanel1 = new OptionsConfigPanel();
-    messageConfigPanel1 = new MessageConfigPanel();
+    aboutTab = new LazyTab();
+    optionsTab = new LazyTab();
+    messagesTab = new LazyTab();
 
     setDefaultCloseOperation(javax.swing.WindowConstants.DO_NOTHING_ON_CLOSE);
     setTitle("Free Subliminal Text");
@@ -65,24 +63,16 @@ public class Config extends javax.swing.JFrame implements Runnable {
     jTabbedPane1.setOpaque(true);
     jTabbedPane1.setPreferredSize(new java.awt.Dimension(400, 346));
 
-    jScrollPane2.setMaximumSize(new java.awt.Dimension(32767, 300));
-    jScrollPane2.setVerifyInputWhenFocusTarget(false);
-
-    aboutPane.setContentType("text/html");
-    aboutPane.setEditable(false);
-    aboutPane.setAutoscrolls(false);
-    aboutPane.setMaximumSize(new java.awt.Dimension(2147483647, 300));
-    aboutPane.setPreferredSize(new java.awt.Dimension(200, 200));
-    jScrollPane2.setViewportView(aboutPane);
-
-    jTabbedPane1.addTab("About", jScrollPane2);
+    aboutTab.setMaximumSize(new java.awt.Dimension(32767, 300));
+    aboutTab.setPreferredSize(new java.awt.Dimension(200, 200));
+    jTabbedPane1.addTab("About", aboutTab);
 
-    optionsConfigPanel1.setMinimumSize(new java.awt.Dimension(340, 300));
-    optionsConfigPanel1.setPreferredSize(new java.awt.Dimension(300, 300));
-    jTabbedPane1.addTab("Options", optionsConfigPanel1);
+    optionsTab.setMinimumSize(new java.awt.Dimension(340, 300));
+    optionsTab.setPreferredSize(new java.awt.Dimension(300, 300));
+    jTabbedPane1.addTab("Options", optionsTab);
 
-    messageConfigPanel1.setPreferredSize(new java.awt.Dimension(244, 200));
-    jTabbedPane1.addTab("Messages", messageConfigPanel1);
+    messagesTab.setPreferredSize(new java.awt.Dimension(244, 200));
+    jTabbedPane1.addTab("Messages", messagesTab);
 
     getContentPane().add(jTabbedPane1, java.awt.BorderLayout.PAGE_START);
 
@@ -114,14 +104,41 @@ public class Config extends javax.swing.JFrame implements Runnable {
   } // GEN-LAST:event_formWindowClosing
 
   // Variables declaration - do not modify//GEN-BEGIN:variables
-  private javax.swing.JEditorPane aboutPane;
-  private javax.swing.JScrollPane jScrollPane2;
+  private LazyTab aboutTab;
   private javax.swing.JTabbedPane jTabbedPane1;
-  private MessageConfigPanel messageConfigPanel1;
-  private OptionsConfigPanel optionsConfigPanel1;
+  private LazyTab messagesTab;
+  private LazyTab optionsTab;
 
   // End of variables declaration//GEN-END:variables
 
+  private void buildSelectedTab() {
+    if ((getExtendedState() & ICONIFIED) == 0) {
+      ((LazyTab) jTabbedPane1.getSelectedComponent()).build();
+    }
+  }
+
+  /** Builds the About tab, also used to time it without a window. */
+  static JScrollPane createAbout() {
+    JEditorPane aboutPane = new JEditorPane();
+    aboutPane.setContentType("text/html");
+    aboutPane.setEditable(false);
+    aboutPane.setAutoscrolls(false);
+    aboutPane.setMaximumSize(new java.awt.Dimension(2147483647, 300));
+    aboutPane.setPreferredSize(new java.awt.Dimension(200, 200));
+    try { // Load instructions
+      aboutPane.setText(
+          new Scanner(Config.class.getResource("About.html").openStream(), StandardCharsets.UTF_8)
+              .useDelimiter("\\Z")
+              .next()
+              .replaceAll("\\#VERSION\\#", FST.VERSION));
+    } catch (IOException ex) {
+    }
+    JScrollPane scrollPane = new JScrollPane(aboutPane);
+    scrollPane.setMaximumSize(new java.awt.Dimension(32767, 300));
+    scrollPane.setVerifyInputWhenFocusTarget(false);
+    return scrollPane;
+  }
+
   @Override
   public void setTitle(String text) {
     super.setTitle(text + " " + FST.VERSION);
@@ -143,8 +160,7 @@ public class Config extends javax.swing.JFrame implements Runnable {
               "FST - New Update Available",
               JOptionPane.INFORMATION_MESSAGE);
         }
-        FST.nextUpdate = System.currentTimeMillis() / 1000L + 30L * 86400L;
-        FST.save();
+        FST.update((s, b) -> b.nextUpdate(System.currentTimeMillis() / 1000L + 30L * 86400L));
       }
     } catch (IOException | URISyntaxException ex) {
       System.out.println("Error: " + ex);
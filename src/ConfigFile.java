@@ -0,0 +1,323 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Contents of an FSTConfig.xml file, read in one streaming pass. Only the attributes of the first
+ * element of each name and the text and {@code weight} attribute of the {@code <message>} elements
+ * are kept, which is all the settings need, so no document tree is ever built. A message without a
+ * weight, or with one that is not a number of 0 or more, has weight 1.
+ *
+ * <p>Settings can also be handled as a flat map from {@code section.attribute} keys to values,
+ * which is how the {@link ConfigJournal} records them.
+ */
+public final class ConfigFile {
+  /** Section whose settings are the attributes of the root element. */
+  static final String ROOT = "fst";
+
+  private static final String INDENT = "\n    ";
+  private static final String WEIGHT = "weight";
+  private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+  private static final XMLOutputFactory OUTPUT = XMLOutputFactory.newInstance();
+
+  static {
+    FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+  }
+
+  /** Attributes of a settings element. */
+  public static final class Section {
+    private final Map<String, String> attributes;
+
+    Section(Map<String, String> attributes) {
+      this.attributes = attributes;
+    }
+
+    /**
+     * Returns an attribute value.
+     *
+     * @param name attribute name
+     * @return the value, or an empty string if absent like {@code Element.getAttribute}
+     */
+    public String getAttribute(String name) {
+      String value = attributes.get(name);
+      return value == null ? "" : value;
+    }
+  }
+
+  private final Map<String, Section> sections;
+  private final MessageSet messages;
+
+  private ConfigFile(Map<String, Section> sections, MessageSet messages) {
+    this.sections = sections;
+    this.messages = messages;
+  }
+
+  /**
+   * Reads a config file.
+   *
+   * @param file config file
+   * @return its contents
+   * @throws IOException if the file cannot be read
+   * @throws XMLStreamException if the file is not well-formed XML
+   */
+  public static ConfigFile read(File file) throws IOException, XMLStreamException {
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+      return read(in);
+    }
+  }
+
+  /**
+   * Reads a config document from a stream.
+   *
+   * @param in XML stream, left open
+   * @return its contents
+   * @throws XMLStreamException if the stream is not well-formed XML
+   */
+  public static ConfigFile read(InputStream in) throws XMLStreamException {
+    Map<String, Section> sections = new LinkedHashMap<>();
+    List<String> messages = new ArrayList<>();
+    // Only allocated once a message has a weight other than 1
+    double[] weights = null;
+    XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+    try {
+      while (reader.hasNext()) {
+        if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+          continue;
+        }
+        String name = reader.getLocalName();
+        if ("message".equals(name)) {
+          double weight = parseWeight(reader.getAttributeValue(null, WEIGHT));
+          if (weights == null && weight != 1.0) {
+            weights = new double[0];
+          }
+          if (weights != null && messages.size() >= weights.length) {
+            int old = weights.length;
+            weights = Arrays.copyOf(weights, Math.max(16, messages.size() * 2));
+            Arrays.fill(weights, old, weights.length, 1.0);
+          }
+          if (weights != null) {
+            weights[messages.size()] = weight;
+          }
+          messages.add(readText(reader));
+        } else if (!sections.containsKey(name)) {
+          Map<String, String> attributes = new LinkedHashMap<>();
+          for (int i = 0; i < reader.getAttributeCount(); i++) {
+            attributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+          }
+          sections.put(name, new Section(attributes));
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    return new ConfigFile(
+        sections,
+        MessageSet.of(messages, weights == null ? null : Arrays.copyOf(weights, messages.size())));
+  }
+
+  /** Reads a weight attribute, 1 if it is missing or not a number of 0 or more. */
+  static double parseWeight(String value) {
+    if (value == null || value.isEmpty()) {
+      return 1.0;
+    }
+    try {
+      double weight = Double.parseDouble(value);
+      return weight >= 0 && weight < Double.POSITIVE_INFINITY ? weight : 1.0;
+    } catch (NumberFormatException ex) {
+      return 1.0;
+    }
+  }
+
+  /** Writes a weight the way people type it, without a trailing ".0". */
+  static String formatWeight(double weight) {
+    return weight == Math.rint(weight) && Math.abs(weight) < 1e15
+        ? Long.toString((long) weight)
+        : Double.toString(weight);
+  }
+
+  /** Collects all text inside the current element, like {@code Node.getTextContent}. */
+  private static String readText(XMLStreamReader reader) throws XMLStreamException {
+    StringBuilder text = null;
+    String only = "";
+    int depth = 1;
+    while (depth > 0) {
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          depth++;
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          depth--;
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+        case XMLStreamConstants.ENTITY_REFERENCE:
+          // Nearly every message is a single text event, so avoid a builder for it
+          if (text == null && only.isEmpty()) {
+            only = reader.getText();
+          } else {
+            if (text == null) {
+              text = new StringBuilder(only);
+            }
+            text.append(reader.getText());
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    return text == null ? only : text.toString();
+  }
+
+  /**
+   * Returns the first element with the given name anywhere in the file.
+   *
+   * @param name element name
+   * @return its attributes, or null if there is no such element
+   */
+  public Section getSection(String name) {
+    return sections.get(name);
+  }
+
+  /**
+   * Returns the text and weight of every {@code <message>} element in document order.
+   *
+   * @return the messages
+   */
+  public MessageSet getMessages() {
+    return messages;
+  }
+
+  /**
+   * Returns every attribute of every section as {@code section.attribute} keys, in document order.
+   *
+   * @return a new map of settings
+   */
+  public Map<String, String> getSettings() {
+    Map<String, String> settings = new LinkedHashMap<>();
+    for (Map.Entry<String, Section> section : sections.entrySet()) {
+      for (Map.Entry<String, String> attribute : section.getValue().attributes.entrySet()) {
+        settings.put(section.getKey() + "." + attribute.getKey(), attribute.getValue());
+      }
+    }
+    return settings;
+  }
+
+  /**
+   * Creates config contents from flat settings.
+   *
+   * @param settings values by {@code section.attribute} key
+   * @param messages messages, kept by reference if they are a {@link MessageSet}
+   * @return the config
+   */
+  public static ConfigFile of(Map<String, String> settings, List<String> messages) {
+    Map<String, Section> sections = new LinkedHashMap<>();
+    for (Map.Entry<String, String> setting : settings.entrySet()) {
+      String key = setting.getKey();
+      int dot = key.indexOf('.');
+      sections
+          .computeIfAbsent(key.substring(0, dot), name -> new Section(new LinkedHashMap<>()))
+          .attributes
+          .put(key.substring(dot + 1), setting.getValue());
+    }
+    return new ConfigFile(sections, MessageSet.of(messages));
+  }
+
+  /**
+   * Writes a config file in the FSTConfig.xml layout. The settings of section {@value #ROOT} become
+   * attributes of the root element and every other section an empty element, followed by one {@code
+   * <message>} element per message, with a {@code weight} attribute if it is not 1. The file is
+   * written to a temporary file first and then renamed over the target, so a crash leaves either
+   * the old or the new file.
+   *
+   * @param file file to replace
+   * @param settings values by {@code section.attribute} key
+   * @param messages messages to write, with their weights if they are a {@link MessageSet}
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(File file, Map<String, String> settings, List<String> messages)
+      throws IOException {
+    ConfigFile config = of(settings, messages);
+    MessageSet set = config.messages;
+    File tmp = new File(file.getPath() + ".tmp");
+    try (FileOutputStream fos = new FileOutputStream(tmp)) {
+      OutputStream out = new BufferedOutputStream(fos, 1 << 16);
+      XMLStreamWriter writer = OUTPUT.createXMLStreamWriter(out, "UTF-8");
+      writer.writeStartDocument("UTF-8", "1.0");
+      writer.writeCharacters("\n");
+      writer.writeStartElement(ROOT);
+      writeAttributes(writer, config.sections.get(ROOT));
+      for (Map.Entry<String, Section> section : config.sections.entrySet()) {
+        if (!ROOT.equals(section.getKey())) {
+          writer.writeCharacters(INDENT);
+          writer.writeEmptyElement(section.getKey());
+          writeAttributes(writer, section.getValue());
+        }
+      }
+      for (int i = 0; i < set.size(); i++) {
+        writer.writeCharacters(INDENT);
+        writer.writeStartElement("message");
+        if (set.getWeight(i) != 1.0) {
+          writer.writeAttribute(WEIGHT, formatWeight(set.getWeight(i)));
+        }
+        writer.writeCharacters(set.get(i));
+        writer.writeEndElement();
+      }
+      writer.writeCharacters("\n");
+      writer.writeEndElement();
+      writer.writeCharacters("\n");
+      writer.writeEndDocument();
+      writer.close();
+      out.flush();
+      // Make sure the new file is on disk before it replaces the old one
+      fos.getChannel().force(true);
+    } catch (IOException | XMLStreamException ex) {
+      tmp.delete();
+      throw ex instanceof IOException
+          ? (IOException) ex
+          : new IOException("Could not write " + file, ex);
+    }
+    replace(tmp, file);
+  }
+
+  private static void writeAttributes(XMLStreamWriter writer, Section section)
+      throws XMLStreamException {
+    if (section != null) {
+      for (Map.Entry<String, String> attribute : section.attributes.entrySet()) {
+        writer.writeAttribute(attribute.getKey(), attribute.getValue());
+      }
+    }
+  }
+
+  /** Renames {@code from} over {@code to}, atomically where the file system allows. */
+  static void replace(File from, File to) throws IOException {
+    try {
+      Files.move(
+          from.toPath(),
+          to.toPath(),
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException ex) {
+      Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
@@ -0,0 +1,657 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import javax.swing.JOptionPane;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Crash-safe persistence of the config. Each save appends only what changed since the last one to a
+ * journal: a record of changed settings and a splice of the message list and their weights. Once
+ * the journal grows past a size or a number of records, and when {@link #compact} is called on
+ * exit, a background thread writes a complete snapshot in the FSTConfig.xml format through a
+ * temporary file and an atomic rename, then drops the journal records the snapshot covers. So the
+ * XML stays a readable, current copy of the config.
+ *
+ * <p>Every record carries a sequence number and a CRC. The snapshot's root element records the last
+ * sequence number it includes, so recovery replays exactly the later records, and stops at the
+ * first torn or corrupt record, which a crash during an append leaves at the end of the journal, or
+ * at the first record that does not fit the config it is applied to.
+ *
+ * <p>The journal starts with the modification time and length of the XML it was written on top of,
+ * as {@link ConfigSnapshot} does. If the XML no longer matches, it was edited by hand and the
+ * journal is ignored, unless the XML holds a later sequence number, which means a snapshot was
+ * written but the journal not yet trimmed.
+ */
+public final class ConfigJournal {
+  static final byte SETTINGS = 1;
+  // Splice without weights, only read from journals written before weights were kept
+  static final byte SPLICE = 2;
+  static final byte WEIGHTED_SPLICE = 3;
+
+  /** Root attribute of the snapshot holding the last sequence number it includes. */
+  static final String SEQUENCE = ConfigFile.ROOT + ".journal";
+
+  static final int MAGIC = 0x4653544A; // "FSTJ"
+  static final int VERSION = 1;
+  // Magic, version, modification time and length of the XML, and the sequence number it holds
+  static final int FILE_HEADER_BYTES = 32;
+  // Records that trigger writing a new snapshot, whatever their size
+  static final int COMPACT_RECORDS = 32;
+
+  // Record header: body length; trailer: CRC of the body
+  private static final int HEADER_BYTES = 4;
+  private static final int TRAILER_BYTES = 4;
+  private static final int MAX_RECORD_BYTES = 1 << 30;
+
+  /** Config state handed from {@link #save} to the writer thread. */
+  private static final class State {
+    private final Map<String, String> settings;
+    private final List<String> messages;
+
+    State(Map<String, String> settings, List<String> messages) {
+      this.settings = settings;
+      this.messages = messages;
+    }
+  }
+
+  private final File snapshot;
+  private final File binary;
+  private final File journal;
+  private final long compactBytes;
+  private final ExecutorService writer =
+      Executors.newSingleThreadExecutor(r -> daemon(r, "FST-config-writer"));
+  private final ExecutorService compactor =
+      Executors.newSingleThreadExecutor(r -> daemon(r, "FST-config-compactor"));
+  private final AtomicReference<State> pending = new AtomicReference<>();
+  private volatile boolean recovered = false;
+
+  // Only used on the writer thread once recovered
+  private Map<String, String> savedSettings = new LinkedHashMap<>();
+  private MessageSet savedMessages = MessageSet.of(Collections.emptyList());
+  private FileChannel out;
+  private long sequence = 0;
+  // Records in the journal file, and the XML its header describes
+  private int records = 0;
+  private long xmlModified = 0;
+  private long xmlLength = 0;
+  private long xmlSequence = 0;
+  private volatile Future<?> compaction = null;
+
+  /**
+   * Creates a journal.
+   *
+   * @param snapshot config snapshot file
+   * @param journal journal file next to it
+   * @param compactBytes journal size that triggers writing a new snapshot, besides {@link
+   *     #COMPACT_RECORDS} records
+   */
+  public ConfigJournal(File snapshot, File journal, long compactBytes) {
+    this(snapshot, null, journal, compactBytes);
+  }
+
+  /**
+   * Creates a journal that also keeps a {@link ConfigSnapshot} binary copy of the XML snapshot,
+   * which is loaded instead of the XML while the two match.
+   *
+   * @param snapshot config snapshot file
+   * @param binary binary copy of the snapshot, or null for none
+   * @param journal journal file next to it
+   * @param compactBytes journal size that triggers writing a new snapshot, besides {@link
+   *     #COMPACT_RECORDS} records
+   */
+  public ConfigJournal(File snapshot, File binary, File journal, long compactBytes) {
+    this.snapshot = snapshot;
+    this.binary = binary;
+    this.journal = journal;
+    this.compactBytes = compactBytes;
+  }
+
+  private static Thread daemon(Runnable r, String name) {
+    Thread t = new Thread(r, name);
+    t.setDaemon(true);
+    return t;
+  }
+
+  /**
+   * Loads the snapshot and replays the journal onto it. Must be called once, before any save. A
+   * snapshot that is not well-formed is renamed to {@code .bad} and the journal discarded, as is a
+   * journal written on top of a snapshot that has since been edited by hand.
+   *
+   * @return the recovered config
+   * @throws FileNotFoundException if there is neither a snapshot nor a journal
+   * @throws IOException if the files cannot be read
+   * @throws XMLStreamException if the snapshot is not well-formed XML
+   */
+  public ConfigFile recover() throws IOException, XMLStreamException {
+    out =
+        FileChannel.open(
+            journal.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    recovered = true;
+    boolean haveSnapshot = snapshot.exists();
+    xmlModified = haveSnapshot ? snapshot.lastModified() : 0;
+    xmlLength = haveSnapshot ? snapshot.length() : 0;
+    ConfigFile base = binary == null ? null : ConfigSnapshot.read(binary, snapshot);
+    try {
+      if (base == null && haveSnapshot) {
+        base = ConfigFile.read(snapshot);
+        writeBinary(base.getSettings(), base.getMessages());
+      } else if (base == null) {
+        base = ConfigFile.of(Collections.emptyMap(), new ArrayList<>());
+      }
+    } catch (XMLStreamException ex) {
+      // Keep the damaged file for the user and start again, the journal only makes sense on top
+      out.truncate(0);
+      ConfigFile.replace(snapshot, new File(snapshot.getPath() + ".bad"));
+      xmlModified = 0;
+      xmlLength = 0;
+      throw ex;
+    }
+    Map<String, String> settings = base.getSettings();
+    MessageSet messages = base.getMessages();
+    long covered = parseSequence(settings.remove(SEQUENCE));
+    sequence = covered;
+    xmlSequence = covered;
+
+    int applied = 0;
+    // Read the whole journal at once, it is bounded by the compaction threshold
+    ByteBuffer all = ByteBuffer.allocate((int) Math.min(out.size(), Integer.MAX_VALUE));
+    int read = 0;
+    while (all.hasRemaining() && read >= 0) {
+      read = out.read(all);
+    }
+    all.flip();
+    long valid = 0;
+    boolean current = false;
+    if (all.remaining() >= FILE_HEADER_BYTES
+        && all.getInt(0) == MAGIC
+        && all.getInt(4) == VERSION) {
+      current = all.getLong(8) == xmlModified && all.getLong(16) == xmlLength;
+      if (current || covered > all.getLong(24)) {
+        all.position(FILE_HEADER_BYTES);
+        valid = FILE_HEADER_BYTES;
+      }
+    }
+    while (valid > 0) {
+      byte[] body = nextRecord(all);
+      if (body == null) {
+        break;
+      }
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+      long seq = in.readLong();
+      if (seq > covered) {
+        try {
+          messages = apply(in, settings, messages);
+        } catch (IOException ex) {
+          // Written for other messages than these, so neither it nor anything after it applies
+          break;
+        }
+        applied++;
+      }
+      valid = all.position();
+      sequence = Math.max(sequence, seq);
+      records++;
+    }
+    if (valid < out.size()) {
+      // Drop a torn or unusable tail, or a journal for another snapshot
+      out.truncate(valid);
+    }
+    if (valid > 0 && !current) {
+      // The snapshot was written by a compaction that did not get to trim the journal
+      writeFileHeader();
+    }
+    out.position(valid);
+
+    if (!haveSnapshot && applied == 0) {
+      throw new FileNotFoundException(snapshot.getPath());
+    }
+    savedSettings = new LinkedHashMap<>(settings);
+    savedMessages = messages;
+    return ConfigFile.of(settings, messages);
+  }
+
+  /**
+   * Persists the given config state in the background. Only the differences from the last saved
+   * state are written, and saves that arrive while one is being written are merged into one.
+   *
+   * @param settings values by {@code section.attribute} key, not modified afterwards
+   * @param messages messages to keep, not modified afterwards
+   */
+  public void save(Map<String, String> settings, List<String> messages) {
+    if (!recovered) {
+      throw new IllegalStateException("Config journal saved before it was recovered");
+    }
+    if (pending.getAndSet(new State(settings, messages)) == null) {
+      writer.execute(this::writePending);
+    }
+  }
+
+  /**
+   * Waits until every save so far is on disk, including any snapshot being written.
+   *
+   * @param timeout longest time to wait in milliseconds
+   */
+  public void flush(long timeout) {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    try {
+      await(writer.submit(() -> compaction), deadline);
+      Future<?> running = compaction;
+      if (running != null) {
+        await(running, deadline);
+        // The journal is trimmed on the writer once the snapshot is done
+        await(writer.submit(() -> null), deadline);
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException ex) {
+      // Nothing more can be done while exiting
+    }
+  }
+
+  /** Writes everything pending and closes the journal file. */
+  public void close() {
+    flush(TimeUnit.MINUTES.toMillis(1));
+    try {
+      writer
+          .submit(
+              () -> {
+                out.close();
+                return null;
+              })
+          .get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException ex) {
+      // Already closed or never opened
+    }
+    writer.shutdown();
+    compactor.shutdown();
+  }
+
+  private static void await(Future<?> future, long deadline)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+  }
+
+  long getSequence() {
+    return sequence;
+  }
+
+  private void writePending() {
+    State state = pending.getAndSet(null);
+    if (state == null) {
+      return;
+    }
+    try {
+      Map<String, String> changed = new LinkedHashMap<>();
+      for (Map.Entry<String, String> setting : state.settings.entrySet()) {
+        if (!setting.getValue().equals(savedSettings.get(setting.getKey()))) {
+          changed.put(setting.getKey(), setting.getValue());
+        }
+      }
+      for (String key : savedSettings.keySet()) {
+        if (!state.settings.containsKey(key)) {
+          changed.put(key, null);
+        }
+      }
+      boolean wrote = false;
+      if (!changed.isEmpty()) {
+        append(settingsRecord(++sequence, changed));
+        savedSettings = new LinkedHashMap<>(state.settings);
+        wrote = true;
+      }
+      // Only copied if it is not already a message set
+      MessageSet messages = MessageSet.of(state.messages);
+      if (messages != savedMessages) {
+        byte[] splice = spliceRecord(sequence + 1, savedMessages, messages);
+        if (splice != null) {
+          sequence++;
+          append(splice);
+          wrote = true;
+        }
+        savedMessages = messages;
+      }
+      if (wrote) {
+        out.force(false);
+        if (out.size() > compactBytes || records >= COMPACT_RECORDS) {
+          compactIfIdle();
+        }
+      }
+    } catch (IOException ex) {
+      JOptionPane.showMessageDialog(null, "Error: Saving FSTConfig.xml - " + ex);
+    }
+  }
+
+  /**
+   * Writes a new snapshot of everything saved so far in the background, once the saves queued
+   * before are written, if the journal holds any records. Called on exit so the XML is current.
+   */
+  public void compact() {
+    writer.execute(
+        () -> {
+          try {
+            if (records > 0) {
+              compactIfIdle();
+            }
+          } catch (IOException ex) {
+            // The journal still holds everything
+            ex.printStackTrace();
+          }
+        });
+  }
+
+  private void compactIfIdle() throws IOException {
+    if (compaction == null || compaction.isDone()) {
+      startCompaction();
+    }
+  }
+
+  /** Returns the file header describing the snapshot the journal is written on top of. */
+  private ByteBuffer fileHeader() {
+    ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+    header.putInt(MAGIC).putInt(VERSION).putLong(xmlModified).putLong(xmlLength);
+    header.putLong(xmlSequence).flip();
+    return header;
+  }
+
+  private void writeFileHeader() throws IOException {
+    ByteBuffer header = fileHeader();
+    while (header.hasRemaining()) {
+      out.write(header, header.position());
+    }
+  }
+
+  private void append(byte[] body) throws IOException {
+    if (out.position() == 0) {
+      // The header is only written with the first record, no saves leave no journal
+      writeFileHeader();
+      out.position(FILE_HEADER_BYTES);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(body);
+    ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + body.length + TRAILER_BYTES);
+    record.putInt(body.length).put(body).putInt((int) crc.getValue()).flip();
+    while (record.hasRemaining()) {
+      out.write(record);
+    }
+    records++;
+  }
+
+  /** Snapshots the saved state on the compactor thread, then trims the journal it covers. */
+  private void startCompaction() throws IOException {
+    Map<String, String> settings = new LinkedHashMap<>(savedSettings);
+    long covered = sequence;
+    settings.put(SEQUENCE, Long.toString(covered));
+    MessageSet messages = savedMessages;
+    long coveredBytes = out.position();
+    int coveredRecords = records;
+    compaction =
+        compactor.submit(
+            () -> {
+              try {
+                ConfigFile.write(snapshot, settings, messages);
+              } catch (IOException ex) {
+                // The journal still holds everything, try again after the next save
+                ex.printStackTrace();
+                return;
+              }
+              long modified = snapshot.lastModified();
+              long length = snapshot.length();
+              writeBinarySnapshot(settings, messages);
+              writer.execute(
+                  () -> {
+                    xmlModified = modified;
+                    xmlLength = length;
+                    xmlSequence = covered;
+                    trim(coveredBytes, coveredRecords);
+                  });
+            });
+  }
+
+  /** Writes a binary copy of the XML snapshot as it is now on the compactor thread. */
+  private void writeBinary(Map<String, String> settings, List<String> messages) {
+    if (binary != null) {
+      compaction = compactor.submit(() -> writeBinarySnapshot(settings, messages));
+    }
+  }
+
+  private void writeBinarySnapshot(Map<String, String> settings, List<String> messages) {
+    if (binary == null) {
+      return;
+    }
+    try {
+      ConfigSnapshot.write(binary, snapshot, settings, messages);
+    } catch (IOException ex) {
+      // Only startup time is lost, the XML is read instead
+      binary.delete();
+    }
+  }
+
+  /**
+   * Replaces the journal with a header for the new snapshot and the records after {@code from},
+   * which the snapshot does not hold.
+   */
+  private void trim(long from, int covered) {
+    File tmp = new File(journal.getPath() + ".tmp");
+    try {
+      try (FileChannel rest =
+          FileChannel.open(
+              tmp.toPath(),
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING)) {
+        ByteBuffer header = fileHeader();
+        while (header.hasRemaining()) {
+          rest.write(header);
+        }
+        long position = from;
+        while (position < out.size()) {
+          position += out.transferTo(position, out.size() - position, rest);
+        }
+        rest.force(true);
+      }
+      out.close();
+      ConfigFile.replace(tmp, journal);
+      records -= covered;
+    } catch (IOException ex) {
+      tmp.delete();
+      ex.printStackTrace();
+    } finally {
+      try {
+        if (!out.isOpen()) {
+          out =
+              FileChannel.open(
+                  journal.toPath(),
+                  StandardOpenOption.CREATE,
+                  StandardOpenOption.READ,
+                  StandardOpenOption.WRITE);
+          out.position(out.size());
+        }
+      } catch (IOException ex) {
+        JOptionPane.showMessageDialog(null, "Error: Saving FSTConfig.xml - " + ex);
+      }
+    }
+  }
+
+  private static long parseSequence(String value) {
+    try {
+      return value == null ? 0 : Long.parseLong(value);
+    } catch (NumberFormatException ex) {
+      return 0;
+    }
+  }
+
+  /** Returns the next complete record body with a valid CRC, or null at the end or on damage. */
+  private static byte[] nextRecord(ByteBuffer buffer) {
+    if (buffer.remaining() < HEADER_BYTES) {
+      return null;
+    }
+    int length = buffer.getInt(buffer.position());
+    if (length < 8
+        || length > MAX_RECORD_BYTES
+        || buffer.remaining() < HEADER_BYTES + length + TRAILER_BYTES) {
+      return null;
+    }
+    byte[] body = new byte[length];
+    buffer.position(buffer.position() + HEADER_BYTES);
+    buffer.get(body);
+    CRC32 crc = new CRC32();
+    crc.update(body);
+    if (buffer.getInt() != (int) crc.getValue()) {
+      return null;
+    }
+    return body;
+  }
+
+  private static MessageSet apply(
+      DataInputStream in, Map<String, String> settings, MessageSet messages) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case SETTINGS:
+        int count = in.readInt();
+        // Read in full before applying, so a bad record changes nothing
+        Map<String, String> changed = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+          String key = readString(in);
+          changed.put(key, in.readBoolean() ? readString(in) : null);
+        }
+        for (Map.Entry<String, String> setting : changed.entrySet()) {
+          if (setting.getValue() == null) {
+            settings.remove(setting.getKey());
+          } else {
+            settings.put(setting.getKey(), setting.getValue());
+          }
+        }
+        return messages;
+      case SPLICE:
+      case WEIGHTED_SPLICE:
+        int index = in.readInt();
+        int removed = in.readInt();
+        int added = in.readInt();
+        // Every added message takes at least its length prefix
+        if (index < 0
+            || removed < 0
+            || added < 0
+            || removed > messages.size() - index
+            || added > in.available() / 4) {
+          throw new IOException(
+              "Splice of " + removed + " at " + index + " past " + messages.size() + " messages");
+        }
+        int size = messages.size() - removed + added;
+        List<String> spliced = new ArrayList<>(size);
+        double[] weights = new double[size];
+        spliced.addAll(messages.subList(0, index));
+        for (int i = 0; i < index; i++) {
+          weights[i] = messages.getWeight(i);
+        }
+        for (int i = index; i < index + added; i++) {
+          spliced.add(readString(in));
+          weights[i] = type == WEIGHTED_SPLICE ? in.readDouble() : 1.0;
+        }
+        spliced.addAll(messages.subList(index + removed, messages.size()));
+        for (int i = index + added; i < size; i++) {
+          weights[i] = messages.getWeight(i - added + removed);
+        }
+        return MessageSet.of(spliced, weights);
+      default:
+        throw new IOException("Unknown journal record type " + type);
+    }
+  }
+
+  static byte[] settingsRecord(long seq, Map<String, String> changed) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(bytes);
+    data.writeLong(seq);
+    data.writeByte(SETTINGS);
+    data.writeInt(changed.size());
+    for (Map.Entry<String, String> setting : changed.entrySet()) {
+      writeString(data, setting.getKey());
+      data.writeBoolean(setting.getValue() != null);
+      if (setting.getValue() != null) {
+        writeString(data, setting.getValue());
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Encodes the change from {@code before} to {@code after} as the replacement of the run between
+   * their common prefix and common suffix, comparing both text and weight.
+   *
+   * @return the record body, or null if the sets are equal
+   */
+  static byte[] spliceRecord(long seq, MessageSet before, MessageSet after) throws IOException {
+    int prefix = 0;
+    int max = Math.min(before.size(), after.size());
+    while (prefix < max && same(before, prefix, after, prefix)) {
+      prefix++;
+    }
+    int suffix = 0;
+    while (suffix < max - prefix
+        && same(before, before.size() - 1 - suffix, after, after.size() - 1 - suffix)) {
+      suffix++;
+    }
+    int removed = before.size() - prefix - suffix;
+    int added = after.size() - prefix - suffix;
+    if (removed == 0 && added == 0) {
+      return null;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(bytes);
+    data.writeLong(seq);
+    data.writeByte(WEIGHTED_SPLICE);
+    data.writeInt(prefix);
+    data.writeInt(removed);
+    data.writeInt(added);
+    for (int i = prefix; i < prefix + added; i++) {
+      writeString(data, after.get(i));
+      data.writeDouble(after.getWeight(i));
+    }
+    return bytes.toByteArray();
+  }
+
+  private static boolean same(MessageSet a, int i, MessageSet b, int j) {
+    return Objects.equals(a.get(i), b.get(j)) && a.getWeight(i) == b.getWeight(j);
+  }
+
+  private static void writeString(DataOutputStream data, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    data.writeInt(bytes.length);
+    data.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new EOFException("Negative string length");
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,182 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary copy of an FSTConfig.xml snapshot, which loads far faster than parsing the XML. The XML
+ * stays the file users edit: the binary records the modification time and length of the XML it was
+ * made from and is ignored as soon as either differs, or if it is damaged.
+ *
+ * <p>Layout, big-endian: magic, version, XML modification time and length, settings count, then key
+ * and value per setting, message count, then each message, weight count, 0 if every message has
+ * weight 1 and the message count otherwise, then each weight as a double, and a CRC32 of everything
+ * before it. Strings are a byte length followed by UTF-8.
+ */
+public final class ConfigSnapshot {
+  static final int MAGIC = 0x46535442; // "FSTB"
+  static final int VERSION = 2;
+  // Magic, version, XML modification time and length
+  static final int HEADER_BYTES = 24;
+  private static final int CRC_BYTES = 4;
+
+  private ConfigSnapshot() {
+    // Static helpers only
+  }
+
+  /**
+   * Writes a binary snapshot of an XML snapshot that has just been written, through a temporary
+   * file and a rename.
+   *
+   * @param file binary snapshot to replace
+   * @param xml XML snapshot holding the same settings and messages
+   * @param settings values by {@code section.attribute} key
+   * @param messages messages to write, with their weights if they are a {@link MessageSet}
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(File file, File xml, Map<String, String> settings, List<String> messages)
+      throws IOException {
+    MessageSet set = MessageSet.of(messages);
+    File tmp = new File(file.getPath() + ".tmp");
+    CRC32 crc = new CRC32();
+    try (FileOutputStream fos = new FileOutputStream(tmp)) {
+      DataOutputStream out =
+          new DataOutputStream(
+              new CheckedOutputStream(new BufferedOutputStream(fos, 1 << 16), crc));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(xml.lastModified());
+      out.writeLong(xml.length());
+      out.writeInt(settings.size());
+      for (Map.Entry<String, String> setting : settings.entrySet()) {
+        writeString(out, setting.getKey());
+        writeString(out, setting.getValue());
+      }
+      out.writeInt(set.size());
+      for (String msg : set) {
+        writeString(out, msg);
+      }
+      out.writeInt(set.isWeighted() ? set.size() : 0);
+      for (int i = 0; set.isWeighted() && i < set.size(); i++) {
+        out.writeDouble(set.getWeight(i));
+      }
+      out.writeInt((int) crc.getValue());
+      out.flush();
+      fos.getChannel().force(true);
+    } catch (IOException ex) {
+      tmp.delete();
+      throw ex;
+    }
+    ConfigFile.replace(tmp, file);
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Reads a binary snapshot through a memory mapping, if it is intact and was made from the XML as
+   * it is now.
+   *
+   * @param file binary snapshot
+   * @param xml XML snapshot it must match
+   * @return the config, or null if the binary is missing, stale or damaged
+   */
+  public static ConfigFile read(File file, File xml) {
+    if (!file.isFile() || !xml.isFile()) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_BYTES + 12 + CRC_BYTES || size > Integer.MAX_VALUE) {
+        return null;
+      }
+      // Mapped rather than read so the file is never copied onto the heap
+      return decode(
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, size), xml.lastModified(), xml.length());
+    } catch (IOException ex) {
+      return null;
+    }
+  }
+
+  /** Decodes a whole file, or returns null if it does not check out. */
+  static ConfigFile decode(ByteBuffer buffer, long xmlModified, long xmlLength) {
+    int end = buffer.limit() - CRC_BYTES;
+    CRC32 crc = new CRC32();
+    crc.update(buffer.duplicate().limit(end));
+    if (buffer.getInt(end) != (int) crc.getValue()
+        || buffer.getInt(0) != MAGIC
+        || buffer.getInt(4) != VERSION
+        || buffer.getLong(8) != xmlModified
+        || buffer.getLong(16) != xmlLength) {
+      return null;
+    }
+    buffer.limit(end).position(HEADER_BYTES);
+    try {
+      StringReader strings = new StringReader(buffer);
+      int settingCount = buffer.getInt();
+      Map<String, String> settings = new LinkedHashMap<>();
+      for (int i = 0; i < settingCount; i++) {
+        settings.put(strings.read(), strings.read());
+      }
+      int messageCount = buffer.getInt();
+      // Every message takes at least its length prefix
+      if (messageCount < 0 || messageCount > buffer.remaining() / 4) {
+        return null;
+      }
+      List<String> messages = new ArrayList<>(messageCount);
+      for (int i = 0; i < messageCount; i++) {
+        messages.add(strings.read());
+      }
+      int weightCount = buffer.getInt();
+      if (weightCount != 0 && weightCount != messageCount) {
+        return null;
+      }
+      double[] weights = weightCount == 0 ? null : new double[weightCount];
+      for (int i = 0; i < weightCount; i++) {
+        weights[i] = buffer.getDouble();
+      }
+      return buffer.hasRemaining()
+          ? null
+          : ConfigFile.of(settings, MessageSet.of(messages, weights));
+    } catch (RuntimeException ex) {
+      // Lengths that run past the end
+      return null;
+    }
+  }
+
+  /** Decodes length-prefixed strings through one reused array, grown to the longest so far. */
+  private static final class StringReader {
+    private final ByteBuffer buffer;
+    private byte[] bytes = new byte[256];
+
+    StringReader(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    String read() {
+      int length = buffer.getInt();
+      if (length < 0 || length > buffer.remaining()) {
+        throw new IndexOutOfBoundsException("String length " + length);
+      }
+      if (bytes.length < length) {
+        bytes = new byte[Math.max(length, bytes.length * 2)];
+      }
+      buffer.get(bytes, 0, length);
+      return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,186 @@
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.Window;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the usable area of every screen, its bounds without task bars, docks and panels, so the
+ * flash path never has to ask the toolkit. Reading the screens and their insets is a native round
+ * trip per device, so it is only done when something may have changed: when a watched window moves
+ * to another screen or is resized, and every few seconds as a fallback for changes no window
+ * notices, such as a panel being added. Listeners are told only when the screens really differ.
+ */
+public final class DisplayGeometry {
+  // Fallback check for changes no window event reports
+  static final long REFRESH_MILLIS = 5000L;
+
+  private final Supplier<List<OverlayManager.Screen>> reader;
+  private final List<Consumer<List<OverlayManager.Screen>>> listeners =
+      new CopyOnWriteArrayList<>();
+  private volatile List<OverlayManager.Screen> screens;
+  private ScheduledExecutorService refresher;
+
+  /**
+   * Creates a service reading the screens with the given function, once straight away.
+   *
+   * @param reader returns the current screens, at least one
+   */
+  public DisplayGeometry(Supplier<List<OverlayManager.Screen>> reader) {
+    this.reader = reader;
+    this.screens = Collections.unmodifiableList(new ArrayList<>(reader.get()));
+  }
+
+  /**
+   * Creates a service for the screen devices of the local graphics environment.
+   *
+   * @return the service, not yet refreshing
+   */
+  public static DisplayGeometry forLocalScreens() {
+    return new DisplayGeometry(DisplayGeometry::readLocalScreens);
+  }
+
+  /**
+   * Reads the usable area and scale of every screen device of the local graphics environment.
+   *
+   * @return the screens, in device order
+   */
+  public static List<OverlayManager.Screen> readLocalScreens() {
+    Toolkit toolkit = Toolkit.getDefaultToolkit();
+    List<OverlayManager.Screen> screens = new ArrayList<>();
+    GraphicsDevice[] devices = GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices();
+    for (GraphicsDevice device : devices) {
+      if (device.getType() != GraphicsDevice.TYPE_RASTER_SCREEN) {
+        continue;
+      }
+      GraphicsConfiguration gc = device.getDefaultConfiguration();
+      Rectangle bounds = gc.getBounds();
+      Insets insets = toolkit.getScreenInsets(gc);
+      bounds.x += insets.left;
+      bounds.y += insets.top;
+      bounds.width -= insets.left + insets.right;
+      bounds.height -= insets.top + insets.bottom;
+      screens.add(new OverlayManager.Screen(gc, bounds, gc.getDefaultTransform().getScaleX()));
+    }
+    return screens;
+  }
+
+  /**
+   * Returns the screens as last read. Never blocks.
+   *
+   * @return the screens, which never change
+   */
+  public List<OverlayManager.Screen> getScreens() {
+    return screens;
+  }
+
+  /**
+   * Adds a listener told about new screens, on the thread that noticed the change.
+   *
+   * @param listener receives the new screens
+   */
+  public void addListener(Consumer<List<OverlayManager.Screen>> listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Reads the screens again and tells the listeners if they changed. Safe to call from any thread.
+   *
+   * @return true if the screens changed
+   */
+  public boolean refresh() {
+    List<OverlayManager.Screen> read = reader.get();
+    // Listeners are told in order, so the last screens they see are the current ones
+    synchronized (this) {
+      if (read.isEmpty() || sameScreens(read, screens)) {
+        return false;
+      }
+      screens = Collections.unmodifiableList(new ArrayList<>(read));
+      for (Consumer<List<OverlayManager.Screen>> listener : listeners) {
+        listener.accept(screens);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Refreshes whenever a window moves to another screen, is moved or is resized, which is when a
+   * change of screens is usually first seen.
+   *
+   * @param window window to watch
+   */
+  public void watch(Window window) {
+    window.addPropertyChangeListener("graphicsConfiguration", e -> refresh());
+    window.addComponentListener(
+        new ComponentAdapter() {
+          @Override
+          public void componentMoved(ComponentEvent e) {
+            refresh();
+          }
+
+          @Override
+          public void componentResized(ComponentEvent e) {
+            refresh();
+          }
+        });
+  }
+
+  /** Starts the fallback refresh on a background thread. */
+  public synchronized void start() {
+    if (refresher == null) {
+      refresher =
+          Executors.newSingleThreadScheduledExecutor(
+              r -> {
+                Thread t = new Thread(r, "FST-display-geometry");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+              });
+      refresher.scheduleWithFixedDelay(
+          this::refresh, REFRESH_MILLIS, REFRESH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /** Stops the fallback refresh. */
+  public synchronized void stop() {
+    if (refresher != null) {
+      refresher.shutdownNow();
+      refresher = null;
+    }
+  }
+
+  private static boolean sameScreens(List<OverlayManager.Screen> a, List<OverlayManager.Screen> b) {
+    if (a.size() != b.size()) {
+      return false;
+    }
+    for (int i = 0; i < a.size(); i++) {
+      OverlayManager.Screen x = a.get(i);
+      OverlayManager.Screen y = b.get(i);
+      // A configuration may be a new object each time it is asked for, its device is not
+      if (deviceOf(x) != deviceOf(y)
+          || !x.getBounds().equals(y.getBounds())
+          || x.getScale() != y.getScale()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static GraphicsDevice deviceOf(OverlayManager.Screen screen) {
+    GraphicsConfiguration gc = screen.getConfiguration();
+    return gc == null ? null : gc.getDevice();
+  }
+}
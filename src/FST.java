@@ -1,51 +1,89 @@
 import java.awt.Color;
-import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.FontMetrics;
 import java.awt.Graphics;
-import java.awt.Toolkit;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
-import javax.swing.Timer;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-public class FST extends JFrame {
+import javax.xml.stream.XMLStreamException;
+
+public class FST {
   public static class MessageState {
     final String text;
     final int x;
+    final int baseline;
     final Font font;
     final Color color;
+    final int screen;
 
     public MessageState(String text, int x, Font font, Color color) {
+      this(text, x, 0, font, color);
+    }
+
+    /**
+     * Creates a message state.
+     *
+     * @param text text to show
+     * @param x screen x of the text origin
+     * @param baseline screen y of the text baseline
+     * @param font font to draw with
+     * @param color colour to draw with
+     */
+    public MessageState(String text, int x, int baseline, Font font, Color color) {
+      this(text, x, baseline, font, color, 0);
+    }
+
+    /**
+     * Creates a message state for a given screen.
+     *
+     * @param text text to show
+     * @param x screen x of the text origin
+     * @param baseline screen y of the text baseline
+     * @param font font to draw with
+     * @param color colour to draw with
+     * @param screen index of the {@link OverlayManager} screen it was laid out for
+     */
+    public MessageState(String text, int x, int baseline, Font font, Color color, int screen) {
       this.text = text;
       this.x = x;
+      this.baseline = baseline;
       this.font = font;
       this.color = color;
+      this.screen = screen;
+    }
+
+    /**
+     * Returns the same message with its text origin moved.
+     *
+     * @param x screen x of the text origin
+     * @param baseline screen y of the text baseline
+     * @return the moved message
+     */
+    MessageState moveTo(int x, int baseline) {
+      return new MessageState(text, x, baseline, font, color, screen);
     }
   }
 
-  private static boolean configChanged = false;
-  static boolean canSave = false;
-  private static Timer displayTimer;
-  private static Timer delayTimer;
+  // One scheduler per concurrent flash, each with its own show/hide cycle
+  private static FlashScheduler[] flashSchedulers;
+  private static MessagePrefetcher prefetcher;
   static final String VERSION = "V1.51";
+  // Messages laid out ahead of time by the prefetch thread
+  private static final int PREFETCH = 4;
   static final int RANDOM = 0;
   static final int LEFT = 1;
   static final int CENTER = 2;
@@ -61,32 +99,52 @@ public class FST extends JFrame {
   static final String[] H_ALIGN_STRINGS = {"random", "left", "center", "right"};
   static final String[] V_ALIGN_STRINGS = {"random", "top", "center", "bottom"};
   static final String[] CONFIG_WINDOW_STRINGS = {"false", "true", "minimized"};
-  static final String[] MESSAGE_ORDER_STRINGS = {"random", "sequential"};
-  static List<String> messages = new ArrayList<>(); // Shared reference with MessageSelector
-  static Font font = new Font("sans-serif", Font.PLAIN, 35);
-  static Color fontColour = new Color(0, 0, 255, 30);
-  static int display = 100;
-  static int delay = 300;
-  static int placementX = RANDOM;
-  static int placementY = RANDOM;
-  static int marginX = 40;
-  static int marginY = 40;
+  static final String[] MESSAGE_ORDER_STRINGS = {"random", "sequential", "shuffle", "no-repeat"};
+  // Current version of the messages, replaced as a whole by every edit
+  static volatile MessageSet messages = MessageSet.of(Collections.emptyList());
+  // Current settings, replaced as a whole by every change
+  static final SettingsStore SETTINGS = new SettingsStore(Settings.DEFAULTS);
+  // Memory-mapped message store in use instead of <message> elements, or null
+  static File messageStore = null;
+  // Name shared by the generations of an imported message store
+  static final String STORE_NAME = "FSTMessages";
   private static MessageSelector messageSelector;
-  // Message ordering config (synced to MessageSelector via setters)
-  private static int letterOrder = FORWARD;
-  private static int messageOrder = RANDOM;
-  private static int wordOrder = FORWARD;
-  static int configWindow = 1;
-  static long nextUpdate = System.currentTimeMillis() / 1000L + 30L * 86400L;
-  static boolean checkUpdates = true;
-  private static final Random IRANDOM = new Random();
-  private FontMetrics fontMetrics;
-  private Toolkit toolkit;
-  private Font tempFont = null;
-  private int height = 0;
-  private Dimension screen = null;
-  private int ascent = 0;
-  private volatile MessageState currentState = null;
+  // Last message shown in sequential order, so the next run carries on after it
+  private static int messagePosition = -1;
+  // Seeded by <random seed="..."/> or --seed so a run can be replayed, unseeded otherwise
+  static RandomSource randomSource = RandomSource.unseeded();
+  // Seed from the config file, saved back; a --seed only applies to that run
+  private static RandomSource configRandom = RandomSource.unseeded();
+  // Most messages on screen at the same time; more than one needs persistent overlay windows. Each
+  // has its own high priority scheduler thread that spins just before a deadline, so keep it small
+  static final int MAX_CONCURRENT_FLASHES = 8;
+  // Random positions tried for a flash that would overlap another before it is skipped
+  private static final int PLACE_TRIES = 16;
+  private static OverlayManager overlays;
+  // Usable area of each screen, refreshed when the screens change
+  private static DisplayGeometry geometry;
+  // Settings messages are laid out with, and the metrics of their font
+  private volatile Layout layout;
+  // Settings the overlays, schedulers and selector were last set up for, only used on the EDT
+  private Settings applied;
+  // Screen and position of each message, only drawn from under the prefetcher's prepare lock, on
+  // whichever thread prepares the message, so draws never overlap and follow the selection order
+  private Random layoutRandom;
+  // Positions tried for a message that would overlap another, used on the event thread
+  private Random placeRandom;
+  // Width of every message in the current font and orders, or null until measured
+  private static volatile WidthTable widths;
+  // Measures the messages again after they or the font change, one table at a time
+  private static final ExecutorService WIDTHS =
+      Executors.newSingleThreadExecutor(
+          r -> {
+            Thread t = new Thread(r, "FST-message-widths");
+            t.setDaemon(true);
+            return t;
+          });
+  private long[] shownAt;
+  private int[] shownDisplay;
+  private MessageState[] shownState;
 
   static final File SAVE_DIR =
       new File(
@@ -95,71 +153,159 @@ public class FST extends JFrame {
               : System.getProperty("user.home"));
 
   static final File CONFIG_FILE = new File(SAVE_DIR, "FSTConfig.xml");
+  static final File JOURNAL_FILE = new File(SAVE_DIR, "FSTConfig.journal");
+  static final File BINARY_FILE = new File(SAVE_DIR, "FSTConfig.bin");
+  static final File FONT_CACHE_FILE = new File(SAVE_DIR, "FSTFonts.cache");
+  // Journal size at which a new FSTConfig.xml snapshot is written, it is also written on exit
+  private static final long COMPACT_BYTES = 256L * 1024L;
+  private static final long EXIT_FLUSH_MILLIS = 5000L;
+  private static final ConfigJournal JOURNAL =
+      new ConfigJournal(CONFIG_FILE, BINARY_FILE, JOURNAL_FILE, COMPACT_BYTES);
   private static Config config;
 
+  /** Settings a message is laid out with and what is derived from them, replaced on change. */
+  private static final class Layout {
+    private final Settings settings;
+    private final TextMetrics metrics;
+
+    Layout(Settings settings) {
+      this.settings = settings;
+      this.metrics = TextMetrics.of(settings.getFont());
+    }
+  }
+
   public static void main(String[] args) {
+    if (Arrays.asList(args).contains("--startup-log")) {
+      StartupTiming.enable();
+    }
+    FlashTiming.register();
+    if (Arrays.asList(args).contains("--timing-report")) {
+      Runtime.getRuntime()
+          .addShutdownHook(new Thread(() -> System.out.print(FlashTiming.get().report())));
+    }
     parseConfigFile();
-    if (configWindow > 0) {
+    SETTINGS.addListener((before, after) -> save());
+    StartupTiming.mark("config-read");
+    // Quit and fatal errors exit straight away, so save the position and finish on the way out
+    Runtime.getRuntime()
+        .addShutdownHook(
+            new Thread(
+                () -> {
+                  save();
+                  // Leaves FSTConfig.xml up to date for anyone reading or editing it
+                  JOURNAL.compact();
+                  JOURNAL.flush(EXIT_FLUSH_MILLIS);
+                }));
+    int seedArg = Arrays.asList(args).indexOf("--seed");
+    if (seedArg >= 0 && seedArg + 1 < args.length) {
+      try {
+        randomSource = RandomSource.seeded(Long.parseLong(args[seedArg + 1]));
+      } catch (NumberFormatException ex) {
+        System.err.println("Ignoring --seed, not a number: " + args[seedArg + 1]);
+      }
+    }
+    int importArg = Arrays.asList(args).indexOf("--import-messages");
+    if (importArg >= 0 && importArg + 1 < args.length) {
+      importMessages(new File(args[importArg + 1]));
+    }
+    if (settings().getConfigWindow() > 0) {
       config = new Config();
+      StartupTiming.mark("config-window");
     }
     new FST();
+    StartupTiming.mark("overlay");
+  }
+
+  /**
+   * Returns the current settings.
+   *
+   * @return one consistent version, which never changes
+   */
+  static Settings settings() {
+    return SETTINGS.get();
   }
 
+  /**
+   * Changes settings as one transaction, see {@link SettingsStore#update}. Everything that depends
+   * on them is updated and the settings are saved.
+   *
+   * @param change sets the new values on a builder starting from the current settings
+   * @return the settings published
+   */
+  static Settings update(BiConsumer<Settings, Settings.Builder> change) {
+    return SETTINGS.update(change);
+  }
+
+  /**
+   * Saves the messages after an edit. Upcoming messages were already dropped by {@link
+   * #setMessages}.
+   */
   public static void settingsChanged() {
-    configChanged = true;
-    updateTimerDurations();
+    save();
   }
 
   // Message ordering configuration accessors
   // FST holds config state (loaded before MessageSelector exists, saved to XML)
   // Setters sync to MessageSelector for runtime behavior
-  public static void setMessages(List<String> newMessages) {
-    messages = newMessages;
+  public static synchronized void setMessages(List<String> newMessages) {
+    MessageSet published = MessageSet.of(newMessages);
+    messages = published;
     if (messageSelector != null) {
-      messageSelector.setMessages(newMessages);
+      messageSelector.setMessages(published);
+    }
+    if (prefetcher != null) {
+      prefetcher.invalidate();
     }
+    measureWidths();
+  }
+
+  /**
+   * Measures the current messages in the current font and orders in the background. The table is
+   * only published if neither changed meanwhile; until then messages are measured as they are laid
+   * out.
+   */
+  static void measureWidths() {
+    WIDTHS.execute(
+        () -> {
+          MessageSet set = messages;
+          Settings s = settings();
+          WidthTable table = widths;
+          if (table != null
+              && table.matches(set, s.getFont(), s.getWordOrder(), s.getLetterOrder())) {
+            return;
+          }
+          table = WidthTable.build(set, s.getFont(), s.getWordOrder(), s.getLetterOrder());
+          Settings now = settings();
+          if (table != null
+              && messages == set
+              && table.matches(set, now.getFont(), now.getWordOrder(), now.getLetterOrder())) {
+            widths = table;
+          }
+        });
   }
 
   public static int getWordOrder() {
-    return wordOrder;
+    return settings().getWordOrder();
   }
 
   public static void setWordOrder(int value) {
-    wordOrder = value;
-    if (messageSelector != null) {
-      messageSelector.setWordOrder(value);
-    }
+    update((s, b) -> b.wordOrder(value));
   }
 
   public static int getLetterOrder() {
-    return letterOrder;
+    return settings().getLetterOrder();
   }
 
   public static void setLetterOrder(int value) {
-    letterOrder = value;
-    if (messageSelector != null) {
-      messageSelector.setLetterOrder(value);
-    }
+    update((s, b) -> b.letterOrder(value));
   }
 
   public static int getMessageOrder() {
-    return messageOrder;
+    return settings().getMessageOrder();
   }
 
   public static void setMessageOrder(int value) {
-    messageOrder = value;
-    if (messageSelector != null) {
-      messageSelector.setMessageOrder(value);
-    }
-  }
-
-  public static void updateTimerDurations() {
-    if (displayTimer != null) {
-      displayTimer.setInitialDelay(display);
-    }
-    if (delayTimer != null) {
-      delayTimer.setInitialDelay(delay);
-    }
+    update((s, b) -> b.messageOrder(value));
   }
 
   protected static void minimise() {
@@ -175,161 +321,231 @@ public class FST extends JFrame {
     return def;
   }
 
-  private static DocumentBuilder documentBuilder = null;
-  private static Transformer transformer = null;
-
-  public static void save() {
-    if (configChanged && canSave) {
-      configChanged = false;
+  /**
+   * Returns the settings to persist as {@code section.attribute} keys, laid out like the elements
+   * of FSTConfig.xml. All of them come from one version of the settings.
+   */
+  static Map<String, String> currentSettings() {
+    Settings s = settings();
+    Color fontColour = s.getColour();
+    Font font = s.getFont();
+    Map<String, String> settings = new LinkedHashMap<>();
+    settings.put("fst.author", "http://richard.warburton.it");
+    settings.put("startup.configWindow", CONFIG_WINDOW_STRINGS[s.getConfigWindow()]);
+    settings.put("startup.checkUpdates", s.isCheckUpdates() ? "true" : "false");
+    settings.put("startup.nextUpdate", Long.toString(s.getNextUpdate()));
+    settings.put(
+        "font.color",
+        String.format(
+            "#%02X%02X%02X%02X",
+            fontColour.getRed(),
+            fontColour.getGreen(),
+            fontColour.getBlue(),
+            fontColour.getAlpha()));
+    settings.put("font.size", Integer.toString(font.getSize()));
+    settings.put("font.family", font.getFamily());
+    settings.put("font.style", FONT_STYLES_STRINGS[font.getStyle()]);
+    settings.put("order.word", ORDER_STRINGS[s.getWordOrder()]);
+    settings.put("order.letter", ORDER_STRINGS[s.getLetterOrder()]);
+    settings.put("order.message", MESSAGE_ORDER_STRINGS[s.getMessageOrder()]);
+    settings.put(
+        "order.position",
+        Integer.toString(prefetcher != null ? prefetcher.getPosition() : messagePosition));
+    settings.put("timing.on", Integer.toString(s.getDisplay()));
+    settings.put("timing.off", Integer.toString(s.getDelay()));
+    settings.put("timing.concurrent", Integer.toString(s.getConcurrentFlashes()));
+    settings.put("position.x", H_ALIGN_STRINGS[s.getPlacementX()]);
+    settings.put("position.y", V_ALIGN_STRINGS[s.getPlacementY()]);
+    settings.put("position.x-margin", Integer.toString(s.getMarginX()));
+    settings.put("position.y-margin", Integer.toString(s.getMarginY()));
+    settings.put("screen.policy", OverlayManager.POLICY_STRINGS[s.getScreenPolicy()]);
+    settings.put("screen.device", Integer.toString(s.getScreenDevice()));
+    settings.put("screen.overlay", OverlayManager.MODE_STRINGS[s.getOverlayMode()]);
+    settings.put("cache.sprite-bytes", Long.toString(s.getSpriteCacheBytes()));
+    if (messageStore != null) {
+      settings.put("store.path", messageStore.getPath());
     }
-    try {
-      if (documentBuilder == null) {
-        documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-        transformer = TransformerFactory.newInstance().newTransformer();
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-      }
-      Document doc = documentBuilder.newDocument();
-      Element top = doc.createElement("fst");
-      top.setAttribute("author", "http://richard.warburton.it");
-      Element startupNode = doc.createElement("startup");
-      startupNode.setAttribute("configWindow", CONFIG_WINDOW_STRINGS[configWindow]);
-      startupNode.setAttribute("checkUpdates", checkUpdates ? "true" : "false");
-      startupNode.setAttribute("nextUpdate", Long.toString(nextUpdate));
-      top.appendChild(startupNode);
-
-      Element fontNode = doc.createElement("font");
-      fontNode.setAttribute(
-          "color",
-          String.format(
-              "#%02X%02X%02X%02X",
-              fontColour.getRed(),
-              fontColour.getGreen(),
-              fontColour.getBlue(),
-              fontColour.getAlpha()));
-      fontNode.setAttribute("size", Integer.toString(font.getSize()));
-      fontNode.setAttribute("family", font.getFamily());
-      fontNode.setAttribute("style", FONT_STYLES_STRINGS[font.getStyle()]);
-      top.appendChild(fontNode);
-
-      Element orderNode = doc.createElement("order");
-      orderNode.setAttribute("word", ORDER_STRINGS[wordOrder]);
-      orderNode.setAttribute("letter", ORDER_STRINGS[letterOrder]);
-      orderNode.setAttribute("message", MESSAGE_ORDER_STRINGS[messageOrder]);
-      top.appendChild(orderNode);
-
-      Element timingNode = doc.createElement("timing");
-      timingNode.setAttribute("on", Integer.toString(display));
-      timingNode.setAttribute("off", Integer.toString(delay));
-      top.appendChild(timingNode);
-
-      Element positionNode = doc.createElement("position");
-      positionNode.setAttribute("x", H_ALIGN_STRINGS[placementX]);
-      positionNode.setAttribute("y", V_ALIGN_STRINGS[placementY]);
-      positionNode.setAttribute("x-margin", Integer.toString(marginX));
-      positionNode.setAttribute("y-margin", Integer.toString(marginY));
-      top.appendChild(positionNode);
-
-      for (String msg : messages) {
-        Element messageNode = doc.createElement("message");
-        messageNode.setTextContent(msg);
-        top.appendChild(messageNode);
-      }
-
-      transformer.transform(new DOMSource(top), new StreamResult(CONFIG_FILE));
-
-    } catch (Exception ex) {
-      JOptionPane.showMessageDialog(null, "Error: Saving FSTConfig.xml - " + ex);
+    if (configRandom.isSeeded()) {
+      settings.put("random.seed", Long.toString(configRandom.getSeed()));
     }
+    return settings;
+  }
+
+  /** Queues the current settings and messages to be written, only what changed is appended. */
+  public static void save() {
+    // A mapped store is saved by its path only
+    JOURNAL.save(
+        currentSettings(), messages.getStore() != null ? Collections.emptyList() : messages);
   }
 
   private static void parseConfigFile() {
+    // Values missing from the file keep their defaults
+    Settings d = Settings.DEFAULTS;
+    Settings.Builder b = d.toBuilder();
     try { // Parse xml file
-      DocumentBuilder db = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-      Document doc = db.parse(CONFIG_FILE);
+      ConfigFile doc = JOURNAL.recover();
       try { // Check Data
-        NodeList nl = doc.getElementsByTagName("message");
-        List<String> loadedMessages = new ArrayList<>(nl.getLength());
-        for (int x = 0; x < nl.getLength(); x++) {
-          loadedMessages.add(nl.item(x).getTextContent());
-        }
-        setMessages(loadedMessages);
-        Element topElement = (Element) doc.getElementsByTagName("fst").item(0);
+        setMessages(doc.getMessages());
+        ConfigFile.Section topElement = doc.getSection("fst");
 
         if (!(topElement.getAttribute("author").equals("http://richard.warburton.it"))) {
           throw new NullPointerException("Correct author missing");
         }
         try {
-          Element startup = (Element) doc.getElementsByTagName("startup").item(0);
-          nextUpdate = getLong(startup.getAttribute("nextUpdate"), nextUpdate);
-          configWindow =
+          ConfigFile.Section startup = doc.getSection("startup");
+          b.nextUpdate(getLong(startup.getAttribute("nextUpdate"), d.getNextUpdate()));
+          b.configWindow(
               matchOption(
-                  startup.getAttribute("configWindow"), CONFIG_WINDOW_STRINGS, configWindow);
-          checkUpdates = !"false".equalsIgnoreCase(startup.getAttribute("checkUpdates"));
+                  startup.getAttribute("configWindow"),
+                  CONFIG_WINDOW_STRINGS,
+                  d.getConfigWindow()));
+          b.checkUpdates(!"false".equalsIgnoreCase(startup.getAttribute("checkUpdates")));
         } catch (Exception e) {
         }
 
         try {
-          Element fontInfo = (Element) doc.getElementsByTagName("font").item(0);
-          font =
+          ConfigFile.Section fontInfo = doc.getSection("font");
+          Font font = d.getFont();
+          b.font(
               new Font(
                   def(fontInfo.getAttribute("family"), font.getFamily()),
                   matchOption(fontInfo.getAttribute("style"), FONT_STYLES_STRINGS, font.getStyle()),
-                  getInt(fontInfo.getAttribute("size"), font.getSize()));
+                  getInt(fontInfo.getAttribute("size"), font.getSize())));
           try {
             String colour = fontInfo.getAttribute("color");
             Color fColour = Color.decode(colour.substring(0, 7));
-            fontColour =
+            b.colour(
                 new Color(
                     fColour.getRed(),
                     fColour.getGreen(),
                     fColour.getBlue(),
                     colour.length() == 9
                         ? Integer.parseInt(colour.substring(7, 9), 16)
-                        : getInt(fontInfo.getAttribute("alpha"), fontColour.getAlpha()));
+                        : getInt(fontInfo.getAttribute("alpha"), d.getColour().getAlpha())));
           } catch (NumberFormatException ne) {
           }
         } catch (Exception e) {
         }
 
         try {
-          Element timingInfo = (Element) doc.getElementsByTagName("timing").item(0);
-          display = getInt(timingInfo.getAttribute("on"), display);
-          delay = getInt(timingInfo.getAttribute("off"), delay);
+          ConfigFile.Section timingInfo = doc.getSection("timing");
+          b.display(getInt(timingInfo.getAttribute("on"), d.getDisplay()));
+          b.delay(getInt(timingInfo.getAttribute("off"), d.getDelay()));
+          b.concurrentFlashes(
+              Math.max(
+                  1,
+                  Math.min(
+                      MAX_CONCURRENT_FLASHES,
+                      getInt(timingInfo.getAttribute("concurrent"), d.getConcurrentFlashes()))));
+        } catch (Exception e) {
+        }
+
+        try {
+          ConfigFile.Section orderInfo = doc.getSection("order");
+          b.wordOrder(matchOption(orderInfo.getAttribute("word"), ORDER_STRINGS, d.getWordOrder()));
+          b.letterOrder(
+              matchOption(orderInfo.getAttribute("letter"), ORDER_STRINGS, d.getLetterOrder()));
+          b.messageOrder(
+              matchOption(
+                  orderInfo.getAttribute("message"), MESSAGE_ORDER_STRINGS, d.getMessageOrder()));
+          messagePosition =
+              Math.max(-1, getInt(orderInfo.getAttribute("position"), messagePosition));
         } catch (Exception e) {
         }
 
         try {
-          Element orderInfo = (Element) doc.getElementsByTagName("order").item(0);
-          wordOrder = matchOption(orderInfo.getAttribute("word"), ORDER_STRINGS, wordOrder);
-          letterOrder = matchOption(orderInfo.getAttribute("letter"), ORDER_STRINGS, letterOrder);
-          messageOrder =
-              matchOption(orderInfo.getAttribute("message"), MESSAGE_ORDER_STRINGS, messageOrder);
+          ConfigFile.Section placement = doc.getSection("position");
+          b.placementX(
+              matchOption(placement.getAttribute("x"), H_ALIGN_STRINGS, d.getPlacementX()));
+          b.placementY(
+              matchOption(placement.getAttribute("y"), V_ALIGN_STRINGS, d.getPlacementY()));
+          b.marginX(getInt(placement.getAttribute("x-margin"), d.getMarginX()));
+          b.marginY(getInt(placement.getAttribute("y-margin"), d.getMarginY()));
+        } catch (Exception e) {
+        }
+
+        try {
+          ConfigFile.Section screenInfo = doc.getSection("screen");
+          b.screenPolicy(
+              matchOption(
+                  screenInfo.getAttribute("policy"),
+                  OverlayManager.POLICY_STRINGS,
+                  d.getScreenPolicy()));
+          b.screenDevice(getInt(screenInfo.getAttribute("device"), d.getScreenDevice()));
+          b.overlayMode(
+              matchOption(
+                  screenInfo.getAttribute("overlay"),
+                  OverlayManager.MODE_STRINGS,
+                  d.getOverlayMode()));
         } catch (Exception e) {
         }
 
         try {
-          Element placement = (Element) doc.getElementsByTagName("position").item(0);
-          placementX = matchOption(placement.getAttribute("x"), H_ALIGN_STRINGS, placementX);
-          placementY = matchOption(placement.getAttribute("y"), V_ALIGN_STRINGS, placementY);
-          marginX = getInt(placement.getAttribute("x-margin"), marginX);
-          marginY = getInt(placement.getAttribute("y-margin"), marginY);
+          ConfigFile.Section cacheInfo = doc.getSection("cache");
+          b.spriteCacheBytes(
+              getLong(cacheInfo.getAttribute("sprite-bytes"), d.getSpriteCacheBytes()));
         } catch (Exception e) {
         }
 
+        ConfigFile.Section randomInfo = doc.getSection("random");
+        if (randomInfo != null && !randomInfo.getAttribute("seed").isEmpty()) {
+          try {
+            configRandom = RandomSource.seeded(Long.parseLong(randomInfo.getAttribute("seed")));
+            randomSource = configRandom;
+          } catch (NumberFormatException ex) {
+          }
+        }
+
+        ConfigFile.Section storeInfo = doc.getSection("store");
+        if (storeInfo != null && !storeInfo.getAttribute("path").isEmpty()) {
+          File store = new File(storeInfo.getAttribute("path"));
+          try {
+            setMessages(MappedMessageList.open(store));
+            messageStore = store;
+            MappedMessageList.deleteUnused(SAVE_DIR, STORE_NAME, store);
+          } catch (IOException ex) {
+            JOptionPane.showMessageDialog(
+                null, "Error: Message store could not be opened, using saved messages.\n" + ex);
+          }
+        }
+
       } catch (NullPointerException ne) {
         JOptionPane.showMessageDialog(
             null, "Error: " + ne.getMessage() + "\nA new config file will be created.");
       }
-    } catch (SAXException ex) {
+    } catch (XMLStreamException ex) {
       JOptionPane.showMessageDialog(
           null, "Error: FSTConfig.xml could not be parsed.  A new config file will be created.");
     } catch (IOException ex) {
-    } catch (ParserConfigurationException ex) {
-      JOptionPane.showMessageDialog(
-          null, "Error: FSTConfig.xml could not be parsed.  A new config file will be created.");
     }
+    // Nothing depends on the settings yet, so they are published without telling anyone
+    SETTINGS.set(b.build());
     if (messages.isEmpty()) {
-      messages.add("Test Message");
+      List<String> defaults = new ArrayList<>();
+      defaults.add("Test Message");
+      setMessages(defaults);
+    }
+  }
+
+  /**
+   * Replaces the messages with a memory-mapped store built from a text file with one message per
+   * line, or from the {@code <message>} elements of an FST config file ending in {@code .xml}.
+   *
+   * @param source file to import
+   */
+  static void importMessages(File source) {
+    // A new generation, the store in use is left alone until the config no longer points at it
+    File store = MappedMessageList.newBase(SAVE_DIR, STORE_NAME);
+    try {
+      MappedMessageList imported =
+          source.getName().toLowerCase().endsWith(".xml")
+              ? MappedMessageList.importXml(source, store)
+              : MappedMessageList.importText(source, store);
+      messageStore = store;
+      setMessages(imported);
+      save();
+    } catch (IOException ex) {
+      JOptionPane.showMessageDialog(null, "Error: Importing " + source + " - " + ex);
     }
   }
 
@@ -354,73 +570,154 @@ public class FST extends JFrame {
   }
 
   public FST() {
-    super();
-    setAlwaysOnTop(true);
-    setFocusableWindowState(false);
-    setUndecorated(true);
-    setFocusable(false);
-
-    toolkit = Toolkit.getDefaultToolkit();
-    setBackground(new Color(0f, 0f, 0f, 0f));
+    Settings s = settings();
+    applied = s;
+    layout = new Layout(s);
+    geometry = DisplayGeometry.forLocalScreens();
+    overlays = new OverlayManager(geometry.getScreens(), s.getSpriteCacheBytes());
+    overlays.setPolicy(s.getScreenPolicy(), s.getScreenDevice());
+    overlays.setMode(effectiveOverlayMode(s));
 
     // Initialize message selector
-    messageSelector = new MessageSelector(messages, messageOrder, wordOrder, letterOrder);
-
-    // Initialize timers
-    displayTimer =
-        new Timer(
-            display,
-            e -> {
-              // Clear state and repaint before hiding to prevent stale cached content
-              // from appearing when window becomes visible again
-              currentState = null;
-              repaint();
-              SwingUtilities.invokeLater(
-                  () -> {
-                    setVisible(false);
-                    delayTimer.restart();
-                  });
-            });
-    displayTimer.setRepeats(false);
-
-    delayTimer =
-        new Timer(
-            delay,
-            e -> {
-              prepareNextMessage();
-            });
-    delayTimer.setRepeats(false);
-
-    // Initialize variables
-    setVisible(true);
-    Graphics g = getGraphics();
-    setVisible(false);
-
-    if (g != null) {
-      fontMetrics = g.getFontMetrics(font);
-      height = fontMetrics.getHeight();
-      ascent = fontMetrics.getAscent();
-      tempFont = font;
-      screen = toolkit.getScreenSize();
-      setBounds(0, 0, screen.width, height);
-    }
-
-    prepareNextMessage();
-  }
-
-  @Override
-  public void paint(Graphics g) {
-    g.clearRect(0, 0, this.getWidth(), this.getHeight());
-
-    MessageState state = currentState;
-    if (state != null) {
-      g.setFont(state.font);
-      g.setColor(state.color);
-      g.drawString(state.text, state.x, ascent);
-    }
-  }
-
-  int getPosition(int length, int width, int mode, int margin) {
+    layoutRandom = randomSource.stream("layout");
+    placeRandom = randomSource.stream("placement");
+    messageSelector =
+        new MessageSelector(
+            messages,
+            s.getMessageOrder(),
+            s.getWordOrder(),
+            s.getLetterOrder(),
+            randomSource.stream("messages"));
+    messageSelector.setPosition(messagePosition);
+    int slots = s.getConcurrentFlashes();
+    prefetcher =
+        new MessagePrefetcher(messageSelector, this::layoutMessage, Math.max(PREFETCH, slots));
+    measureWidths();
+
+    // Initialize schedulers, one per flash that can be on screen at once
+    shownAt = new long[slots];
+    shownDisplay = new int[slots];
+    shownState = new MessageState[slots];
+    flashSchedulers = new FlashScheduler[slots];
+    for (int i = 0; i < slots; i++) {
+      int slot = i;
+      flashSchedulers[i] =
+          new FlashScheduler(
+              "FST-flash-scheduler-" + (i + 1),
+              new FlashScheduler.Target() {
+                @Override
+                public boolean show() {
+                  return prepareNextMessage(slot);
+                }
+
+                @Override
+                public void hide() {
+                  hideMessage(slot);
+                }
+              },
+              s.getDisplay(),
+              s.getDelay());
+    }
+    // Overlay windows are only touched on the EDT
+    SETTINGS.addListener((before, after) -> SwingUtilities.invokeLater(this::applyLatest));
+    geometry.addListener(
+        screens ->
+            SwingUtilities.invokeLater(
+                () -> {
+                  overlays.setScreens(screens);
+                  // Lay out upcoming messages for the new screens
+                  prefetcher.invalidate();
+                }));
+    if (config != null) {
+      geometry.watch(config);
+    }
+    geometry.start();
+
+    prefetcher.start();
+    // Spread the flashes over one cycle so they come and go at different moments
+    long cycle = TimeUnit.MILLISECONDS.toNanos(s.getDisplay() + s.getDelay());
+    for (int i = 0; i < slots; i++) {
+      flashSchedulers[i].start(cycle * i / slots);
+    }
+  }
+
+  /**
+   * Brings what depends on the settings up to the current version, on the EDT. Changes published
+   * before it runs are applied together, whatever order they were told in.
+   */
+  private void applyLatest() {
+    Settings current = settings();
+    if (current != applied) {
+      apply(applied, current);
+      applied = current;
+    }
+  }
+
+  /**
+   * Updates what depends on the settings that changed. Messages prepared with the old settings are
+   * dropped.
+   */
+  private void apply(Settings before, Settings after) {
+    if (after.getDisplay() != before.getDisplay() || after.getDelay() != before.getDelay()) {
+      for (FlashScheduler scheduler : flashSchedulers) {
+        scheduler.setDurations(after.getDisplay(), after.getDelay());
+      }
+    }
+    if (after.getScreenPolicy() != before.getScreenPolicy()
+        || after.getScreenDevice() != before.getScreenDevice()) {
+      overlays.setPolicy(after.getScreenPolicy(), after.getScreenDevice());
+    }
+    if (effectiveOverlayMode(after) != effectiveOverlayMode(before)) {
+      overlays.setMode(effectiveOverlayMode(after));
+    }
+    if (after.getMessageOrder() != before.getMessageOrder()) {
+      messageSelector.setMessageOrder(after.getMessageOrder());
+    }
+    if (after.getWordOrder() != before.getWordOrder()) {
+      messageSelector.setWordOrder(after.getWordOrder());
+    }
+    if (after.getLetterOrder() != before.getLetterOrder()) {
+      messageSelector.setLetterOrder(after.getLetterOrder());
+    }
+    if (!after.getFont().equals(before.getFont())
+        || after.getWordOrder() != before.getWordOrder()
+        || after.getLetterOrder() != before.getLetterOrder()) {
+      measureWidths();
+    }
+    if (after.layoutDiffers(before)) {
+      layout = new Layout(after);
+      prefetcher.invalidate();
+    }
+  }
+
+  /** Several flashes at once can only be drawn by overlay windows that stay mapped. */
+  private static int effectiveOverlayMode(Settings s) {
+    return s.getConcurrentFlashes() > 1 ? OverlayManager.PERSISTENT : s.getOverlayMode();
+  }
+
+  /**
+   * Paints a message into a window whose top left corner is at (left, top) on screen.
+   *
+   * @param g window graphics
+   * @param state message to paint
+   * @param cache sprite cache to render through
+   * @param gc configuration of the window, or null for offscreen images
+   * @param left screen x of the window
+   * @param top screen y of the window
+   */
+  static void paintMessage(
+      Graphics g,
+      MessageState state,
+      SpriteCache cache,
+      GraphicsConfiguration gc,
+      int left,
+      int top) {
+    cache
+        .get(state.text, state.font, state.color, gc)
+        .draw(g, state.x - left, state.baseline - top);
+  }
+
+  int getPosition(int length, int width, int mode, int margin, Random rnd) {
     switch (mode) {
       case LEFT:
         return margin;
@@ -429,52 +726,107 @@ public class FST extends JFrame {
       case CENTER:
         return (length - width) / 2;
       case RANDOM:
-        return margin + IRANDOM.nextInt(length - width - 2 * margin);
+        return margin + rnd.nextInt(length - width - 2 * margin);
       default:
         return mode;
     }
   }
 
-  private void prepareNextMessage() {
-    try {
-      boolean change = false;
-      if (font != tempFont) {
-        Graphics g = getGraphics();
-        if (g != null) {
-          fontMetrics = g.getFontMetrics(font);
-          height = fontMetrics.getHeight();
-          ascent = fontMetrics.getAscent();
-          change = true;
-          tempFont = font;
-        }
-      }
-      Dimension scr = toolkit.getScreenSize();
-      if (screen == null || !scr.equals(screen)) {
-        change = true;
-        screen = scr;
-      }
-      if (change) {
-        setBounds(0, 0, screen.width, height);
+  private void hideMessage(int slot) {
+    if (shownState[slot] != null) {
+      overlays.hide(shownState[slot]);
+      shownState[slot] = null;
+    }
+    if (shownAt[slot] != 0) {
+      FlashTiming.get().recordVisible(shownDisplay[slot], System.nanoTime() - shownAt[slot]);
+      shownAt[slot] = 0;
+    }
+  }
+
+  /**
+   * Returns the message where it was laid out if that is clear of the other flashes on screen,
+   * otherwise at the first clear random position, or null if none was found.
+   */
+  private MessageState placeMessage(MessageState state) {
+    if (overlays.isFree(state)) {
+      return state;
+    }
+    Settings s = layout.settings;
+    int marginX = s.getMarginX();
+    int marginY = s.getMarginY();
+    Rectangle area = overlays.getScreen(state.screen).getBounds();
+    Rectangle box = overlays.getBounds(state);
+    if (area.width - box.width - 2 * marginX <= 0 || area.height - box.height - 2 * marginY <= 0) {
+      return null;
+    }
+    for (int i = 0; i < PLACE_TRIES; i++) {
+      int x = area.x + getPosition(area.width, box.width, RANDOM, marginX, placeRandom);
+      int y = area.y + getPosition(area.height, box.height, RANDOM, marginY, placeRandom);
+      MessageState moved = state.moveTo(state.x + x - box.x, state.baseline + y - box.y);
+      if (overlays.isFree(moved)) {
+        return moved;
       }
+    }
+    return null;
+  }
 
-      String text = messageSelector.getNextMessage();
-      if (text != null) {
-        int width = fontMetrics.stringWidth(text);
-        int x = getPosition(screen.width, width, placementX, marginX);
-        int y = getPosition(screen.height, height, placementY, marginY);
-        currentState = new MessageState(text, x, font, fontColour);
-        setLocation(0, y);
-
-        setVisible(true);
-        displayTimer.restart();
-      } else {
-        // No messages, just wait and check again
-        delayTimer.restart();
+  /**
+   * Picks the screen and position of a message with the current settings. Called by the prefetcher
+   * with its prepare lock held, usually on the prefetch thread, and also renders the sprite so
+   * showing the message is only a blit. The width comes from the width table when it was measured
+   * for the same messages, font and orders.
+   */
+  private MessageState layoutMessage(String text, MessageSet set, int messageIndex) {
+    // Read once, so every value comes from the same version of the settings
+    Layout current = layout;
+    Settings s = current.settings;
+    TextMetrics metrics = current.metrics;
+    Font f = s.getFont();
+    Color c = s.getColour();
+    int index = overlays.selectScreen(layoutRandom);
+    OverlayManager.Screen screen = overlays.getScreen(index);
+    Rectangle area = screen.getBounds();
+    WidthTable table = widths;
+    int width =
+        table != null && table.matches(set, f, s.getWordOrder(), s.getLetterOrder())
+            ? table.width(set, messageIndex)
+            : -1;
+    if (width < 0) {
+      width = metrics.advance(text);
+    }
+    int x =
+        area.x + getPosition(area.width, width, s.getPlacementX(), s.getMarginX(), layoutRandom);
+    int y =
+        area.y
+            + getPosition(
+                area.height, metrics.getHeight(), s.getPlacementY(), s.getMarginY(), layoutRandom);
+    overlays.getCache(index).get(text, f, c, screen.getConfiguration());
+    return new MessageState(text, x, y + metrics.getAscent(), f, c, index);
+  }
+
+  private boolean prepareNextMessage(int slot) {
+    long start = System.nanoTime();
+    try {
+      MessageState state = prefetcher.take();
+      if (state != null) {
+        // Skipped when the screen is too crowded, the slot tries again after the delay
+        state = placeMessage(state);
+        if (state == null) {
+          return false;
+        }
+        overlays.show(state);
+        shownState[slot] = state;
+        shownAt[slot] = System.nanoTime();
+        shownDisplay[slot] = layout.settings.getDisplay();
+        FlashTiming.get().recordPrepare(shownAt[slot] - start);
+        StartupTiming.firstFlash();
+        return true;
       }
     } catch (Exception ex) {
       JOptionPane.showMessageDialog(null, ex);
       save();
       System.exit(1);
     }
+    return false;
   }
 }
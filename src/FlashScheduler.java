@@ -0,0 +1,182 @@
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import javax.swing.SwingUtilities;
+
+/**
+ * Drives the show/hide cycle of the overlay from a dedicated thread using the monotonic {@link
+ * System#nanoTime} clock. Each deadline is planned from when the previous phase actually completed,
+ * and the Swing work is handed to the EDT early by the measured latency of the last show or hide so
+ * that it completes on time. Only the show and hide callbacks run on the EDT.
+ */
+public class FlashScheduler implements Runnable {
+  /** Swing work for each phase of a flash, always called on the EDT. */
+  public interface Target {
+    /**
+     * Shows the next message.
+     *
+     * @return true if a message is now visible, false if there was nothing to show
+     */
+    boolean show();
+
+    /** Hides the visible message. */
+    void hide();
+  }
+
+  // Close enough to a deadline to stop parking and spin instead
+  private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+  // Weight of a new latency sample in the moving average, as a shift (1/8)
+  private static final int LATENCY_SHIFT = 3;
+
+  private final String name;
+  private final Target target;
+  private volatile long displayNanos;
+  private volatile long delayNanos;
+  private volatile boolean running = false;
+  private long showLatency = 0;
+  private long hideLatency = 0;
+  private long startDelay = 0;
+  private Thread thread;
+
+  /**
+   * Creates a scheduler.
+   *
+   * @param target the overlay to show and hide
+   * @param display milliseconds each message stays visible
+   * @param delay milliseconds between messages
+   */
+  public FlashScheduler(Target target, int display, int delay) {
+    this("FST-flash-scheduler", target, display, delay);
+  }
+
+  /**
+   * Creates a scheduler whose thread has the given name, to tell schedulers running side by side
+   * apart.
+   *
+   * @param name name of the scheduler thread
+   * @param target the overlay to show and hide
+   * @param display milliseconds each message stays visible
+   * @param delay milliseconds between messages
+   */
+  public FlashScheduler(String name, Target target, int display, int delay) {
+    this.name = name;
+    this.target = target;
+    setDurations(display, delay);
+  }
+
+  /**
+   * Changes the display and delay durations. They take effect from the next planned deadline, so a
+   * flash already on screen keeps its original duration.
+   *
+   * @param display milliseconds each message stays visible
+   * @param delay milliseconds between messages
+   */
+  public void setDurations(int display, int delay) {
+    displayNanos = TimeUnit.MILLISECONDS.toNanos(display);
+    delayNanos = TimeUnit.MILLISECONDS.toNanos(delay);
+  }
+
+  /** Starts the scheduler thread; the first message is shown straight away. */
+  public void start() {
+    start(0L);
+  }
+
+  /**
+   * Starts the scheduler thread, showing the first message after a delay. Schedulers running side
+   * by side are started at staggered times so their flashes come and go at different moments.
+   *
+   * @param delay nanoseconds before the first message
+   */
+  public synchronized void start(long delay) {
+    if (thread == null) {
+      startDelay = delay;
+      running = true;
+      thread = new Thread(this, name);
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MAX_PRIORITY);
+      thread.start();
+    }
+  }
+
+  /** Stops the scheduler thread after the current phase. */
+  public synchronized void stop() {
+    running = false;
+    if (thread != null) {
+      thread.interrupt();
+      thread = null;
+    }
+  }
+
+  long getShowLatency() {
+    return showLatency;
+  }
+
+  long getHideLatency() {
+    return hideLatency;
+  }
+
+  @Override
+  public void run() {
+    long showAt = System.nanoTime() + startDelay;
+    // The first show can also start the EDT, which says nothing about later latency
+    boolean first = true;
+    try {
+      while (running) {
+        waitUntil(showAt - showLatency);
+        long issued = System.nanoTime();
+        boolean shown = onEdt(true);
+        long shownAt = System.nanoTime();
+        if (!first) {
+          showLatency += ((shownAt - issued) - showLatency) >> LATENCY_SHIFT;
+        }
+        first = false;
+
+        if (shown) {
+          long hideAt = shownAt + displayNanos;
+          waitUntil(hideAt - hideLatency);
+          issued = System.nanoTime();
+          onEdt(false);
+          long hiddenAt = System.nanoTime();
+          hideLatency += ((hiddenAt - issued) - hideLatency) >> LATENCY_SHIFT;
+          showAt = hiddenAt + delayNanos;
+        } else {
+          // Nothing to show, just wait and check again
+          showAt = shownAt + delayNanos;
+        }
+      }
+    } catch (InterruptedException ex) {
+      // Stopped
+    }
+  }
+
+  private boolean onEdt(boolean show) throws InterruptedException {
+    boolean[] result = new boolean[1];
+    try {
+      SwingUtilities.invokeAndWait(
+          () -> {
+            if (show) {
+              result[0] = target.show();
+            } else {
+              target.hide();
+            }
+          });
+    } catch (InvocationTargetException ex) {
+      ex.getCause().printStackTrace();
+    }
+    return result[0];
+  }
+
+  private void waitUntil(long deadline) throws InterruptedException {
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > 0) {
+      if (!running || Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      if (remaining > SPIN_NANOS) {
+        LockSupport.parkNanos(this, remaining - SPIN_NANOS);
+      } else {
+        Thread.onSpinWait();
+      }
+    }
+  }
+}
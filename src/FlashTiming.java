@@ -0,0 +1,147 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Records how long flashes are really visible compared with the requested display time, and what
+ * preparing and painting them costs. Exposed over JMX as {@value #OBJECT_NAME} and printed on exit
+ * with {@code --timing-report}.
+ */
+public final class FlashTiming implements FlashTimingMBean {
+  static final String OBJECT_NAME = "fst:type=FlashTiming";
+  private static final FlashTiming INSTANCE = new FlashTiming();
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final LatencyHistogram visible = new LatencyHistogram();
+  private final LatencyHistogram visibleError = new LatencyHistogram();
+  private final LatencyHistogram prepare = new LatencyHistogram();
+  private final LatencyHistogram paint = new LatencyHistogram();
+
+  public static FlashTiming get() {
+    return INSTANCE;
+  }
+
+  /** Registers the shared instance with the platform MBean server. */
+  public static void register() {
+    try {
+      ManagementFactory.getPlatformMBeanServer()
+          .registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+    } catch (JMException ex) {
+      System.out.println("Error: " + ex);
+    }
+  }
+
+  /**
+   * Records how long a flash was on screen.
+   *
+   * @param requestedMillis the display duration that was asked for
+   * @param actualNanos how long the flash was actually visible
+   */
+  public void recordVisible(int requestedMillis, long actualNanos) {
+    visible.record(actualNanos);
+    visibleError.record(Math.abs(actualNanos - TimeUnit.MILLISECONDS.toNanos(requestedMillis)));
+  }
+
+  public void recordPrepare(long nanos) {
+    prepare.record(nanos);
+  }
+
+  public void recordPaint(long nanos) {
+    paint.record(nanos);
+  }
+
+  @Override
+  public long getFlashCount() {
+    return visible.getCount();
+  }
+
+  @Override
+  public double getVisibleMeanMillis() {
+    return visible.getMean() / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getVisibleP50Millis() {
+    return millis(visible.getPercentile(50));
+  }
+
+  @Override
+  public double getVisibleP99Millis() {
+    return millis(visible.getPercentile(99));
+  }
+
+  @Override
+  public double getVisibleErrorP50Millis() {
+    return millis(visibleError.getPercentile(50));
+  }
+
+  @Override
+  public double getVisibleErrorP99Millis() {
+    return millis(visibleError.getPercentile(99));
+  }
+
+  @Override
+  public double getVisibleErrorMaxMillis() {
+    return millis(visibleError.getMax());
+  }
+
+  @Override
+  public double getPrepareP50Millis() {
+    return millis(prepare.getPercentile(50));
+  }
+
+  @Override
+  public double getPrepareP99Millis() {
+    return millis(prepare.getPercentile(99));
+  }
+
+  @Override
+  public double getPaintP50Millis() {
+    return millis(paint.getPercentile(50));
+  }
+
+  @Override
+  public double getPaintP99Millis() {
+    return millis(paint.getPercentile(99));
+  }
+
+  @Override
+  public String report() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(
+        String.format(
+            "%-14s %8s %9s %9s %9s %9s %9s%n",
+            "(ms)", "count", "mean", "p50", "p90", "p99", "max"));
+    row(sb, "visible", visible);
+    row(sb, "visible-error", visibleError);
+    row(sb, "prepare", prepare);
+    row(sb, "paint", paint);
+    return sb.toString();
+  }
+
+  @Override
+  public void reset() {
+    visible.reset();
+    visibleError.reset();
+    prepare.reset();
+    paint.reset();
+  }
+
+  private static void row(StringBuilder sb, String name, LatencyHistogram h) {
+    sb.append(
+        String.format(
+            "%-14s %8d %9.3f %9.3f %9.3f %9.3f %9.3f%n",
+            name,
+            h.getCount(),
+            h.getMean() / NANOS_PER_MILLI,
+            millis(h.getPercentile(50)),
+            millis(h.getPercentile(90)),
+            millis(h.getPercentile(99)),
+            millis(h.getMax())));
+  }
+
+  private static double millis(long nanos) {
+    return nanos / NANOS_PER_MILLI;
+  }
+}
@@ -0,0 +1,34 @@
+/** JMX view of {@link FlashTiming}. All durations are in milliseconds. */
+public interface FlashTimingMBean {
+  long getFlashCount();
+
+  double getVisibleMeanMillis();
+
+  double getVisibleP50Millis();
+
+  double getVisibleP99Millis();
+
+  double getVisibleErrorP50Millis();
+
+  double getVisibleErrorP99Millis();
+
+  double getVisibleErrorMaxMillis();
+
+  double getPrepareP50Millis();
+
+  double getPrepareP99Millis();
+
+  double getPaintP50Millis();
+
+  double getPaintP99Millis();
+
+  /**
+   * Returns a text table of every histogram.
+   *
+   * @return the report
+   */
+  String report();
+
+  /** Clears all histograms. */
+  void reset();
+}
@@ -0,0 +1,154 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Remembers the installed font families between launches, because asking the graphics environment
+ * for them can take seconds on machines with thousands of fonts. The cache is keyed by a
+ * fingerprint of the font directories, the modification times of every directory below them, so
+ * installing or removing a font causes a new scan.
+ */
+public final class FontFamilyCache {
+  static final String HEADER = "FSTFonts 1 ";
+
+  private final File file;
+  private final List<File> fontDirs;
+
+  /**
+   * Creates a cache.
+   *
+   * @param file cache file
+   * @param fontDirs directories whose contents decide when the cache is stale
+   */
+  public FontFamilyCache(File file, List<File> fontDirs) {
+    this.file = file;
+    this.fontDirs = fontDirs;
+  }
+
+  /**
+   * Returns the usual font directories of this platform and of the running JDK.
+   *
+   * @return directories that may hold fonts, existing or not
+   */
+  public static List<File> defaultFontDirs() {
+    String home = System.getProperty("user.home");
+    List<File> dirs = new ArrayList<>();
+    dirs.add(new File(System.getProperty("java.home"), "lib/fonts"));
+    if (System.getProperty("os.name").toUpperCase().contains("WIN")) {
+      String windir = System.getenv("WINDIR");
+      String local = System.getenv("LOCALAPPDATA");
+      if (windir != null) {
+        dirs.add(new File(windir, "Fonts"));
+      }
+      if (local != null) {
+        dirs.add(new File(local, "Microsoft/Windows/Fonts"));
+      }
+    } else {
+      dirs.add(new File("/System/Library/Fonts"));
+      dirs.add(new File("/Library/Fonts"));
+      dirs.add(new File(home, "Library/Fonts"));
+      dirs.add(new File("/usr/share/fonts"));
+      dirs.add(new File("/usr/local/share/fonts"));
+      dirs.add(new File(home, ".fonts"));
+      dirs.add(new File(home, ".local/share/fonts"));
+    }
+    return dirs;
+  }
+
+  /**
+   * Returns the cached families if the fonts have not changed, otherwise enumerates them and caches
+   * the result. Failing to read or write the cache only costs a scan.
+   *
+   * @param enumerate scans the installed font families
+   * @return font family names in the order the scan returned them
+   */
+  public List<String> load(Supplier<String[]> enumerate) {
+    String fingerprint = fingerprint();
+    List<String> cached = read(fingerprint);
+    if (cached != null) {
+      return cached;
+    }
+    List<String> families = Arrays.asList(enumerate.get());
+    try {
+      write(fingerprint, families);
+    } catch (IOException ex) {
+      // Scanned again next time
+    }
+    return families;
+  }
+
+  /**
+   * Returns a fingerprint of the font directories. Adding, removing or renaming a file changes the
+   * modification time of its directory, so only directories are visited.
+   *
+   * @return fingerprint, the same while no font directory changes
+   */
+  String fingerprint() {
+    CRC32 crc = new CRC32();
+    StringBuilder dirs = new StringBuilder(System.getProperty("java.version"));
+    for (File dir : fontDirs) {
+      visit(dir, dirs);
+    }
+    crc.update(dirs.toString().getBytes(StandardCharsets.UTF_8));
+    return Long.toHexString(crc.getValue()) + "-" + dirs.length();
+  }
+
+  private static void visit(File dir, StringBuilder dirs) {
+    File[] children = dir.listFiles(File::isDirectory);
+    if (children == null) {
+      return;
+    }
+    dirs.append('\n').append(dir.getPath()).append('|').append(dir.lastModified());
+    Arrays.sort(children);
+    for (File child : children) {
+      visit(child, dirs);
+    }
+  }
+
+  /** Returns the cached families, or null if there are none for this fingerprint. */
+  private List<String> read(String fingerprint) {
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      if (!(HEADER + fingerprint).equals(reader.readLine())) {
+        return null;
+      }
+      List<String> families = new ArrayList<>();
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        families.add(line);
+      }
+      return families.isEmpty() ? null : families;
+    } catch (IOException ex) {
+      return null;
+    }
+  }
+
+  private void write(String fingerprint, List<String> families) throws IOException {
+    File tmp = new File(file.getPath() + ".tmp");
+    try (Writer out =
+        new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+      out.write(HEADER + fingerprint + "\n");
+      for (String family : families) {
+        out.write(family);
+        out.write('\n');
+      }
+    } catch (IOException ex) {
+      tmp.delete();
+      throw ex;
+    }
+    ConfigFile.replace(tmp, file);
+  }
+}
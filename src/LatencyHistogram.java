@@ -0,0 +1,116 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory log-linear histogram of nanosecond durations. Values below {@value #SUB_BUCKETS} are
+ * counted exactly; above that every power of two is split into {@value #HALF} linear buckets, which
+ * bounds the relative error of any percentile to about 3%. Recording is lock-free and safe from any
+ * thread.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BITS = 6;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+  private static final int HALF = SUB_BUCKETS / 2;
+  // Highest tracked bit, values from 2^41ns (about 36 minutes) land in the last bucket
+  private static final int MAX_BIT = 40;
+  static final int BUCKETS = SUB_BUCKETS + (MAX_BIT - SUB_BITS + 1) * HALF;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a duration. Negative values are counted as zero.
+   *
+   * @param nanos duration in nanoseconds
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    counts.incrementAndGet(bucketOf(value));
+    count.incrementAndGet();
+    sum.addAndGet(value);
+    long m;
+    while (value > (m = max.get()) && !max.compareAndSet(m, value)) {
+      Thread.onSpinWait();
+    }
+  }
+
+  /** Clears all recorded values. */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    count.set(0);
+    sum.set(0);
+    max.set(0);
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Returns the mean of the recorded values.
+   *
+   * @return mean in nanoseconds, or 0 if nothing has been recorded
+   */
+  public double getMean() {
+    long c = count.get();
+    return c == 0 ? 0 : (double) sum.get() / c;
+  }
+
+  /**
+   * Returns the value at the given percentile.
+   *
+   * @param percentile between 0 and 100
+   * @return the upper bound of the bucket holding the percentile, capped at the recorded maximum,
+   *     or 0 if nothing has been recorded
+   */
+  public long getPercentile(double percentile) {
+    long total = 0;
+    long[] snapshot = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, percentile) / 100.0));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        // The last bucket is open ended, so only the maximum describes it
+        return i == BUCKETS - 1 ? max.get() : Math.min(upperBound(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS + 1;
+    if (shift > MAX_BIT - SUB_BITS + 1) {
+      return BUCKETS - 1;
+    }
+    int sub = (int) (value >>> shift);
+    return SUB_BUCKETS + (shift - 1) * HALF + (sub - HALF);
+  }
+
+  static long upperBound(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = (bucket - SUB_BUCKETS) / HALF + 1;
+    long sub = (bucket - SUB_BUCKETS) % HALF + HALF;
+    return ((sub + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,50 @@
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.util.function.Supplier;
+import javax.swing.JPanel;
+
+/**
+ * Placeholder for a tab whose contents are only built the first time the tab is shown, so a config
+ * window that starts minimised costs almost nothing until it is opened.
+ */
+public class LazyTab extends JPanel {
+  private Supplier<? extends Component> content;
+  private String name = "tab";
+
+  /** Creates an empty tab. */
+  public LazyTab() {
+    super(new BorderLayout());
+  }
+
+  /**
+   * Sets how the contents are built.
+   *
+   * @param name name of the tab in the startup log
+   * @param content builds the contents, called once on the event thread
+   */
+  public void setContent(String name, Supplier<? extends Component> content) {
+    this.name = name;
+    this.content = content;
+  }
+
+  /** Builds the contents if they have not been built yet. */
+  public void build() {
+    if (content == null) {
+      return;
+    }
+    Supplier<? extends Component> builder = content;
+    content = null;
+    add(builder.get(), BorderLayout.CENTER);
+    revalidate();
+    StartupTiming.mark("tab-" + name);
+  }
+
+  /**
+   * Returns whether the contents have been built.
+   *
+   * @return true once built, or if there was nothing to build
+   */
+  public boolean isBuilt() {
+    return content == null;
+  }
+}
@@ -0,0 +1,294 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.RandomAccess;
+import java.util.regex.Pattern;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Read-only message list backed by two memory-mapped files, so millions of messages can be used
+ * without holding them on the heap. {@code <base>.dat} holds the messages as UTF-8 back to back and
+ * {@code <base>.idx} holds a small header followed by the start offset of every message plus the
+ * end offset of the last one. A message is only decoded when it is fetched by index.
+ *
+ * <p>A store is never rewritten in place: the store in use may be mapped, and a crash halfway
+ * through replacing both files would leave neither the old store nor the new one. Each import is
+ * written under a new name from {@link #newBase} and the config is switched to it; the stores no
+ * longer used are deleted with {@link #deleteUnused} once the config points at the new one.
+ */
+public final class MappedMessageList extends AbstractList<String> implements RandomAccess {
+  static final int MAGIC = 0x46535449; // "FSTI"
+  static final int VERSION = 1;
+  // Magic, version and message count
+  static final int HEADER_BYTES = 16;
+
+  private final File base;
+  private final MappedByteBuffer data;
+  private final MappedByteBuffer index;
+  private final int count;
+
+  private MappedMessageList(File base, MappedByteBuffer data, MappedByteBuffer index, int count) {
+    this.base = base;
+    this.data = data;
+    this.index = index;
+    this.count = count;
+  }
+
+  /**
+   * Opens an existing store.
+   *
+   * @param base path of the store without the {@code .dat}/{@code .idx} extension
+   * @return the mapped list
+   * @throws IOException if the files are missing, too large or not a message store
+   */
+  public static MappedMessageList open(File base) throws IOException {
+    MappedByteBuffer index = map(indexFile(base));
+    MappedByteBuffer data = map(dataFile(base));
+    if (index.capacity() < HEADER_BYTES || index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+      throw new IOException("Not a message store: " + indexFile(base));
+    }
+    long count = index.getLong(8);
+    if (count < 0
+        || count > Integer.MAX_VALUE - 1
+        || HEADER_BYTES + (count + 1) * 8 > index.capacity()) {
+      throw new IOException("Corrupt message store index: " + indexFile(base));
+    }
+    if (index.getLong(HEADER_BYTES + (int) count * 8) != data.capacity()) {
+      throw new IOException("Message store data does not match its index: " + dataFile(base));
+    }
+    return new MappedMessageList(base, data, index, (int) count);
+  }
+
+  /**
+   * Returns a path for a new store that does not exist yet, so writing it replaces nothing.
+   *
+   * @param dir directory to put the store in
+   * @param name name shared by every generation of the store
+   * @return {@code name-<generation>} in dir, without the {@code .dat}/{@code .idx} extension
+   */
+  public static File newBase(File dir, String name) {
+    for (long generation = System.currentTimeMillis(); ; generation++) {
+      File base = new File(dir, name + "-" + generation);
+      if (!dataFile(base).exists()
+          && !indexFile(base).exists()
+          && !tmpFile(dataFile(base)).exists()
+          && !tmpFile(indexFile(base)).exists()) {
+        return base;
+      }
+    }
+  }
+
+  /**
+   * Deletes the files of every generation of a store other than the one in use, including ones left
+   * half written. Files that cannot be deleted, e.g. because another process still maps them, are
+   * left for next time.
+   *
+   * @param dir directory holding the stores
+   * @param name name shared by every generation of the store
+   * @param keep store in use, without extension
+   */
+  public static void deleteUnused(File dir, String name, File keep) {
+    Pattern generation = Pattern.compile(Pattern.quote(name) + "(-\\d+)?\\.(dat|idx)(\\.tmp)?");
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      if (generation.matcher(file.getName()).matches()
+          && !file.equals(dataFile(keep))
+          && !file.equals(indexFile(keep))) {
+        file.delete();
+      }
+    }
+  }
+
+  /**
+   * Writes messages to a new store and opens it. The path should not hold a store yet, see {@link
+   * #newBase}; the files are only given their final names once both are complete.
+   *
+   * @param base path of the store without the {@code .dat}/{@code .idx} extension
+   * @param messages messages to store, consumed once
+   * @return the mapped list
+   * @throws IOException if the store cannot be written
+   */
+  public static MappedMessageList write(File base, Iterator<String> messages) throws IOException {
+    File dataTmp = tmpFile(dataFile(base));
+    File indexTmp = tmpFile(indexFile(base));
+    try {
+      long count = 0;
+      try (OutputStream data = new BufferedOutputStream(new FileOutputStream(dataTmp), 1 << 16);
+          DataOutputStream index =
+              new DataOutputStream(
+                  new BufferedOutputStream(new FileOutputStream(indexTmp), 1 << 16))) {
+        index.writeInt(MAGIC);
+        index.writeInt(VERSION);
+        index.writeLong(0); // Count, filled in once known
+        long offset = 0;
+        while (messages.hasNext()) {
+          byte[] bytes = messages.next().getBytes(StandardCharsets.UTF_8);
+          index.writeLong(offset);
+          data.write(bytes);
+          offset += bytes.length;
+          count++;
+        }
+        index.writeLong(offset);
+      }
+      try (RandomAccessFile index = new RandomAccessFile(indexTmp, "rw")) {
+        index.seek(8);
+        index.writeLong(count);
+      }
+      // The index last: a store whose index is missing is never opened
+      Files.move(dataTmp.toPath(), dataFile(base).toPath(), StandardCopyOption.ATOMIC_MOVE);
+      Files.move(indexTmp.toPath(), indexFile(base).toPath(), StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException | RuntimeException ex) {
+      dataTmp.delete();
+      indexTmp.delete();
+      throw ex;
+    }
+    return open(base);
+  }
+
+  /**
+   * Builds a store from a plain text file with one message per line, skipping blank lines.
+   *
+   * @param text UTF-8 text file
+   * @param base path of the store without the {@code .dat}/{@code .idx} extension
+   * @return the mapped list
+   * @throws IOException if the text cannot be read or the store cannot be written
+   */
+  public static MappedMessageList importText(File text, File base) throws IOException {
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(new FileInputStream(text), StandardCharsets.UTF_8))) {
+      Iterator<String> lines = reader.lines().filter(line -> line.length() > 0).iterator();
+      return write(base, lines);
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  /**
+   * Builds a store from the {@code <message>} elements of an FST config file, streaming it so the
+   * messages are never all in memory.
+   *
+   * @param xml config file
+   * @param base path of the store without the {@code .dat}/{@code .idx} extension
+   * @return the mapped list
+   * @throws IOException if the file cannot be read or parsed, or the store cannot be written
+   */
+  public static MappedMessageList importXml(File xml, File base) throws IOException {
+    try (InputStream in = new FileInputStream(xml)) {
+      XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+      try {
+        return write(base, new MessageElements(reader));
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException | IllegalStateException ex) {
+      throw new IOException("Could not read messages from " + xml, ex);
+    }
+  }
+
+  /** Iterates the text of each {@code <message>} element. */
+  private static final class MessageElements implements Iterator<String> {
+    private final XMLStreamReader reader;
+    private String next;
+
+    MessageElements(XMLStreamReader reader) throws XMLStreamException {
+      this.reader = reader;
+      advance();
+    }
+
+    private void advance() throws XMLStreamException {
+      next = null;
+      while (next == null && reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT
+            && "message".equals(reader.getLocalName())) {
+          next = reader.getElementText();
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public String next() {
+      String current = next;
+      try {
+        advance();
+      } catch (XMLStreamException ex) {
+        throw new IllegalStateException(ex);
+      }
+      return current;
+    }
+  }
+
+  public File getBase() {
+    return base;
+  }
+
+  @Override
+  public String get(int i) {
+    if (i < 0 || i >= count) {
+      throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + count);
+    }
+    long start = index.getLong(HEADER_BYTES + i * 8);
+    long end = index.getLong(HEADER_BYTES + i * 8 + 8);
+    byte[] bytes = new byte[(int) (end - start)];
+    ByteBuffer view = data.duplicate();
+    view.position((int) start);
+    view.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public int size() {
+    return count;
+  }
+
+  static File dataFile(File base) {
+    return new File(base.getPath() + ".dat");
+  }
+
+  static File indexFile(File base) {
+    return new File(base.getPath() + ".idx");
+  }
+
+  private static File tmpFile(File file) {
+    return new File(file.getPath() + ".tmp");
+  }
+
+  private static MappedByteBuffer map(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Message store file larger than 2GB: " + file);
+      }
+      // The mapping stays valid after the channel is closed
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+}
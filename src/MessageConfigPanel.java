@@ -14,10 +14,17 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.JComponent;
+import javax.swing.JLabel;
 import javax.swing.JOptionPane;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingUtilities;
 import javax.swing.TransferHandler;
+import javax.swing.text.BadLocationException;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import org.w3c.dom.Document;
@@ -30,7 +37,24 @@ import org.xml.sax.SAXException;
  */
 public class MessageConfigPanel extends javax.swing.JPanel {
 
+  // Publishes edited messages in order, one version at a time
+  private static final ExecutorService EDITS =
+      Executors.newSingleThreadExecutor(
+          r -> {
+            Thread t = new Thread(r, "FST-message-edits");
+            t.setDaemon(true);
+            return t;
+          });
+
+  // Highest weight the spinner offers
+  private static final double MAX_WEIGHT = 1000;
+
   Map<String, List<String>> suggestions;
+  // Weight of the message on the caret's line
+  private final JSpinner weightSpinner =
+      new JSpinner(new SpinnerNumberModel(1.0, 0.0, MAX_WEIGHT, 1.0));
+  // Set while the spinner is showing a weight rather than being changed by the user
+  private boolean showingWeight = false;
 
   /** Creates new form MessageConfigPanel */
   public MessageConfigPanel() {
@@ -39,11 +63,32 @@ public class MessageConfigPanel extends javax.swing.JPanel {
 
     messageOrderBox.setSelectedIndex(FST.getMessageOrder());
 
-    StringBuilder sb = new StringBuilder();
-    for (String msg : FST.messages) {
-      sb.append(msg).append("\n");
+    MappedMessageList store = FST.messages.getStore();
+    if (store != null) {
+      // Far too many to edit here, they are changed by importing again
+      messagesText.setText(
+          String.format(
+              "%d messages from the message store%n%s%n%nImport a new file to change them.",
+              store.size(), store.getBase()));
+      messagesText.setEditable(false);
+    } else {
+      StringBuilder sb = new StringBuilder();
+      for (String msg : FST.messages) {
+        sb.append(msg).append("\n");
+      }
+      messagesText.setText(sb.toString());
+      messagesText.setToolTipText(
+          "<html>One message per line. The weight is for the line with the cursor: 3 shows it"
+              + " three times as often,<br>0 switches it off without removing it.</html>");
+      JLabel weightLabel = new JLabel("Weight:");
+      weightLabel.setLabelFor(weightSpinner);
+      weightSpinner.setToolTipText(messagesText.getToolTipText());
+      jPanel4.add(weightLabel);
+      jPanel4.add(weightSpinner);
+      messagesText.addCaretListener(evt -> showWeight());
+      weightSpinner.addChangeListener(evt -> weightChanged());
+      showWeight();
     }
-    messagesText.setText(sb.toString());
     final TransferHandler messagesTransferHandler = messagesText.getTransferHandler();
 
     messagesText.setTransferHandler(
@@ -51,7 +96,7 @@ public class MessageConfigPanel extends javax.swing.JPanel {
 
           @Override
           public boolean canImport(JComponent jc, DataFlavor[] df) {
-            return messagesTransferHandler.canImport(jc, df);
+            return messagesText.isEditable() && messagesTransferHandler.canImport(jc, df);
           }
 
           @Override
@@ -123,7 +168,7 @@ public class MessageConfigPanel extends javax.swing.JPanel {
     jPanel2.setLayout(new java.awt.BorderLayout());
 
     suggestionsList.setFont(new java.awt.Font("Lucida Grande", 0, 10)); // NOI18N
-    suggestionsList.setDragEnabled(true);
+    suggestionsList.setDragEnabled(!java.awt.GraphicsEnvironment.isHeadless());
     suggestionsList.setVisibleRowCount(5);
     jScrollPane2.setViewportView(suggestionsList);
 
@@ -180,7 +225,12 @@ public class MessageConfigPanel extends javax.swing.JPanel {
 
     messageOrderBox.setModel(
         new javax.swing.DefaultComboBoxModel<>(
-            new String[] {"Display Random", "Display Sequential"}));
+            new String[] {
+              "Display Random",
+              "Display Sequential",
+              "Display Shuffled",
+              "Display Random, No Repeats"
+            }));
     messageOrderBox.addActionListener(
         new java.awt.event.ActionListener() {
           public void actionPerformed(java.awt.event.ActionEvent evt) {
@@ -194,25 +244,78 @@ public class MessageConfigPanel extends javax.swing.JPanel {
     add(jPanel1, java.awt.BorderLayout.CENTER);
   } // </editor-fold>//GEN-END:initComponents
 
+  /** Returns the line the caret is on, which is the index of its message once published. */
+  private int caretLine() {
+    try {
+      return messagesText.getLineOfOffset(messagesText.getCaretPosition());
+    } catch (BadLocationException ex) {
+      return -1;
+    }
+  }
+
+  /** Shows the weight of the message on the caret's line. */
+  private void showWeight() {
+    MessageSet current = FST.messages;
+    int line = caretLine();
+    boolean message = line >= 0 && line < current.size();
+    showingWeight = true;
+    weightSpinner.setValue(message ? Math.min(current.getWeight(line), MAX_WEIGHT) : 1.0);
+    showingWeight = false;
+    weightSpinner.setEnabled(message);
+  }
+
+  private void weightChanged() {
+    if (showingWeight) {
+      return;
+    }
+    int line = caretLine();
+    double weight = ((Number) weightSpinner.getValue()).doubleValue();
+    // Any text not yet published goes first, so the line is the index of its message
+    messagesTextFocusLost(null);
+    EDITS.execute(
+        () -> {
+          MessageSet current = FST.messages;
+          if (line >= 0 && line < current.size() && current.getWeight(line) != weight) {
+            FST.setMessages(current.withWeight(line, weight));
+            SwingUtilities.invokeLater(FST::settingsChanged);
+          }
+        });
+  }
+
   private void messagesTextFocusLost(
       java.awt.event.FocusEvent evt) { // GEN-FIRST:event_messagesTextFocusLost
-
-    FST.messages.clear();
+    if (!messagesText.isEditable()) {
+      return;
+    }
+    // Build a new list, the current one may be in use by the prefetch thread
+    List<String> edited = new ArrayList<>();
     StringBuilder sb = new StringBuilder();
     try {
       BufferedReader read = new BufferedReader(new StringReader(messagesText.getText()));
       String msg;
       while (null != (msg = read.readLine())) {
         if (msg.length() > 0) {
-          FST.messages.add(msg);
+          edited.add(msg);
           sb.append(String.format("%s%n", msg));
         }
       }
     } catch (IOException ex) {
       // GEN-LAST:event_messagesTextFocusLost
     } finally {
-      messagesText.setText(sb.toString());
-      FST.settingsChanged();
+      if (!sb.toString().equals(messagesText.getText())) {
+        messagesText.setText(sb.toString());
+      }
+      // The new version is copied and weighed off the EDT, then swapped in as a whole. Each line
+      // keeps the weight of the message it was.
+      EDITS.execute(
+          () -> {
+            MessageSet current = FST.messages;
+            // Leaving the text as it was publishes nothing
+            if (!current.equals(edited)) {
+              FST.setMessages(current.edit(edited));
+              SwingUtilities.invokeLater(FST::settingsChanged);
+            }
+          });
     }
   }
 
@@ -226,7 +329,6 @@ public class MessageConfigPanel extends javax.swing.JPanel {
   private void messageOrderBoxActionPerformed(
       java.awt.event.ActionEvent evt) { // GEN-FIRST:event_messageOrderBoxActionPerformed
     FST.setMessageOrder(messageOrderBox.getSelectedIndex());
-    FST.settingsChanged();
   } // GEN-LAST:event_messageOrderBoxActionPerformed
 
   private void messagesTextFocusGained(
@@ -0,0 +1,261 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Selects, orders and lays out upcoming messages on a background thread, keeping a {@link
+ * RingBuffer} of ready {@link FST.MessageState}s so that showing a flash only has to take one.
+ *
+ * <p>Every prepared message is tagged with the generation it was computed in. {@link #invalidate}
+ * starts a new generation when the messages or settings change; {@link #take} skips what was
+ * prepared before it, and the next message prepared steps the sequential position back to just
+ * after the last message actually taken, so sequential order never skips a message that was
+ * prepared but not shown.
+ *
+ * <p>A message is selected, laid out and added to the buffer in one step under the prepare lock.
+ * {@link #take} pops a ready message without it and only takes it when the buffer is empty, to
+ * prepare the next message itself. If the background thread is laying out a message just then it
+ * waits for it, rather than preparing the following message and showing the two out of order.
+ */
+public class MessagePrefetcher implements Runnable {
+  /**
+   * Turns a selected message into a positioned message. Called with the prefetcher's prepare lock
+   * held, usually on the background thread, so calls never overlap and come in the order selected.
+   */
+  public interface LayoutFunction {
+    /**
+     * Lays out a message.
+     *
+     * @param text message text, ordered
+     * @param messages version of the messages it was selected from
+     * @param index index of the message in messages
+     * @return the positioned message
+     */
+    FST.MessageState layout(String text, MessageSet messages, int index);
+  }
+
+  // How long to sleep when there is nothing to prepare before looking again
+  private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private static final class Entry {
+    private final FST.MessageState state;
+    private final long generation;
+    private final int position;
+    private final MessageSet positionSet;
+
+    Entry(FST.MessageState state, long generation, int position, MessageSet positionSet) {
+      this.state = state;
+      this.generation = generation;
+      this.position = position;
+      this.positionSet = positionSet;
+    }
+  }
+
+  private final MessageSelector selector;
+  private final LayoutFunction layout;
+  // Filled by whichever thread prepares, under the prepare lock, and emptied by take() only
+  private final RingBuffer<Entry> ring;
+  // Guards selection, layout and adding to the ring
+  private final Object lock = new Object();
+  // Generation the selector's position was last stepped back for
+  private long preparedGeneration = 0;
+  // Last exception from the background thread, thrown by take() once the ring is empty
+  private RuntimeException failure;
+  // Guards generation and taken, only held for a moment
+  private final Object takeLock = new Object();
+  private volatile long generation = 0;
+  // Last message taken, its position is where sequential order resumes after invalidate
+  private Entry taken;
+  private volatile boolean running = false;
+  private volatile Thread thread;
+
+  /**
+   * Creates a prefetcher.
+   *
+   * @param selector source of message text, only to be used through this prefetcher from now on
+   * @param layout turns message text into a positioned message, called on the background thread
+   * @param capacity number of messages to keep ready
+   */
+  public MessagePrefetcher(
+      MessageSelector selector, Function<String, FST.MessageState> layout, int capacity) {
+    this(selector, (text, messages, index) -> layout.apply(text), capacity);
+  }
+
+  /**
+   * Creates a prefetcher whose layout is told which message it is laying out.
+   *
+   * @param selector source of message text, only to be used through this prefetcher from now on
+   * @param layout turns a selected message into a positioned message
+   * @param capacity number of messages to keep ready
+   */
+  public MessagePrefetcher(MessageSelector selector, LayoutFunction layout, int capacity) {
+    this.selector = selector;
+    this.layout = layout;
+    this.ring = new RingBuffer<>(capacity);
+    this.taken = new Entry(null, 0, selector.getPosition(), selector.getPositionSet());
+  }
+
+  /** Starts filling the buffer in the background. */
+  public synchronized void start() {
+    if (thread == null) {
+      running = true;
+      thread = new Thread(this, "FST-message-prefetch");
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  /** Stops the background thread; {@link #take} keeps working by preparing messages itself. */
+  public synchronized void stop() {
+    running = false;
+    if (thread != null) {
+      thread.interrupt();
+      thread = null;
+    }
+  }
+
+  /**
+   * Takes the next prepared message, preparing one on the calling thread if none is ready. Must
+   * only be called from one thread at a time. Exceptions from the layout, on this thread or on the
+   * background thread, are thrown to the caller.
+   *
+   * @return the next message, or null if there are no messages
+   */
+  public FST.MessageState take() {
+    Entry e = poll();
+    if (e == null) {
+      synchronized (lock) {
+        // The background thread may have added one while this waited for the lock
+        e = poll();
+        if (e == null && failure != null) {
+          RuntimeException ex = failure;
+          failure = null;
+          throw ex;
+        }
+        while (e == null) {
+          Entry prepared = prepare();
+          if (prepared == null) {
+            break;
+          }
+          // Prepared again if invalidated meanwhile
+          if (accept(prepared)) {
+            e = prepared;
+          }
+        }
+      }
+    }
+    wake();
+    return e == null ? null : e.state;
+  }
+
+  /**
+   * Discards prepared messages, they will be prepared again from the current inputs. Does not wait
+   * for a message being prepared.
+   */
+  public void invalidate() {
+    synchronized (takeLock) {
+      generation++;
+    }
+    wake();
+  }
+
+  /**
+   * Returns the sequential position of the last message taken, ignoring messages prepared ahead.
+   *
+   * @return index in the current messages of the last message shown in sequential order, or -1
+   *     before the first
+   */
+  public int getPosition() {
+    Entry e;
+    synchronized (takeLock) {
+      e = taken;
+    }
+    return selector.mapPosition(e.position, e.positionSet);
+  }
+
+  int getReady() {
+    return ring.size();
+  }
+
+  @Override
+  public void run() {
+    while (running && !Thread.currentThread().isInterrupted()) {
+      if (ring.isFull()) {
+        LockSupport.park(this);
+        continue;
+      }
+      long started = generation;
+      Entry e;
+      synchronized (lock) {
+        try {
+          e = prepare();
+        } catch (RuntimeException ex) {
+          // Reported by take() after the messages ready before it, then wait until something
+          // changes
+          failure = ex;
+          e = null;
+        }
+        if (e != null) {
+          // Only added to under the lock, so the space checked above is still there
+          ring.offer(e);
+        }
+      }
+      if (e == null) {
+        while (running && generation == started && !Thread.currentThread().isInterrupted()) {
+          LockSupport.parkNanos(this, IDLE_NANOS);
+        }
+      }
+    }
+  }
+
+  /**
+   * Selects and lays out the next message, first stepping the position back to the last message
+   * taken if there was an invalidate since the last call. Called with the prepare lock held.
+   */
+  private Entry prepare() {
+    long current;
+    Entry last;
+    synchronized (takeLock) {
+      current = generation;
+      last = taken;
+    }
+    if (current != preparedGeneration) {
+      selector.setPosition(last.position, last.positionSet);
+      preparedGeneration = current;
+    }
+    String text = selector.getNextMessage();
+    if (text == null) {
+      return null;
+    }
+    FST.MessageState state = layout.layout(text, selector.getLastSet(), selector.getLastIndex());
+    return new Entry(state, current, selector.getPosition(), selector.getPositionSet());
+  }
+
+  /** Pops ready messages until one of the current generation, skipping older ones. */
+  private Entry poll() {
+    for (Entry e = ring.poll(); e != null; e = ring.poll()) {
+      if (accept(e)) {
+        return e;
+      }
+    }
+    return null;
+  }
+
+  /** Records a message as taken if it belongs to the current generation. */
+  private boolean accept(Entry e) {
+    synchronized (takeLock) {
+      if (e.generation != generation) {
+        return false;
+      }
+      taken = e;
+      return true;
+    }
+  }
+
+  private void wake() {
+    Thread t = thread;
+    if (t != null) {
+      LockSupport.unpark(t);
+    }
+  }
+}
@@ -1,13 +1,43 @@
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntUnaryOperator;
 
 /**
  * Handles message selection and ordering logic. Encapsulates the complexity of selecting and
  * transforming messages.
+ *
+ * <p>Each message has a weight kept in the {@link MessageSet}: one of weight 3 is picked three
+ * times as often in random order as one of weight 1, and one of weight 0 is never shown. Random
+ * picks go through an {@link AliasTable}, so they take constant time for any list size. The weights
+ * are read once per version of the messages, into the table and a bitset of the enabled messages
+ * that every order checks. For a large list they are read in the background; until they are ready
+ * messages are picked uniformly, still skipping disabled ones.
+ *
+ * <p>Besides RANDOM and SEQUENTIAL, SHUFFLE shows every message once in random order before any
+ * comes round again, see {@link ShuffleBag}, and NO_REPEAT picks at random but never picks one of
+ * the last K messages shown, see {@link RepeatWindow}. K is {@link #REPEAT_WINDOW}, clamped to half
+ * the enabled messages so that a short list is not shown in a fixed cycle: 3 messages give K = 1,
+ * so only the message just shown is kept back, and a single message is shown every time. NO_REPEAT
+ * follows the weights by trying a few weighted picks and then falls back to picking uniformly among
+ * the messages not kept back, so it is exact when the enabled messages weigh the same. Both take
+ * constant time per pick. When the list is edited, both follow the messages to their new indices,
+ * so a round or the window carries on where it was; that takes time proportional to the list size,
+ * once per edit. SHUFFLE ignores weights other than 0.
+ *
+ * <p>The messages are held as an immutable {@link MessageSet} published through a volatile field,
+ * so a selection reads one version from start to end without taking a lock, whatever edits are
+ * published meanwhile. The sequential position is kept with the version it belongs to and mapped to
+ * the current one before it is used.
+ *
+ * <p>When neither word nor letter order is random, the ordered text of a message never changes, so
+ * it is kept in a {@link TransformCache} for the current messages and orders. Changing the messages
+ * or either order empties it on the next selection.
+ *
+ * <p>Every random choice, of a message and of the order of its words and letters, is drawn from one
+ * stream given to the constructor, so a seeded {@link RandomSource} repeats the same selections.
  */
 public class MessageSelector {
   // Word/Letter ordering modes
@@ -20,33 +50,152 @@ public class MessageSelector {
   // Message ordering modes
   public static final int RANDOM = 0;
   public static final int SEQUENTIAL = 1;
+  public static final int SHUFFLE = 2;
+  public static final int NO_REPEAT = 3;
 
-  private volatile List<String> messages;
+  // Lists up to this size get their weights read straight away, larger ones in the background
+  static final int SYNC_WEIGHTS = 10000;
+  // Most recent messages kept from coming up again in NO_REPEAT order
+  static final int REPEAT_WINDOW = 16;
+  // Weighted picks tried in NO_REPEAT order before picking uniformly among the others
+  private static final int REPEAT_TRIES = 8;
+  // Uniform picks tried while the weights are not ready before giving up on a disabled message
+  private static final int UNIFORM_TRIES = 16;
+  // Ordered messages kept while the word and letter orders are not random
+  static final int TRANSFORM_CACHE_SIZE = 1024;
+  private static final ExecutorService WEIGHT_BUILDER =
+      Executors.newSingleThreadExecutor(
+          r -> {
+            Thread t = new Thread(r, "FST-message-weights");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+          });
+
+  /** A message list with its weights, or null weights while they are being read. */
+  private static final class Selection {
+    private final MessageSet messages;
+    // Null when not ready, or when every message has weight 1
+    private final AliasTable weights;
+    // Bit per message of weight above 0; null when not ready, or when every message is enabled
+    private final long[] enabled;
+    private final boolean ready;
+
+    Selection(MessageSet messages, AliasTable weights, long[] enabled, boolean ready) {
+      this.messages = messages;
+      this.weights = weights;
+      this.enabled = enabled;
+      this.ready = ready;
+    }
+
+    /** Returns whether a message can be shown, reading its weight only while not ready. */
+    boolean isEnabled(int index) {
+      if (!ready) {
+        return messages.getWeight(index) > 0;
+      }
+      return enabled == null || (enabled[index >>> 6] & (1L << index)) != 0;
+    }
+  }
+
+  private volatile Selection selection;
   private volatile int messageOrder;
   private volatile int wordOrder;
   private volatile int letterOrder;
   private int position = -1;
+  // Version of the messages the position belongs to
+  private MessageSet positionSet;
+  // Index and version of the last message selected in any order
+  private int lastIndex = -1;
+  private MessageSet lastSet;
+  // State of the SHUFFLE and NO_REPEAT orders, created on first use, and what they were made for
+  private ShuffleBag bag;
+  private MessageSet bagSet;
+  private RepeatWindow recent;
+  private Selection recentSelection;
+  private final TransformCache transforms = new TransformCache(TRANSFORM_CACHE_SIZE);
+  // Only used on the selecting thread
+  private final Random random;
 
   public MessageSelector(List<String> messages, int messageOrder, int wordOrder, int letterOrder) {
-    this.messages = messages;
+    this(
+        messages, messageOrder, wordOrder, letterOrder, RandomSource.unseeded().stream("messages"));
+  }
+
+  /**
+   * Creates a selector drawing its random choices from the given stream.
+   *
+   * @param messages the messages
+   * @param messageOrder message ordering mode
+   * @param wordOrder word ordering mode
+   * @param letterOrder letter ordering mode
+   * @param random source of every random choice, used only by the selecting thread
+   */
+  public MessageSelector(
+      List<String> messages, int messageOrder, int wordOrder, int letterOrder, Random random) {
+    this.random = random;
+    setMessages(messages);
+    this.positionSet = selection.messages;
     this.messageOrder = messageOrder;
     this.wordOrder = wordOrder;
     this.letterOrder = letterOrder;
   }
 
   /**
-   * Updates the list of messages.
+   * Updates the list of messages. The sequential position moves with the message it was at.
    *
-   * @param messages the new message list
+   * @param messages the new message list, copied unless it is a {@link MessageSet} or a store
    */
-  public void setMessages(List<String> messages) {
-    this.messages = messages;
+  public synchronized void setMessages(List<String> messages) {
+    MessageSet set = MessageSet.of(messages);
+    if (set.size() <= SYNC_WEIGHTS || !set.isWeighted()) {
+      selection = weigh(set);
+      return;
+    }
+    Selection pending = new Selection(set, null, null, false);
+    selection = pending;
+    WEIGHT_BUILDER.execute(
+        () -> {
+          Selection built = weigh(set);
+          synchronized (this) {
+            // Dropped if the list was replaced again meanwhile
+            if (selection == pending) {
+              selection = built;
+            }
+          }
+        });
+  }
+
+  private static Selection weigh(MessageSet messages) {
+    if (!messages.isWeighted()) {
+      return new Selection(messages, null, null, true);
+    }
+    double[] weights = new double[messages.size()];
+    long[] enabled = new long[(weights.length + 63) >>> 6];
+    boolean allEnabled = true;
+    for (int i = 0; i < weights.length; i++) {
+      weights[i] = messages.getWeight(i);
+      if (weights[i] > 0) {
+        enabled[i >>> 6] |= 1L << i;
+      } else {
+        allEnabled = false;
+      }
+    }
+    return new Selection(messages, new AliasTable(weights), allEnabled ? null : enabled, true);
+  }
+
+  /**
+   * Returns whether the weights of the current messages have been read.
+   *
+   * @return true once random picks follow the weights
+   */
+  boolean isWeighted() {
+    return selection.ready;
   }
 
   /**
    * Updates the message order mode.
    *
-   * @param messageOrder RANDOM or SEQUENTIAL
+   * @param messageOrder RANDOM, SEQUENTIAL, SHUFFLE or NO_REPEAT
    */
   public void setMessageOrder(int messageOrder) {
     this.messageOrder = messageOrder;
@@ -76,93 +225,248 @@ public class MessageSelector {
    * @return the next message, or null if no messages available
    */
   public String getNextMessage() {
-    if (messages.isEmpty()) {
+    // Read the version once, it can be replaced while a message is being selected
+    Selection current = selection;
+    MessageSet list = current.messages;
+    if (list.isEmpty()) {
       return null;
     }
 
-    int index = selectIndex();
-    String message = messages.get(index);
-    return orderMessage(message, wordOrder, letterOrder);
+    int index = selectIndex(current);
+    if (index < 0) {
+      return null;
+    }
+    lastIndex = index;
+    lastSet = list;
+    int words = wordOrder;
+    int letters = letterOrder;
+    if (words == FORWARD && letters == FORWARD) {
+      return list.get(index);
+    }
+    if (isDeterministic(words) && isDeterministic(letters)) {
+      return transforms.get(list, index, words, letters);
+    }
+    return orderMessage(list.get(index), words, letters, random);
   }
 
-  private int selectIndex() {
-    if (messageOrder == RANDOM) {
-      return (int) (Math.random() * messages.size());
-    } else {
-      position = (position + 1) % messages.size();
-      return position;
-    }
+  /**
+   * Returns whether an ordering mode always gives the same text.
+   *
+   * @param mode word or letter ordering mode
+   * @return false for the random modes
+   */
+  public static boolean isDeterministic(int mode) {
+    return mode != RND && mode != RND_INNER;
   }
 
   /**
-   * Orders a message according to word and letter ordering rules. Static helper for use outside of
-   * message selection (e.g., sample preview).
+   * Returns the number of selections whose ordered text came from the transform cache.
    *
-   * @param msg the message to order
-   * @param wordOrder word ordering mode
-   * @param letterOrder letter ordering mode
-   * @return ordered message
+   * @return hits so far, read on the selecting thread
    */
-  public static String orderMessage(String msg, int wordOrder, int letterOrder) {
-    if (wordOrder == FORWARD && letterOrder == FORWARD) {
-      return msg;
-    }
+  long getTransformHits() {
+    return transforms.getHits();
+  }
 
-    List<String> words;
-    if (wordOrder == JOIN) {
-      words = new ArrayList<>(1);
-      words.add(msg);
-    } else {
-      words = Arrays.asList(msg.split(" "));
-    }
+  /**
+   * Returns the number of selections that ordered the text and cached it.
+   *
+   * @return misses so far, read on the selecting thread
+   */
+  long getTransformMisses() {
+    return transforms.getMisses();
+  }
 
-    orderList(words, wordOrder);
+  /** Returns the index of the next message, or -1 if every message is disabled. */
+  private int selectIndex(Selection current) {
+    int size = current.messages.size();
+    boolean ready = current.ready;
+    AliasTable weights = current.weights;
+    if (ready && weights != null && weights.getTotal() == 0) {
+      return -1;
+    }
+    switch (messageOrder) {
+      case RANDOM:
+        return randomIndex(current, ready, random);
+      case SHUFFLE:
+        if (bag == null) {
+          bag = new ShuffleBag(size);
+        } else if (bagSet != current.messages) {
+          bag.remap(size, follow(bagSet, current.messages));
+        }
+        bagSet = current.messages;
+        for (int i = 0; i < size; i++) {
+          int index = bag.next(random);
+          if (current.isEnabled(index)) {
+            return index;
+          }
+        }
+        return -1;
+      case NO_REPEAT:
+        if (recent == null) {
+          recent = new RepeatWindow(REPEAT_WINDOW, size, current.enabled);
+        } else if (recentSelection != current) {
+          recent.remap(size, current.enabled, follow(recentSelection.messages, current.messages));
+        }
+        recentSelection = current;
+        // At most half the enabled messages are kept back, so a weighted pick is rarely rejected
+        recent.setLimit((recent.getFree() + recent.size()) / 2);
+        int index = notRecentIndex(current);
+        if (index >= 0) {
+          recent.add(index);
+        }
+        return index;
+      default:
+        if (positionSet != current.messages) {
+          position = current.messages.mapIndex(positionSet, position);
+          positionSet = current.messages;
+        }
+        for (int i = 0; i < size; i++) {
+          position = (position + 1) % size;
+          if (current.isEnabled(position)) {
+            return position;
+          }
+        }
+        return -1;
+    }
+  }
 
-    if (letterOrder != FORWARD) {
-      for (int i = 0; i < words.size(); i++) {
-        char[] chars = words.get(i).toCharArray();
-        List<Character> letters = new ArrayList<>(chars.length);
-        for (Character c : chars) {
-          letters.add(c);
+  /** Picks an index outside the repeat window, by weight if it can, or -1 if there is none. */
+  private int notRecentIndex(Selection current) {
+    if (current.ready && current.weights != null) {
+      for (int i = 0; i < REPEAT_TRIES; i++) {
+        int index = current.weights.sample(random);
+        if (!recent.contains(index)) {
+          return index;
         }
-        orderList(letters, letterOrder);
-        words.set(i, join(letters, ""));
       }
     }
-
-    return join(words, " ");
-  }
-
-  private static void orderList(List list, int mode) {
-    if (list.size() > 1) {
-      switch (mode) {
-        case REVERSE:
-          Collections.reverse(list);
-          break;
-        case RND:
-          Collections.shuffle(list);
-          break;
-        case RND_INNER:
-          if (list.size() > 3) {
-            Collections.shuffle(list.subList(1, list.size() - 1));
-          }
-          break;
-        default:
-          break;
+    // Every free index is enabled once the weights are ready
+    for (int i = 0; i < UNIFORM_TRIES; i++) {
+      int index = recent.next(random);
+      if (index < 0 || current.isEnabled(index)) {
+        return index;
       }
     }
+    return -1;
+  }
+
+  /** Maps indices of one version of the messages to another, or to -1 if the message is gone. */
+  private static IntUnaryOperator follow(MessageSet from, MessageSet to) {
+    return index -> {
+      int mapped = to.mapIndex(from, index);
+      return mapped >= 0 && to.get(mapped).equals(from.get(index)) ? mapped : -1;
+    };
   }
 
-  private static String join(Collection collection, String delimiter) {
-    StringBuilder buffer = new StringBuilder();
-    Iterator iter = collection.iterator();
-    if (iter.hasNext()) {
-      buffer.append(iter.next());
-      while (iter.hasNext()) {
-        buffer.append(delimiter);
-        buffer.append(iter.next());
+  /** Picks an index by weight, or -1 if every message is disabled. */
+  private static int randomIndex(Selection current, boolean ready, Random rnd) {
+    int size = current.messages.size();
+    if (ready) {
+      return current.weights == null ? rnd.nextInt(size) : current.weights.sample(rnd);
+    }
+    for (int i = 0; i < UNIFORM_TRIES; i++) {
+      int index = rnd.nextInt(size);
+      if (current.isEnabled(index)) {
+        return index;
       }
     }
-    return buffer.toString();
+    return -1;
+  }
+
+  /**
+   * Returns the index of the message last returned by {@link #getNextMessage}, in any order.
+   *
+   * @return index in {@link #getLastSet}, or -1 before the first selection
+   */
+  int getLastIndex() {
+    return lastIndex;
+  }
+
+  /**
+   * Returns the version of the messages {@link #getLastIndex} belongs to.
+   *
+   * @return the version, or null before the first selection
+   */
+  MessageSet getLastSet() {
+    return lastSet;
+  }
+
+  /**
+   * Returns the index of the last message selected in sequential order.
+   *
+   * @return last sequential index, or -1 before the first selection
+   */
+  int getPosition() {
+    return position;
+  }
+
+  /**
+   * Moves the sequential position, e.g. to hand out again messages selected ahead of time that were
+   * never shown.
+   *
+   * @param position index of the message before the next one to select
+   */
+  void setPosition(int position) {
+    setPosition(position, selection.messages);
+  }
+
+  /**
+   * Moves the sequential position to an index of a given version of the messages; it is mapped to
+   * the current version before the next selection.
+   *
+   * @param position index of the message before the next one to select
+   * @param messages version the index belongs to
+   */
+  void setPosition(int position, MessageSet messages) {
+    this.position = position;
+    this.positionSet = messages;
+  }
+
+  /**
+   * Returns the version of the messages {@link #getPosition} belongs to.
+   *
+   * @return the version, not necessarily the current one
+   */
+  MessageSet getPositionSet() {
+    return positionSet;
+  }
+
+  /**
+   * Maps a position of an earlier version of the messages to the current version.
+   *
+   * @param position index in messages, or -1
+   * @param messages version the index belongs to
+   * @return index in the current messages, or -1
+   */
+  int mapPosition(int position, MessageSet messages) {
+    return selection.messages.mapIndex(messages, position);
+  }
+
+  /**
+   * Orders a message according to word and letter ordering rules. Static helper for use outside of
+   * message selection (e.g., sample preview).
+   *
+   * @param msg the message to order
+   * @param wordOrder word ordering mode
+   * @param letterOrder letter ordering mode
+   * @return ordered message
+   */
+  public static String orderMessage(String msg, int wordOrder, int letterOrder) {
+    return orderMessage(msg, wordOrder, letterOrder, ThreadLocalRandom.current());
+  }
+
+  /**
+   * Orders a message according to word and letter ordering rules, drawing random orders from the
+   * given source so results can be reproduced.
+   *
+   * @param msg the message to order
+   * @param wordOrder word ordering mode
+   * @param letterOrder letter ordering mode
+   * @param rnd source of randomness for the RND and RND_INNER modes
+   * @return ordered message
+   */
+  public static String orderMessage(String msg, int wordOrder, int letterOrder, Random rnd) {
+    return MessageTransformer.transform(msg, wordOrder, letterOrder, rnd);
   }
 }
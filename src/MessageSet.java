@@ -0,0 +1,226 @@
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One version of the message list. A set never changes once made; the editor publishes an edit by
+ * making a new set and handing it to {@link FST#setMessages}, so the flash loop always reads a
+ * whole list, never one half way through an edit. Each set has a version number, higher for later
+ * sets, and {@link #mapIndex} finds where a message of an earlier version has moved to in this one.
+ *
+ * <p>Every message has a weight, how often it is picked in random order relative to the others. It
+ * is 1 unless given, and 0 keeps a message in the list without ever showing it. The weights are
+ * kept beside the text, which is shown exactly as written.
+ */
+public final class MessageSet extends AbstractList<String> implements RandomAccess {
+  // How far from its old index a message is looked for when mapping positions between versions
+  static final int MAP_WINDOW = 64;
+  private static final AtomicLong VERSIONS = new AtomicLong();
+
+  private final List<String> items;
+  // Weight per message, or null when every message has weight 1
+  private final double[] weights;
+  private final long version;
+
+  private MessageSet(List<String> items, double[] weights) {
+    this.items = items;
+    this.weights = weights;
+    this.version = VERSIONS.incrementAndGet();
+  }
+
+  /**
+   * Returns a set holding the given messages. A message store is read-only and is used as it is,
+   * any other list is copied.
+   *
+   * @param messages messages in order, not null
+   * @return the set, the same instance if messages already is one
+   */
+  public static MessageSet of(List<String> messages) {
+    if (messages instanceof MessageSet) {
+      return (MessageSet) messages;
+    }
+    if (messages instanceof MappedMessageList) {
+      return new MessageSet(messages, null);
+    }
+    return new MessageSet(List.copyOf(messages), null);
+  }
+
+  /**
+   * Returns a set holding the given messages and weights, both copied.
+   *
+   * @param messages messages in order, not null
+   * @param weights weight of each message, or null if every message has weight 1
+   * @return the set
+   */
+  public static MessageSet of(List<String> messages, double[] weights) {
+    if (weights != null && weights.length != messages.size()) {
+      throw new IllegalArgumentException(
+          weights.length + " weights for " + messages.size() + " messages");
+    }
+    List<String> items =
+        messages instanceof MessageSet
+            ? ((MessageSet) messages).items
+            : messages instanceof MappedMessageList ? messages : List.copyOf(messages);
+    return new MessageSet(items, isUniform(weights) ? null : weights.clone());
+  }
+
+  private static boolean isUniform(double[] weights) {
+    if (weights != null) {
+      for (double weight : weights) {
+        if (weight != 1.0) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns how often a message is picked relative to the others.
+   *
+   * @param index message index
+   * @return its weight, 0 if it is never shown
+   */
+  public double getWeight(int index) {
+    return weights == null ? 1.0 : weights[index];
+  }
+
+  /**
+   * Returns whether any message has a weight other than 1.
+   *
+   * @return false if every message is picked equally often
+   */
+  public boolean isWeighted() {
+    return weights != null;
+  }
+
+  /**
+   * Returns a new version with the weight of one message changed.
+   *
+   * @param index message index
+   * @param weight new weight, 0 or more
+   * @return the new version
+   */
+  public MessageSet withWeight(int index, double weight) {
+    double[] changed = weights == null ? filled(size()) : weights.clone();
+    changed[index] = weight;
+    return of(this, changed);
+  }
+
+  /**
+   * Returns a new version holding edited text, where every line keeps the weight of the message it
+   * replaces. Lines before and after the edited run keep theirs; within it a line keeps the weight
+   * of the message at its place if the run kept its length, otherwise that of a removed message
+   * with the same text, and any other line has weight 1.
+   *
+   * @param lines edited messages in order
+   * @return the new version
+   */
+  public MessageSet edit(List<String> lines) {
+    if (weights == null) {
+      return of(lines);
+    }
+    int max = Math.min(size(), lines.size());
+    int prefix = 0;
+    while (prefix < max && get(prefix).equals(lines.get(prefix))) {
+      prefix++;
+    }
+    int suffix = 0;
+    while (suffix < max - prefix
+        && get(size() - 1 - suffix).equals(lines.get(lines.size() - 1 - suffix))) {
+      suffix++;
+    }
+    double[] edited = filled(lines.size());
+    System.arraycopy(weights, 0, edited, 0, prefix);
+    System.arraycopy(weights, size() - suffix, edited, lines.size() - suffix, suffix);
+    int removed = size() - prefix - suffix;
+    int added = lines.size() - prefix - suffix;
+    if (removed == added) {
+      System.arraycopy(weights, prefix, edited, prefix, added);
+    } else {
+      Map<String, ArrayDeque<Double>> byText = new HashMap<>();
+      for (int i = prefix; i < prefix + removed; i++) {
+        byText.computeIfAbsent(get(i), text -> new ArrayDeque<>()).add(weights[i]);
+      }
+      for (int i = prefix; i < prefix + added; i++) {
+        ArrayDeque<Double> same = byText.get(lines.get(i));
+        if (same != null && !same.isEmpty()) {
+          edited[i] = same.poll();
+        }
+      }
+    }
+    return of(lines, edited);
+  }
+
+  private static double[] filled(int size) {
+    double[] ones = new double[size];
+    Arrays.fill(ones, 1.0);
+    return ones;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the message store the set reads from.
+   *
+   * @return the store, or null if the messages are held in memory
+   */
+  public MappedMessageList getStore() {
+    return items instanceof MappedMessageList ? (MappedMessageList) items : null;
+  }
+
+  /**
+   * Maps an index of an earlier version to this one. The message at that index is looked for near
+   * the same index, so lines added or removed before it are followed. If it is gone but the message
+   * after it is still there, the result is the index just before that one, so a walk through the
+   * list carries on with the message that followed it. If both are gone the index is kept.
+   *
+   * @param from version the index belongs to
+   * @param index index in from, or -1 for before the first message
+   * @return index in this set, or -1 for before the first message
+   */
+  public int mapIndex(MessageSet from, int index) {
+    if (from == this || index < 0) {
+      return Math.min(index, size() - 1);
+    }
+    int found = index < from.size() ? find(from.get(index), index) : -1;
+    if (found >= 0) {
+      return found;
+    }
+    int next = index + 1 < from.size() ? find(from.get(index + 1), index) : -1;
+    if (next >= 0) {
+      return next - 1;
+    }
+    return Math.min(index, size() - 1);
+  }
+
+  /** Index of message within MAP_WINDOW of near, nearest first, or -1. */
+  private int find(String message, int near) {
+    for (int d = 0; d <= MAP_WINDOW; d++) {
+      if (near - d >= 0 && near - d < size() && message.equals(get(near - d))) {
+        return near - d;
+      }
+      if (d > 0 && near + d < size() && message.equals(get(near + d))) {
+        return near + d;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public String get(int index) {
+    return items.get(index);
+  }
+
+  @Override
+  public int size() {
+    return items.size();
+  }
+}
@@ -0,0 +1,170 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Allocation-free engine behind {@link MessageSelector#orderMessage}. Words and letters are
+ * reordered in place on a per-thread char buffer, so the only allocation per call is the returned
+ * String. The result, including the order random numbers are drawn in, matches splitting on {@code
+ * " "}, ordering with {@code Collections.reverse}/{@code Collections.shuffle} and joining again.
+ */
+final class MessageTransformer {
+  /** Reusable per-thread buffers, grown on demand and never shrunk. */
+  private static final class Scratch {
+    private char[] src = new char[64];
+    private char[] out = new char[64];
+    private int[] wordStart = new int[16];
+    private int[] wordEnd = new int[16];
+    private int[] order = new int[16];
+  }
+
+  private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+  private MessageTransformer() {
+    // Static helpers only
+  }
+
+  /**
+   * Orders a message's words and then each word's letters.
+   *
+   * @param msg the message to order
+   * @param wordOrder word ordering mode
+   * @param letterOrder letter ordering mode
+   * @param rnd source of randomness for the RND and RND_INNER modes
+   * @return ordered message
+   */
+  static String transform(String msg, int wordOrder, int letterOrder, Random rnd) {
+    if (wordOrder == MessageSelector.FORWARD && letterOrder == MessageSelector.FORWARD) {
+      return msg;
+    }
+    Scratch s = SCRATCH.get();
+    int len = msg.length();
+    if (s.src.length < len) {
+      s.src = new char[Math.max(len, s.src.length * 2)];
+      s.out = new char[s.src.length];
+    }
+    char[] src = s.src;
+    msg.getChars(0, len, src, 0);
+
+    int words = wordOrder == MessageSelector.JOIN ? join(s, len) : split(s, src, len);
+    int[] order = s.order;
+    for (int i = 0; i < words; i++) {
+      order[i] = i;
+    }
+    orderInts(order, words, wordOrder, rnd);
+
+    char[] out = s.out;
+    int pos = 0;
+    for (int i = 0; i < words; i++) {
+      if (i > 0) {
+        out[pos++] = ' ';
+      }
+      int start = s.wordStart[order[i]];
+      int wordLen = s.wordEnd[order[i]] - start;
+      System.arraycopy(src, start, out, pos, wordLen);
+      orderChars(out, pos, wordLen, letterOrder, rnd);
+      pos += wordLen;
+    }
+    return new String(out, 0, pos);
+  }
+
+  private static int join(Scratch s, int len) {
+    s.wordStart[0] = 0;
+    s.wordEnd[0] = len;
+    return 1;
+  }
+
+  /** Finds word boundaries exactly as {@code String.split(" ")} would. */
+  private static int split(Scratch s, char[] src, int len) {
+    int words = 0;
+    int start = 0;
+    for (int i = 0; i <= len; i++) {
+      if (i == len || src[i] == ' ') {
+        if (words == s.wordStart.length) {
+          s.wordStart = Arrays.copyOf(s.wordStart, words * 2);
+          s.wordEnd = Arrays.copyOf(s.wordEnd, words * 2);
+          s.order = new int[words * 2];
+        }
+        s.wordStart[words] = start;
+        s.wordEnd[words] = i;
+        words++;
+        start = i + 1;
+      }
+    }
+    // split only drops trailing empty strings when there was at least one separator
+    if (words > 1) {
+      while (words > 0 && s.wordStart[words - 1] == s.wordEnd[words - 1]) {
+        words--;
+      }
+    }
+    return words;
+  }
+
+  private static void orderInts(int[] a, int size, int mode, Random rnd) {
+    if (size > 1) {
+      switch (mode) {
+        case MessageSelector.REVERSE:
+          for (int i = 0, j = size - 1; i < j; i++, j--) {
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+          }
+          break;
+        case MessageSelector.RND:
+          shuffleInts(a, 0, size, rnd);
+          break;
+        case MessageSelector.RND_INNER:
+          if (size > 3) {
+            shuffleInts(a, 1, size - 2, rnd);
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  private static void orderChars(char[] a, int offset, int size, int mode, Random rnd) {
+    if (size > 1) {
+      switch (mode) {
+        case MessageSelector.REVERSE:
+          for (int i = offset, j = offset + size - 1; i < j; i++, j--) {
+            char t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+          }
+          break;
+        case MessageSelector.RND:
+          shuffleChars(a, offset, size, rnd);
+          break;
+        case MessageSelector.RND_INNER:
+          if (size > 3) {
+            shuffleChars(a, offset + 1, size - 2, rnd);
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /** Same swaps, drawn in the same order, as {@code Collections.shuffle(list, rnd)}. */
+  private static void shuffleInts(int[] a, int offset, int size, Random rnd) {
+    for (int i = size; i > 1; i--) {
+      int x = offset + i - 1;
+      int y = offset + rnd.nextInt(i);
+      int t = a[x];
+      a[x] = a[y];
+      a[y] = t;
+    }
+  }
+
+  private static void shuffleChars(char[] a, int offset, int size, Random rnd) {
+    for (int i = size; i > 1; i--) {
+      int x = offset + i - 1;
+      int y = offset + rnd.nextInt(i);
+      char t = a[x];
+      a[x] = a[y];
+      a[y] = t;
+    }
+  }
+}
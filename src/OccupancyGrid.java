@@ -0,0 +1,127 @@
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * Records which parts of a screen are covered by flashes, so a new flash can be placed where it
+ * does not overlap any other. The area is split into square cells, one bit each, kept as a bitset
+ * per row; a box covers every cell it touches. Checking or marking a box costs one masked word
+ * operation per row and 64 cells, well under a microsecond for any text box. Not thread safe; the
+ * overlay only uses it on the event thread.
+ */
+public final class OccupancyGrid {
+  private final Rectangle area;
+  private final int cellSize;
+  private final int columns;
+  private final int rowCount;
+  private final long[][] rows;
+
+  /**
+   * Creates an empty grid.
+   *
+   * @param area screen area covered, in screen coordinates
+   * @param cellSize width and height of a cell in pixels
+   */
+  public OccupancyGrid(Rectangle area, int cellSize) {
+    if (cellSize <= 0) {
+      throw new IllegalArgumentException("Cell size " + cellSize);
+    }
+    this.area = new Rectangle(area);
+    this.cellSize = cellSize;
+    this.columns = Math.max(1, (area.width + cellSize - 1) / cellSize);
+    this.rowCount = Math.max(1, (area.height + cellSize - 1) / cellSize);
+    this.rows = new long[rowCount][(columns + 63) >>> 6];
+  }
+
+  /**
+   * Marks a box as covered if none of its cells are. Parts outside the area count as the nearest
+   * edge cells.
+   *
+   * @param box box in screen coordinates
+   * @return true if the box was free and is now covered
+   */
+  public boolean tryOccupy(Rectangle box) {
+    if (!isFree(box)) {
+      return false;
+    }
+    update(box, true);
+    return true;
+  }
+
+  /**
+   * Returns whether no cell touched by a box is covered.
+   *
+   * @param box box in screen coordinates
+   * @return true if the box overlaps no covered cell
+   */
+  public boolean isFree(Rectangle box) {
+    int firstCol = column(box.x);
+    int lastCol = column(box.x + box.width - 1);
+    int firstRow = row(box.y);
+    int lastRow = row(box.y + box.height - 1);
+    if (box.isEmpty() || firstCol > lastCol || firstRow > lastRow) {
+      return true;
+    }
+    for (int r = firstRow; r <= lastRow; r++) {
+      long[] words = rows[r];
+      for (int w = firstCol >>> 6; w <= lastCol >>> 6; w++) {
+        if ((words[w] & mask(w, firstCol, lastCol)) != 0) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Clears the cells of a box that was occupied.
+   *
+   * @param box box in screen coordinates, as passed to {@link #tryOccupy}
+   */
+  public void release(Rectangle box) {
+    update(box, false);
+  }
+
+  /** Clears every cell. */
+  public void clear() {
+    for (long[] words : rows) {
+      Arrays.fill(words, 0L);
+    }
+  }
+
+  private void update(Rectangle box, boolean occupied) {
+    int firstCol = column(box.x);
+    int lastCol = column(box.x + box.width - 1);
+    int firstRow = row(box.y);
+    int lastRow = row(box.y + box.height - 1);
+    if (box.isEmpty() || firstCol > lastCol || firstRow > lastRow) {
+      return;
+    }
+    for (int r = firstRow; r <= lastRow; r++) {
+      long[] words = rows[r];
+      for (int w = firstCol >>> 6; w <= lastCol >>> 6; w++) {
+        long mask = mask(w, firstCol, lastCol);
+        words[w] = occupied ? words[w] | mask : words[w] & ~mask;
+      }
+    }
+  }
+
+  /** Bits of word w that lie between two columns, inclusive. */
+  private static long mask(int w, int firstCol, int lastCol) {
+    int from = Math.max(firstCol, w << 6) & 63;
+    int to = Math.min(lastCol, (w << 6) + 63) & 63;
+    return (-1L << from) & (-1L >>> (63 - to));
+  }
+
+  /** Column of a screen x, clamped to the grid so boxes partly outside still count. */
+  private int column(int x) {
+    return clamp(Math.floorDiv(x - area.x, cellSize), columns);
+  }
+
+  private int row(int y) {
+    return clamp(Math.floorDiv(y - area.y, cellSize), rowCount);
+  }
+
+  private static int clamp(int cell, int count) {
+    return Math.max(0, Math.min(count - 1, cell));
+  }
+}
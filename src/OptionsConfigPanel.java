@@ -3,8 +3,10 @@ import java.awt.Font;
 import java.awt.GraphicsEnvironment;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.util.List;
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.JColorChooser;
+import javax.swing.SwingWorker;
 import javax.swing.text.JTextComponent;
 
 /**
@@ -12,6 +14,8 @@ import javax.swing.text.JTextComponent;
  */
 public class OptionsConfigPanel extends javax.swing.JPanel {
   private static final String SAMPLE_TEXT = "FST Sample Text";
+  // Families added to the list per event, so a long list never stalls the event thread
+  private static final int FONT_CHUNK = 200;
   public static String sampleText;
 
   protected static final KeyAdapter DIGITS_ONLY =
@@ -43,32 +47,78 @@ public class OptionsConfigPanel extends javax.swing.JPanel {
     sampleText =
         MessageSelector.orderMessage(SAMPLE_TEXT, FST.getWordOrder(), FST.getLetterOrder());
 
+    Settings settings = FST.settings();
     sizeField.addKeyListener(DIGITS_ONLY);
-    GraphicsEnvironment gEnv = GraphicsEnvironment.getLocalGraphicsEnvironment();
-    familyCombo.setModel(new DefaultComboBoxModel<>(gEnv.getAvailableFontFamilyNames()));
-    Color o = FST.fontColour;
+    // Only the current family until the installed ones have been loaded in the background
+    familyCombo.setModel(new DefaultComboBoxModel<>(new String[] {settings.getFont().getFamily()}));
+    loadFontFamilies();
+    Color o = settings.getColour();
     Color c = new Color(o.getRed(), o.getGreen(), o.getBlue());
     colorButton.setBackground(c);
-    familyCombo.setSelectedItem(FST.font.getFamily());
-    sizeField.setText(Integer.toString(FST.font.getSize()));
-    alphaSlider.setValue(FST.fontColour.getAlpha());
+    familyCombo.setSelectedItem(settings.getFont().getFamily());
+    sizeField.setText(Integer.toString(settings.getFont().getSize()));
+    alphaSlider.setValue(o.getAlpha());
 
     xMarginField.addKeyListener(DIGITS_ONLY);
     yMarginField.addKeyListener(DIGITS_ONLY);
     displayField.addKeyListener(DIGITS_ONLY);
     delayField.addKeyListener(DIGITS_ONLY);
 
-    xMarginField.setText(Integer.toString(FST.marginX));
-    yMarginField.setText(Integer.toString(FST.marginY));
-    displayField.setText(Integer.toString(FST.display));
-    delayField.setText(Integer.toString(FST.delay));
-    placementX.setSelectedIndex(FST.placementX);
-    placementY.setSelectedIndex(FST.placementY);
-    styleCombo.setSelectedIndex(FST.font.getStyle());
-    wordOrderCombo.setSelectedIndex(FST.getWordOrder());
-    letterOrderCombo.setSelectedIndex(FST.getLetterOrder());
-    updatesCheckBox.setSelected(FST.checkUpdates);
-    minimizeCheckBox.setSelected(FST.configWindow == 2);
+    xMarginField.setText(Integer.toString(settings.getMarginX()));
+    yMarginField.setText(Integer.toString(settings.getMarginY()));
+    displayField.setText(Integer.toString(settings.getDisplay()));
+    delayField.setText(Integer.toString(settings.getDelay()));
+    placementX.setSelectedIndex(settings.getPlacementX());
+    placementY.setSelectedIndex(settings.getPlacementY());
+    styleCombo.setSelectedIndex(settings.getFont().getStyle());
+    wordOrderCombo.setSelectedIndex(settings.getWordOrder());
+    letterOrderCombo.setSelectedIndex(settings.getLetterOrder());
+    updatesCheckBox.setSelected(settings.isCheckUpdates());
+    minimizeCheckBox.setSelected(settings.getConfigWindow() == 2);
+  }
+
+  /**
+   * Fills the family list from the font cache, or from a scan of the installed fonts if they have
+   * changed, without blocking the event thread. Families are added in chunks around the current
+   * one, keeping the order of the scan, so the selection never changes.
+   */
+  private void loadFontFamilies() {
+    String current = FST.settings().getFont().getFamily();
+    FontFamilyCache cache =
+        new FontFamilyCache(FST.FONT_CACHE_FILE, FontFamilyCache.defaultFontDirs());
+    new SwingWorker<Void, String>() {
+      private boolean passedCurrent = false;
+
+      @Override
+      protected Void doInBackground() {
+        List<String> families =
+            cache.load(
+                () ->
+                    GraphicsEnvironment.getLocalGraphicsEnvironment()
+                        .getAvailableFontFamilyNames());
+        for (int i = 0; i < families.size(); i += FONT_CHUNK) {
+          publish(
+              families
+                  .subList(i, Math.min(families.size(), i + FONT_CHUNK))
+                  .toArray(new String[0]));
+        }
+        return null;
+      }
+
+      @Override
+      protected void process(List<String> chunk) {
+        DefaultComboBoxModel<String> model = (DefaultComboBoxModel<String>) familyCombo.getModel();
+        for (String family : chunk) {
+          if (family.equals(current)) {
+            passedCurrent = true;
+          } else if (passedCurrent) {
+            model.addElement(family);
+          } else {
+            model.insertElementAt(family, model.getIndexOf(current));
+          }
+        }
+      }
+    }.execute();
   }
 
   /**
@@ -593,44 +643,50 @@ public class OptionsConfigPanel extends javax.swing.JPanel {
 
   private void alphaSliderStateChanged(
       javax.swing.event.ChangeEvent evt) { // GEN-FIRST:event_alphaSliderStateChanged
-    Color o = FST.fontColour;
-    FST.fontColour = new Color(o.getRed(), o.getGreen(), o.getBlue(), alphaSlider.getValue());
+    int alpha = alphaSlider.getValue();
+    FST.update(
+        (s, b) -> {
+          Color o = s.getColour();
+          b.colour(new Color(o.getRed(), o.getGreen(), o.getBlue(), alpha));
+        });
     samplePanel1.repaint();
-    FST.settingsChanged();
   } // GEN-LAST:event_alphaSliderStateChanged
 
   private void colorButtonActionPerformed(
       java.awt.event.ActionEvent evt) { // GEN-FIRST:event_colorButtonActionPerformed
-    Color o = FST.fontColour;
+    Color o = FST.settings().getColour();
     Color c =
         JColorChooser.showDialog(
             this, "FST Font Color", new Color(o.getRed(), o.getGreen(), o.getBlue()));
     if (c != null) {
-      FST.fontColour = new Color(c.getRed(), c.getGreen(), c.getBlue(), o.getAlpha());
+      // Keeps the alpha current when the colour is published, not when the dialog opened
+      FST.update(
+          (s, b) ->
+              b.colour(new Color(c.getRed(), c.getGreen(), c.getBlue(), s.getColour().getAlpha())));
       colorButton.setBackground(c);
       samplePanel1.repaint();
-      FST.settingsChanged();
     }
   } // GEN-LAST:event_colorButtonActionPerformed
 
   private void fontListener(java.awt.event.ActionEvent evt) { // GEN-FIRST:event_fontListener
     try {
-      FST.font =
+      // Family, style and size change together
+      Font font =
           new Font(
               familyCombo.getSelectedItem().toString(),
               styleCombo.getSelectedIndex(),
               Integer.parseInt(sizeField.getText()));
+      FST.update((s, b) -> b.font(font));
       samplePanel1.repaint();
-      FST.settingsChanged();
     } catch (NumberFormatException ne) {
-      sizeField.setText(Integer.toString(FST.font.getSize()));
+      sizeField.setText(Integer.toString(FST.settings().getFont().getSize()));
     }
   } // GEN-LAST:event_fontListener
 
   private void xMarginFieldActionPerformed(
       java.awt.event.ActionEvent evt) { // GEN-FIRST:event_xMarginFieldActionPerformed
-    FST.marginX = integerFieldHandler(0, xMarginField, FST.marginY);
-    FST.settingsChanged();
+    int margin = integerFieldHandler(0, xMarginField, FST.settings().getMarginX());
+    FST.update((s, b) -> b.marginX(margin));
   } // GEN-LAST:event_xMarginFieldActionPerformed
 
   private void xMarginFieldFocusLost(
@@ -640,8 +696,8 @@ public class OptionsConfigPanel extends javax.swing.JPanel {
 
   private void yMarginFieldActionPerformed(
       java.awt.event.ActionEvent evt) { // GEN-FIRST:event_yMarginFieldActionPerformed
-    FST.marginY = integerFieldHandler(0, yMarginField, FST.marginY);
-    FST.settingsChanged();
+    int margin = integerFieldHandler(0, yMarginField, FST.settings().getMarginY());
+    FST.update((s, b) -> b.marginY(margin));
   } // GEN-LAST:event_yMarginFieldActionPerformed
 
   private void yMarginFieldFocusLost(
@@ -656,8 +712,8 @@ public class OptionsConfigPanel extends javax.swing.JPanel {
 
   private void delayFieldActionPerformed(
       java.awt.event.ActionEvent evt) { // GEN-FIRST:event_delayFieldActionPerformed
-    FST.delay = integerFieldHandler(0, delayField, FST.delay);
-    FST.settingsChanged();
+    int delay = integerFieldHandler(0, delayField, FST.settings().getDelay());
+    FST.update((s, b) -> b.delay(delay));
   } // GEN-LAST:event_delayFieldActionPerformed
 
   private void delayFieldFocusLost(
@@ -667,14 +723,14 @@ public class OptionsConfigPanel extends javax.swing.JPanel {
 
   private void placementXActionPerformed(
       java.awt.event.ActionEvent evt) { // GEN-FIRST:event_placementXActionPerformed
-    FST.placementX = placementX.getSelectedIndex();
-    FST.settingsChanged();
+    int placement = placementX.getSelectedIndex();
+    FST.update((s, b) -> b.placementX(placement));
   } // GEN-LAST:event_placementXActionPerformed
 
   private void placementYActionPerformed(
       java.awt.event.ActionEvent evt) { // GEN-FIRST:event_placementYActionPerformed
-    FST.placementY = placementY.getSelectedIndex();
-    FST.settingsChanged();
+    int placement = placementY.getSelectedIndex();
+    FST.update((s, b) -> b.placementY(placement));
   } // GEN-LAST:event_placementYActionPerformed
 
   private void sizeFieldFocusLost(
@@ -688,7 +744,6 @@ public class OptionsConfigPanel extends javax.swing.JPanel {
     sampleText =
         MessageSelector.orderMessage(SAMPLE_TEXT, FST.getWordOrder(), FST.getLetterOrder());
     samplePanel1.repaint();
-    FST.settingsChanged();
   } // GEN-LAST:event_wordOrderComboActionPerformed
 
   private void letterOrderComboActionPerformed(
@@ -697,30 +752,29 @@ public class OptionsConfigPanel extends javax.swing.JPanel {
     sampleText =
         MessageSelector.orderMessage(SAMPLE_TEXT, FST.getWordOrder(), FST.getLetterOrder());
     samplePanel1.repaint();
-    FST.settingsChanged();
   } // GEN-LAST:event_letterOrderComboActionPerformed
 
   private void displayFieldActionPerformed(
       java.awt.event.ActionEvent evt) { // GEN-FIRST:event_displayFieldActionPerformed
-    FST.display = integerFieldHandler(1, displayField, FST.display);
-    FST.settingsChanged();
+    int display = integerFieldHandler(1, displayField, FST.settings().getDisplay());
+    FST.update((s, b) -> b.display(display));
   } // GEN-LAST:event_displayFieldActionPerformed
 
   private void minimizeCheckBoxActionPerformed(
       java.awt.event.ActionEvent evt) { // GEN-FIRST:event_minimizeCheckBoxActionPerformed
-    FST.configWindow = minimizeCheckBox.isSelected() ? 2 : 1;
-    FST.settingsChanged();
+    int window = minimizeCheckBox.isSelected() ? 2 : 1;
+    FST.update((s, b) -> b.configWindow(window));
   } // GEN-LAST:event_minimizeCheckBoxActionPerformed
 
   private void updatesCheckBoxActionPerformed(
       java.awt.event.ActionEvent evt) { // GEN-FIRST:event_updatesCheckBoxActionPerformed
-    FST.checkUpdates = updatesCheckBox.isSelected();
-    FST.settingsChanged();
+    boolean check = updatesCheckBox.isSelected();
+    FST.update((s, b) -> b.checkUpdates(check));
   } // GEN-LAST:event_updatesCheckBoxActionPerformed
 
   private void alphaSliderMouseReleased(
       java.awt.event.MouseEvent evt) { // GEN-FIRST:event_alphaSliderMouseReleased
-    FST.settingsChanged();
+    FST.save();
   } // GEN-LAST:event_alphaSliderMouseReleased
 
   // Variables declaration - do not modify//GEN-BEGIN:variables
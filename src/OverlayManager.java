@@ -0,0 +1,348 @@
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps one overlay window per screen device and decides which screen each flash goes to. Screens
+ * are described by their usable area, without task bars and docks, in the shared virtual screen
+ * coordinates, and by their scale factor. Sprites are cached per scale factor, so screens with the
+ * same scale share a cache and a HiDPI screen never re-renders a message it has shown before.
+ *
+ * <p>Per-flash windows are mapped and unmapped for every flash, which is the most expensive step of
+ * a flash under X11 and compositing window managers. Persistent windows stay mapped and only
+ * repaint the text's rectangle, see {@link OverlayWindow}, and can show several messages at once.
+ * An {@link OccupancyGrid} per screen records where messages are, so new ones can be placed clear
+ * of them.
+ *
+ * <p>The screens can be replaced while running, see {@link DisplayGeometry}. Everything kept per
+ * screen is one immutable snapshot, so a thread laying out a message never sees half a change.
+ */
+public final class OverlayManager {
+  static final int ROUND_ROBIN = 0;
+  static final int RANDOM = 1;
+  static final int WEIGHTED = 2;
+  static final int FIXED = 3;
+  static final String[] POLICY_STRINGS = {"round-robin", "random", "weighted", "fixed"};
+  static final int PER_FLASH = 0;
+  static final int PERSISTENT = 1;
+  static final String[] MODE_STRINGS = {"per-flash", "persistent"};
+  // Occupancy grid resolution in pixels
+  static final int CELL_SIZE = 16;
+
+  /** Usable area and scale of one screen device. */
+  public static final class Screen {
+    private final GraphicsConfiguration configuration;
+    private final Rectangle bounds;
+    private final double scale;
+
+    /**
+     * Describes a screen.
+     *
+     * @param configuration the device's configuration, or null when there is no display
+     * @param bounds usable area in virtual screen coordinates
+     * @param scale device pixels per user space unit
+     */
+    public Screen(GraphicsConfiguration configuration, Rectangle bounds, double scale) {
+      this.configuration = configuration;
+      this.bounds = new Rectangle(bounds);
+      this.scale = scale;
+    }
+
+    public GraphicsConfiguration getConfiguration() {
+      return configuration;
+    }
+
+    public Rectangle getBounds() {
+      return new Rectangle(bounds);
+    }
+
+    public double getScale() {
+      return scale;
+    }
+  }
+
+  /** Screens and what is kept for each of them, replaced as a whole when the screens change. */
+  private static final class Displays {
+    private final List<Screen> screens;
+    private final SpriteCache[] caches;
+    private final long[] cumulativeArea;
+    // Only used on the event thread
+    private final OverlayWindow[] windows;
+    private final OccupancyGrid[] grids;
+
+    /** Lays out the screens, keeping the sprite caches of earlier screens of the same scale. */
+    Displays(List<Screen> screens, long spriteBytes, Displays earlier) {
+      if (screens.isEmpty()) {
+        throw new IllegalArgumentException("No screens");
+      }
+      this.screens = new ArrayList<>(screens);
+      this.caches = new SpriteCache[screens.size()];
+      this.windows = new OverlayWindow[screens.size()];
+      this.cumulativeArea = new long[screens.size()];
+      this.grids = new OccupancyGrid[screens.size()];
+      Map<Double, SpriteCache> byScale = new HashMap<>();
+      if (earlier != null) {
+        for (SpriteCache cache : earlier.caches) {
+          byScale.put(cache.getScale(), cache);
+        }
+      }
+      long area = 0;
+      for (int i = 0; i < screens.size(); i++) {
+        Screen screen = screens.get(i);
+        caches[i] = byScale.computeIfAbsent(screen.scale, s -> new SpriteCache(spriteBytes, s));
+        area += Math.max(0L, (long) screen.bounds.width * screen.bounds.height);
+        cumulativeArea[i] = area;
+        grids[i] = new OccupancyGrid(screen.bounds, CELL_SIZE);
+      }
+    }
+
+    /** A message laid out for screens since removed goes to the first screen. */
+    int indexOf(int screen) {
+      return screen >= 0 && screen < screens.size() ? screen : 0;
+    }
+  }
+
+  private final long spriteBytes;
+  private volatile Displays displays;
+  // Messages on screen and the boxes they occupy
+  private final Map<FST.MessageState, Rectangle> placed = new HashMap<>();
+  private final AtomicInteger turn = new AtomicInteger();
+  private volatile int policy = ROUND_ROBIN;
+  private volatile int device = 0;
+  private volatile int mode = PER_FLASH;
+
+  /**
+   * Creates a manager for the given screens. Windows are only created when first shown on.
+   *
+   * @param screens screens to use, at least one
+   * @param spriteBytes sprite cache budget for each scale factor
+   */
+  public OverlayManager(List<Screen> screens, long spriteBytes) {
+    this.spriteBytes = spriteBytes;
+    this.displays = new Displays(screens, spriteBytes, null);
+  }
+
+  /**
+   * Creates a manager for every screen device of the local graphics environment.
+   *
+   * @param spriteBytes sprite cache budget for each scale factor
+   * @return the manager
+   */
+  public static OverlayManager forLocalScreens(long spriteBytes) {
+    return new OverlayManager(DisplayGeometry.readLocalScreens(), spriteBytes);
+  }
+
+  /**
+   * Replaces the screens, e.g. when one is added or a panel changes the usable area. Messages on
+   * screen are hidden and the windows of the old screens disposed; sprite caches are kept for
+   * screens of the same scale. Call on the event thread.
+   *
+   * @param screens screens to use from now on, at least one
+   */
+  public void setScreens(List<Screen> screens) {
+    Displays next = new Displays(screens, spriteBytes, displays);
+    hide();
+    disposeWindows();
+    displays = next;
+  }
+
+  /**
+   * Sets how screens are chosen.
+   *
+   * @param policy one of {@link #ROUND_ROBIN}, {@link #RANDOM}, {@link #WEIGHTED} by area or {@link
+   *     #FIXED}
+   * @param device screen index for {@link #FIXED}, the first screen if out of range
+   */
+  public void setPolicy(int policy, int device) {
+    this.policy = policy;
+    this.device = device;
+  }
+
+  /**
+   * Sets how flashes are put on screen. Windows of the other mode are disposed, so call on the
+   * event thread.
+   *
+   * @param mode {@link #PER_FLASH} or {@link #PERSISTENT}
+   */
+  public void setMode(int mode) {
+    if (mode == this.mode) {
+      return;
+    }
+    hide();
+    disposeWindows();
+    this.mode = mode;
+  }
+
+  private void disposeWindows() {
+    OverlayWindow[] windows = displays.windows;
+    for (int i = 0; i < windows.length; i++) {
+      if (windows[i] != null) {
+        windows[i].dispose();
+        windows[i] = null;
+      }
+    }
+  }
+
+  public int getMode() {
+    return mode;
+  }
+
+  /**
+   * Returns the screen the next flash should go to. Safe to call from any thread.
+   *
+   * @return screen index
+   */
+  public int selectScreen() {
+    return selectScreen(ThreadLocalRandom.current());
+  }
+
+  int selectScreen(Random rnd) {
+    Displays d = displays;
+    long[] cumulativeArea = d.cumulativeArea;
+    int count = d.screens.size();
+    switch (policy) {
+      case RANDOM:
+        return rnd.nextInt(count);
+      case WEIGHTED:
+        long total = cumulativeArea[count - 1];
+        if (total <= 0) {
+          return rnd.nextInt(count);
+        }
+        long pick = (long) (rnd.nextDouble() * total);
+        // First screen whose cumulative area passes the pick, skipping empty screens
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+          int mid = (low + high) >>> 1;
+          if (cumulativeArea[mid] > pick) {
+            high = mid;
+          } else {
+            low = mid + 1;
+          }
+        }
+        return low;
+      case FIXED:
+        return device >= 0 && device < count ? device : 0;
+      default:
+        return Math.floorMod(turn.getAndIncrement(), count);
+    }
+  }
+
+  public int getScreenCount() {
+    return displays.screens.size();
+  }
+
+  /**
+   * Returns a screen. Safe to call from any thread.
+   *
+   * @param index screen index, the first screen if the screens have changed since it was chosen
+   * @return the screen
+   */
+  public Screen getScreen(int index) {
+    Displays d = displays;
+    return d.screens.get(d.indexOf(index));
+  }
+
+  /**
+   * Returns the sprite cache for a screen, shared with every screen of the same scale.
+   *
+   * @param index screen index
+   * @return its sprite cache
+   */
+  public SpriteCache getCache(int index) {
+    Displays d = displays;
+    return d.caches[d.indexOf(index)];
+  }
+
+  /**
+   * Returns the box a message's text covers on screen.
+   *
+   * @param state message laid out for one of the screens
+   * @return text bounds in screen coordinates
+   */
+  public Rectangle getBounds(FST.MessageState state) {
+    return getBounds(displays, state);
+  }
+
+  private static Rectangle getBounds(Displays d, FST.MessageState state) {
+    int index = d.indexOf(state.screen);
+    return d.caches[index]
+        .get(state.text, state.font, state.color, d.screens.get(index).configuration)
+        .getBounds(state.x, state.baseline);
+  }
+
+  /**
+   * Returns whether a message would overlap none of the messages on screen.
+   *
+   * @param state message laid out for one of the screens
+   * @return true if its box is clear
+   */
+  public boolean isFree(FST.MessageState state) {
+    Displays d = displays;
+    return d.grids[d.indexOf(state.screen)].isFree(getBounds(d, state));
+  }
+
+  /**
+   * Shows a message on the window of the screen it was laid out for. In per-flash mode it replaces
+   * the message on screen, in persistent mode it is shown next to them. Call on the event thread.
+   *
+   * @param state message to show
+   */
+  public void show(FST.MessageState state) {
+    Displays d = displays;
+    int index = d.indexOf(state.screen);
+    if (mode == PER_FLASH) {
+      hide();
+    }
+    if (d.windows[index] == null) {
+      Screen screen = d.screens.get(index);
+      d.windows[index] =
+          mode == PERSISTENT
+              ? new OverlayWindow(screen.configuration, d.caches[index], screen.bounds)
+              : new OverlayWindow(screen.configuration, d.caches[index]);
+    }
+    d.windows[index].showMessage(state);
+    Rectangle box = getBounds(d, state);
+    // Overlapping messages are shown but not recorded, so releasing one never frees another's cells
+    if (d.grids[index].tryOccupy(box)) {
+      placed.put(state, box);
+    }
+  }
+
+  /**
+   * Hides one message. Call on the event thread.
+   *
+   * @param state message to hide, ignored if not shown
+   */
+  public void hide(FST.MessageState state) {
+    Displays d = displays;
+    int index = d.indexOf(state.screen);
+    if (d.windows[index] != null) {
+      d.windows[index].hideMessage(state);
+    }
+    Rectangle box = placed.remove(state);
+    if (box != null) {
+      d.grids[index].release(box);
+    }
+  }
+
+  /** Hides every message being shown. Call on the event thread. */
+  public void hide() {
+    Displays d = displays;
+    for (OverlayWindow window : d.windows) {
+      if (window != null && window.getMessageCount() > 0) {
+        window.hideMessage();
+      }
+    }
+    placed.clear();
+    for (OccupancyGrid grid : d.grids) {
+      grid.clear();
+    }
+  }
+}
@@ -0,0 +1,208 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.geom.Area;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.JFrame;
+
+/**
+ * Transparent, undecorated, always-on-top window that shows messages on one screen device. A
+ * per-flash window shows one message at a time; it is moved and resized to just cover the text for
+ * each flash, then hidden. A persistent window covers the whole screen, stays mapped and can show
+ * any number of messages at once, all drawn in one paint pass; flashes are shown and hidden by
+ * repainting only the rectangle around their text, and the window shape is cut down to those
+ * rectangles so clicks elsewhere reach the windows below. Only used on the event thread.
+ */
+public class OverlayWindow extends JFrame {
+  // Transparent border kept around the text so antialiased edges are never clipped
+  private static final int WINDOW_PAD = 2;
+  private static final Rectangle NO_SHAPE = new Rectangle();
+
+  private final SpriteCache spriteCache;
+  private final Rectangle area;
+  private final boolean shaped;
+  // Messages on screen and the window coordinates of their text, in the order shown
+  private final Map<FST.MessageState, Rectangle> shown = new LinkedHashMap<>();
+
+  /**
+   * Creates a hidden per-flash overlay window.
+   *
+   * @param gc configuration of the screen device to show on
+   * @param spriteCache sprites rendered for the device's scale factor
+   */
+  public OverlayWindow(GraphicsConfiguration gc, SpriteCache spriteCache) {
+    this(gc, spriteCache, null);
+  }
+
+  /**
+   * Creates a persistent overlay window, mapped on the first flash and kept mapped after that.
+   *
+   * @param gc configuration of the screen device to show on
+   * @param spriteCache sprites rendered for the device's scale factor
+   * @param area screen area the window covers, or null for a per-flash window
+   */
+  public OverlayWindow(GraphicsConfiguration gc, SpriteCache spriteCache, Rectangle area) {
+    super(gc);
+    this.spriteCache = spriteCache;
+    this.area = area == null ? null : new Rectangle(area);
+    GraphicsDevice device = getGraphicsConfiguration().getDevice();
+    this.shaped =
+        area != null
+            && device.isWindowTranslucencySupported(
+                GraphicsDevice.WindowTranslucency.PERPIXEL_TRANSPARENT);
+    if (area != null) {
+      // Keeps a screen-sized window out of the task bar
+      setType(Type.UTILITY);
+    }
+    setAlwaysOnTop(true);
+    setFocusableWindowState(false);
+    setUndecorated(true);
+    setFocusable(false);
+    setBackground(new Color(0f, 0f, 0f, 0f));
+  }
+
+  /**
+   * Returns whether the window stays mapped between flashes.
+   *
+   * @return true for a persistent window
+   */
+  public boolean isPersistent() {
+    return area != null;
+  }
+
+  /**
+   * Shows a message laid out in screen coordinates inside this window's device. A per-flash window
+   * replaces the message it was showing.
+   *
+   * @param state message to show
+   */
+  public void showMessage(FST.MessageState state) {
+    Rectangle bounds =
+        spriteCache
+            .get(state.text, state.font, state.color, getGraphicsConfiguration())
+            .getBounds(state.x, state.baseline);
+    bounds.grow(WINDOW_PAD, WINDOW_PAD);
+    if (area == null) {
+      shown.clear();
+      shown.put(state, new Rectangle(0, 0, bounds.width, bounds.height));
+      // A single reconfigure per flash, only covering the text
+      setBounds(bounds);
+      setVisible(true);
+      return;
+    }
+    if (!isVisible()) {
+      setBounds(area);
+      setClickShape();
+      setVisible(true);
+    }
+    bounds.translate(-area.x, -area.y);
+    shown.put(state, bounds);
+    setClickShape();
+    paintNow(bounds);
+  }
+
+  /**
+   * Removes one message, hiding a per-flash window.
+   *
+   * @param state message to remove, ignored if it is not shown
+   */
+  public void hideMessage(FST.MessageState state) {
+    Rectangle bounds = shown.remove(state);
+    if (bounds == null) {
+      return;
+    }
+    if (area == null) {
+      clearAndHide();
+    } else {
+      paintNow(bounds);
+      setClickShape();
+    }
+  }
+
+  /** Removes every message, hiding a per-flash window. */
+  public void hideMessage() {
+    if (area == null) {
+      shown.clear();
+      clearAndHide();
+    } else if (!shown.isEmpty()) {
+      Rectangle dirty = null;
+      for (Rectangle bounds : shown.values()) {
+        dirty = dirty == null ? new Rectangle(bounds) : dirty.union(bounds);
+      }
+      shown.clear();
+      paintNow(dirty);
+      setClickShape();
+    }
+  }
+
+  /**
+   * Returns how many messages are shown.
+   *
+   * @return number of messages on screen
+   */
+  public int getMessageCount() {
+    return shown.size();
+  }
+
+  private void clearAndHide() {
+    // Clear the window before hiding to prevent stale cached content
+    // from appearing when it becomes visible again
+    paintNow(null);
+    setVisible(false);
+  }
+
+  /** Paints part of the window straight away, or all of it if dirty is null. */
+  private void paintNow(Rectangle dirty) {
+    Graphics g = getGraphics();
+    if (g != null) {
+      if (dirty != null) {
+        g.clipRect(dirty.x, dirty.y, dirty.width, dirty.height);
+      }
+      paint(g);
+      g.dispose();
+      if (area != null) {
+        // Nothing is remapped to push the pixels out, so flush them
+        Toolkit.getDefaultToolkit().sync();
+      }
+    }
+  }
+
+  /** Limits a persistent window's shape, and so its clicks, to the text it is showing. */
+  private void setClickShape() {
+    if (!shaped) {
+      return;
+    }
+    if (shown.size() == 1) {
+      setShape(shown.values().iterator().next());
+      return;
+    }
+    Area shape = new Area();
+    for (Rectangle bounds : shown.values()) {
+      shape.add(new Area(bounds));
+    }
+    setShape(shape.isEmpty() ? NO_SHAPE : shape);
+  }
+
+  @Override
+  public void paint(Graphics g) {
+    Rectangle clip = g.getClipBounds();
+    if (clip == null) {
+      g.clearRect(0, 0, this.getWidth(), this.getHeight());
+    } else {
+      g.clearRect(clip.x, clip.y, clip.width, clip.height);
+    }
+
+    for (Map.Entry<FST.MessageState, Rectangle> entry : shown.entrySet()) {
+      if (clip == null || clip.intersects(entry.getValue())) {
+        long start = System.nanoTime();
+        FST.paintMessage(
+            g, entry.getKey(), spriteCache, getGraphicsConfiguration(), getX(), getY());
+        FlashTiming.get().recordPaint(System.nanoTime() - start);
+      }
+    }
+  }
+}
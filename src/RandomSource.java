@@ -0,0 +1,141 @@
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Where every random choice comes from: which message, how its words and letters are shuffled,
+ * which screen and where on it. Each consumer takes its own named stream and draws from it one call
+ * at a time, from one thread or under the consumer's lock, so no stream is contended. Unseeded, the
+ * streams draw from {@link ThreadLocalRandom}. Seeded, each stream is a {@link SplittableRandom}
+ * derived from the seed and its name, so the same seed gives the same messages, orders and
+ * positions in every run that sees the same events, and a stream's sequence does not depend on
+ * which other streams exist.
+ */
+public final class RandomSource {
+  private static final RandomSource UNSEEDED = new RandomSource(false, 0L);
+  private static final Random LOCAL = new Local();
+  // Spreads stream names over the seed space, the golden ratio as SplittableRandom uses it
+  private static final long NAME_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private final boolean seeded;
+  private final long seed;
+
+  private RandomSource(boolean seeded, long seed) {
+    this.seeded = seeded;
+    this.seed = seed;
+  }
+
+  /**
+   * Returns the source whose streams are not reproducible.
+   *
+   * @return the shared unseeded source
+   */
+  public static RandomSource unseeded() {
+    return UNSEEDED;
+  }
+
+  /**
+   * Returns a source whose streams are reproduced by the same seed.
+   *
+   * @param seed the seed
+   * @return a seeded source
+   */
+  public static RandomSource seeded(long seed) {
+    return new RandomSource(true, seed);
+  }
+
+  public boolean isSeeded() {
+    return seeded;
+  }
+
+  /** The seed, only meaningful if {@link #isSeeded}. */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Returns a stream for one consumer. A seeded stream is not thread safe; it must only be used by
+   * one thread, or under a lock that also fixes the order of the draws.
+   *
+   * @param name what the stream is for, e.g. "messages"
+   * @return a new stream
+   */
+  public Random stream(String name) {
+    return seeded ? new Split(new SplittableRandom(seed + NAME_GAMMA * name.hashCode())) : LOCAL;
+  }
+
+  /** Draws from the calling thread's {@link ThreadLocalRandom}, so it can be shared. */
+  private static final class Local extends Random {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected int next(int bits) {
+      return ThreadLocalRandom.current().nextInt() >>> (32 - bits);
+    }
+
+    @Override
+    public int nextInt() {
+      return ThreadLocalRandom.current().nextInt();
+    }
+
+    @Override
+    public int nextInt(int bound) {
+      return ThreadLocalRandom.current().nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+      return ThreadLocalRandom.current().nextLong();
+    }
+
+    @Override
+    public double nextDouble() {
+      return ThreadLocalRandom.current().nextDouble();
+    }
+
+    @Override
+    public boolean nextBoolean() {
+      return ThreadLocalRandom.current().nextBoolean();
+    }
+  }
+
+  /** A {@link SplittableRandom} behind the {@link Random} interface the consumers take. */
+  private static final class Split extends Random {
+    private static final long serialVersionUID = 1L;
+    private final SplittableRandom rnd;
+
+    Split(SplittableRandom rnd) {
+      this.rnd = rnd;
+    }
+
+    @Override
+    protected int next(int bits) {
+      return rnd.nextInt() >>> (32 - bits);
+    }
+
+    @Override
+    public int nextInt() {
+      return rnd.nextInt();
+    }
+
+    @Override
+    public int nextInt(int bound) {
+      return rnd.nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+      return rnd.nextLong();
+    }
+
+    @Override
+    public double nextDouble() {
+      return rnd.nextDouble();
+    }
+
+    @Override
+    public boolean nextBoolean() {
+      return rnd.nextBoolean();
+    }
+  }
+}
@@ -0,0 +1,178 @@
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Remembers the last few indices shown and draws from the others, so an index shown recently never
+ * comes up again too soon. The remembered indices are kept in a ring buffer, in the order shown.
+ * Every enabled index of the list sits in a pool, the free ones first and the remembered ones after
+ * them, so remembering, forgetting and drawing each move one index across the split and take
+ * constant time. Not thread safe.
+ */
+public final class RepeatWindow {
+  private final int[] recent;
+  private int start;
+  private int count;
+  private int limit;
+  // Enabled indices, the free ones first, then the remembered ones
+  private int[] pool;
+  // Where each index sits in pool, or -1 if it is disabled
+  private int[] slot;
+  private int free;
+  private long[] enabled;
+  private int listSize;
+
+  /**
+   * Creates an empty window over a list whose indices are all enabled.
+   *
+   * @param capacity most indices ever remembered
+   * @param listSize number of indices in the list
+   */
+  public RepeatWindow(int capacity, int listSize) {
+    this(capacity, listSize, null);
+  }
+
+  /**
+   * Creates an empty window.
+   *
+   * @param capacity most indices ever remembered
+   * @param listSize number of indices in the list
+   * @param enabled bit per index that can be drawn, or null if all can
+   */
+  public RepeatWindow(int capacity, int listSize, long[] enabled) {
+    recent = new int[Math.max(capacity, 1)];
+    limit = recent.length;
+    fill(listSize, enabled);
+  }
+
+  /**
+   * Returns whether an index is among the last ones shown.
+   *
+   * @param index list index
+   * @return true if it was shown within the window
+   */
+  public boolean contains(int index) {
+    return index >= 0 && index < listSize && slot[index] >= free;
+  }
+
+  /**
+   * Draws an enabled index that is not in the window, all of them equally likely.
+   *
+   * @param rnd source of randomness
+   * @return a free index, or -1 if there is none
+   */
+  public int next(Random rnd) {
+    return free == 0 ? -1 : pool[rnd.nextInt(free)];
+  }
+
+  /**
+   * Records an index as shown, forgetting the oldest one if the window is full. Disabled indices
+   * and indices already in the window are ignored.
+   *
+   * @param index list index
+   */
+  public void add(int index) {
+    if (limit == 0 || index < 0 || index >= listSize || slot[index] < 0 || slot[index] >= free) {
+      return;
+    }
+    while (count >= limit) {
+      forgetOldest();
+    }
+    recent[(start + count) % recent.length] = index;
+    count++;
+    free--;
+    swap(slot[index], free);
+  }
+
+  /**
+   * Sets how many indices are remembered, at most the capacity; the oldest ones are forgotten
+   * first.
+   *
+   * @param size new window size
+   */
+  public void setLimit(int size) {
+    limit = Math.max(0, Math.min(size, recent.length));
+    while (count > limit) {
+      forgetOldest();
+    }
+  }
+
+  /**
+   * Moves to another version of the list, still remembering the indices shown that are in it. Takes
+   * time proportional to the list size.
+   *
+   * @param listSize number of indices in the new list
+   * @param enabled bit per index of the new list that can be drawn, or null if all can
+   * @param map index in the new list of an index of the old one, or -1 if it is gone
+   */
+  public void remap(int listSize, long[] enabled, IntUnaryOperator map) {
+    // Copied out before the pool is rebuilt, oldest first
+    int[] kept = new int[count];
+    for (int i = 0; i < count; i++) {
+      kept[i] = recent[(start + i) % recent.length];
+    }
+    start = 0;
+    count = 0;
+    fill(listSize, enabled);
+    for (int index : kept) {
+      add(map.applyAsInt(index));
+    }
+  }
+
+  /**
+   * Returns how many indices are remembered.
+   *
+   * @return indices in the window
+   */
+  public int size() {
+    return count;
+  }
+
+  /**
+   * Returns how many indices can be drawn.
+   *
+   * @return enabled indices not in the window
+   */
+  public int getFree() {
+    return free;
+  }
+
+  public int getListSize() {
+    return listSize;
+  }
+
+  private void fill(int listSize, long[] enabled) {
+    this.listSize = listSize;
+    this.enabled = enabled;
+    pool = new int[listSize];
+    slot = new int[listSize];
+    free = 0;
+    for (int i = 0; i < listSize; i++) {
+      if (isEnabled(i, enabled)) {
+        pool[free] = i;
+        slot[i] = free++;
+      } else {
+        slot[i] = -1;
+      }
+    }
+  }
+
+  private static boolean isEnabled(int index, long[] enabled) {
+    return enabled == null || (enabled[index >>> 6] & (1L << index)) != 0;
+  }
+
+  private void forgetOldest() {
+    swap(slot[recent[start]], free);
+    free++;
+    start = (start + 1) % recent.length;
+    count--;
+  }
+
+  private void swap(int a, int b) {
+    int x = pool[a];
+    int y = pool[b];
+    pool[a] = y;
+    pool[b] = x;
+    slot[y] = a;
+    slot[x] = b;
+  }
+}
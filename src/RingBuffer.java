@@ -0,0 +1,84 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for exactly one producer thread and one consumer thread. The capacity is
+ * rounded up to a power of two so slots are found with a mask.
+ *
+ * @param <E> element type
+ */
+public class RingBuffer<E> {
+  private final AtomicReferenceArray<E> slots;
+  private final int mask;
+  // Next slot to read, only advanced by the consumer
+  private final AtomicLong head = new AtomicLong();
+  // Next slot to write, only advanced by the producer
+  private final AtomicLong tail = new AtomicLong();
+
+  /**
+   * Creates a ring buffer.
+   *
+   * @param capacity minimum number of elements it can hold
+   */
+  public RingBuffer(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity " + capacity);
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    slots = new AtomicReferenceArray<>(size);
+    mask = size - 1;
+  }
+
+  public int capacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Adds an element. Must only be called from the producer thread.
+   *
+   * @param e element to add, not null
+   * @return false if the buffer is full
+   */
+  public boolean offer(E e) {
+    long t = tail.get();
+    if (t - head.get() > mask) {
+      return false;
+    }
+    slots.lazySet((int) t & mask, e);
+    tail.lazySet(t + 1);
+    return true;
+  }
+
+  /**
+   * Removes the oldest element. Must only be called from the consumer thread.
+   *
+   * @return the element, or null if the buffer is empty
+   */
+  public E poll() {
+    long h = head.get();
+    if (h == tail.get()) {
+      return null;
+    }
+    int slot = (int) h & mask;
+    E e = slots.get(slot);
+    slots.lazySet(slot, null);
+    head.lazySet(h + 1);
+    return e;
+  }
+
+  /**
+   * Returns the number of elements, which may already be stale when called from another thread.
+   *
+   * @return elements currently held
+   */
+  public int size() {
+    return (int) (tail.get() - head.get());
+  }
+
+  public boolean isFull() {
+    return size() > mask;
+  }
+}
@@ -34,8 +34,9 @@ public class SamplePanel extends JPanel {
       }
     }
     g.drawImage(grid, 0, 0, null);
-    g.setColor(FST.fontColour);
-    g.setFont(FST.font);
+    Settings settings = FST.settings();
+    g.setColor(settings.getColour());
+    g.setFont(settings.getFont());
     FontMetrics fontMetrics = g.getFontMetrics();
     g.drawString(
         OptionsConfigPanel.sampleText,
@@ -0,0 +1,310 @@
+import java.awt.Color;
+import java.awt.Font;
+
+/**
+ * One consistent version of the user's settings. A Settings never changes: a change is made by
+ * {@link SettingsStore#update}, which builds a new version from the current one and publishes it as
+ * a whole, so a flash or a save reads every value from the same version.
+ */
+public final class Settings {
+  /** The settings used when there is no config file, or for values missing from it. */
+  static final Settings DEFAULTS = new Builder().build();
+
+  private final Font font;
+  private final Color colour;
+  private final int display;
+  private final int delay;
+  private final int placementX;
+  private final int placementY;
+  private final int marginX;
+  private final int marginY;
+  private final int wordOrder;
+  private final int letterOrder;
+  private final int messageOrder;
+  private final int concurrentFlashes;
+  private final int screenPolicy;
+  private final int screenDevice;
+  private final int overlayMode;
+  private final long spriteCacheBytes;
+  private final int configWindow;
+  private final boolean checkUpdates;
+  private final long nextUpdate;
+
+  private Settings(Builder b) {
+    this.font = b.font;
+    this.colour = b.colour;
+    this.display = b.display;
+    this.delay = b.delay;
+    this.placementX = b.placementX;
+    this.placementY = b.placementY;
+    this.marginX = b.marginX;
+    this.marginY = b.marginY;
+    this.wordOrder = b.wordOrder;
+    this.letterOrder = b.letterOrder;
+    this.messageOrder = b.messageOrder;
+    this.concurrentFlashes = b.concurrentFlashes;
+    this.screenPolicy = b.screenPolicy;
+    this.screenDevice = b.screenDevice;
+    this.overlayMode = b.overlayMode;
+    this.spriteCacheBytes = b.spriteCacheBytes;
+    this.configWindow = b.configWindow;
+    this.checkUpdates = b.checkUpdates;
+    this.nextUpdate = b.nextUpdate;
+  }
+
+  /**
+   * Returns a builder starting from these settings.
+   *
+   * @return a new builder holding every value of this version
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  public Font getFont() {
+    return font;
+  }
+
+  public Color getColour() {
+    return colour;
+  }
+
+  /** Milliseconds a message is shown for. */
+  public int getDisplay() {
+    return display;
+  }
+
+  /** Milliseconds between messages. */
+  public int getDelay() {
+    return delay;
+  }
+
+  public int getPlacementX() {
+    return placementX;
+  }
+
+  public int getPlacementY() {
+    return placementY;
+  }
+
+  public int getMarginX() {
+    return marginX;
+  }
+
+  public int getMarginY() {
+    return marginY;
+  }
+
+  public int getWordOrder() {
+    return wordOrder;
+  }
+
+  public int getLetterOrder() {
+    return letterOrder;
+  }
+
+  public int getMessageOrder() {
+    return messageOrder;
+  }
+
+  public int getConcurrentFlashes() {
+    return concurrentFlashes;
+  }
+
+  public int getScreenPolicy() {
+    return screenPolicy;
+  }
+
+  public int getScreenDevice() {
+    return screenDevice;
+  }
+
+  public int getOverlayMode() {
+    return overlayMode;
+  }
+
+  public long getSpriteCacheBytes() {
+    return spriteCacheBytes;
+  }
+
+  public int getConfigWindow() {
+    return configWindow;
+  }
+
+  public boolean isCheckUpdates() {
+    return checkUpdates;
+  }
+
+  /** Seconds since the epoch after which to look for a new version. */
+  public long getNextUpdate() {
+    return nextUpdate;
+  }
+
+  /**
+   * Returns whether the settings a message is laid out with differ between two versions.
+   *
+   * @param other settings to compare with
+   * @return true if a message laid out with one would look or sit differently with the other
+   */
+  boolean layoutDiffers(Settings other) {
+    return !font.equals(other.font)
+        || !colour.equals(other.colour)
+        || placementX != other.placementX
+        || placementY != other.placementY
+        || marginX != other.marginX
+        || marginY != other.marginY
+        || wordOrder != other.wordOrder
+        || letterOrder != other.letterOrder
+        || messageOrder != other.messageOrder
+        || screenPolicy != other.screenPolicy
+        || screenDevice != other.screenDevice;
+  }
+
+  /** Collects the values of a new version. Not thread safe, each change uses its own. */
+  public static final class Builder {
+    private Font font = new Font("sans-serif", Font.PLAIN, 35);
+    private Color colour = new Color(0, 0, 255, 30);
+    private int display = 100;
+    private int delay = 300;
+    private int placementX = FST.RANDOM;
+    private int placementY = FST.RANDOM;
+    private int marginX = 40;
+    private int marginY = 40;
+    private int wordOrder = MessageSelector.FORWARD;
+    private int letterOrder = MessageSelector.FORWARD;
+    private int messageOrder = MessageSelector.RANDOM;
+    private int concurrentFlashes = 1;
+    private int screenPolicy = OverlayManager.ROUND_ROBIN;
+    private int screenDevice = 0;
+    private int overlayMode = OverlayManager.PER_FLASH;
+    private long spriteCacheBytes = 8L * 1024L * 1024L;
+    private int configWindow = 1;
+    private boolean checkUpdates = true;
+    private long nextUpdate = System.currentTimeMillis() / 1000L + 30L * 86400L;
+
+    private Builder() {
+      // Field initialisers hold the defaults
+    }
+
+    private Builder(Settings s) {
+      font = s.font;
+      colour = s.colour;
+      display = s.display;
+      delay = s.delay;
+      placementX = s.placementX;
+      placementY = s.placementY;
+      marginX = s.marginX;
+      marginY = s.marginY;
+      wordOrder = s.wordOrder;
+      letterOrder = s.letterOrder;
+      messageOrder = s.messageOrder;
+      concurrentFlashes = s.concurrentFlashes;
+      screenPolicy = s.screenPolicy;
+      screenDevice = s.screenDevice;
+      overlayMode = s.overlayMode;
+      spriteCacheBytes = s.spriteCacheBytes;
+      configWindow = s.configWindow;
+      checkUpdates = s.checkUpdates;
+      nextUpdate = s.nextUpdate;
+    }
+
+    public Builder font(Font font) {
+      this.font = font;
+      return this;
+    }
+
+    public Builder colour(Color colour) {
+      this.colour = colour;
+      return this;
+    }
+
+    public Builder display(int display) {
+      this.display = display;
+      return this;
+    }
+
+    public Builder delay(int delay) {
+      this.delay = delay;
+      return this;
+    }
+
+    public Builder placementX(int placementX) {
+      this.placementX = placementX;
+      return this;
+    }
+
+    public Builder placementY(int placementY) {
+      this.placementY = placementY;
+      return this;
+    }
+
+    public Builder marginX(int marginX) {
+      this.marginX = marginX;
+      return this;
+    }
+
+    public Builder marginY(int marginY) {
+      this.marginY = marginY;
+      return this;
+    }
+
+    public Builder wordOrder(int wordOrder) {
+      this.wordOrder = wordOrder;
+      return this;
+    }
+
+    public Builder letterOrder(int letterOrder) {
+      this.letterOrder = letterOrder;
+      return this;
+    }
+
+    public Builder messageOrder(int messageOrder) {
+      this.messageOrder = messageOrder;
+      return this;
+    }
+
+    public Builder concurrentFlashes(int concurrentFlashes) {
+      this.concurrentFlashes = concurrentFlashes;
+      return this;
+    }
+
+    public Builder screenPolicy(int screenPolicy) {
+      this.screenPolicy = screenPolicy;
+      return this;
+    }
+
+    public Builder screenDevice(int screenDevice) {
+      this.screenDevice = screenDevice;
+      return this;
+    }
+
+    public Builder overlayMode(int overlayMode) {
+      this.overlayMode = overlayMode;
+      return this;
+    }
+
+    public Builder spriteCacheBytes(long spriteCacheBytes) {
+      this.spriteCacheBytes = spriteCacheBytes;
+      return this;
+    }
+
+    public Builder configWindow(int configWindow) {
+      this.configWindow = configWindow;
+      return this;
+    }
+
+    public Builder checkUpdates(boolean checkUpdates) {
+      this.checkUpdates = checkUpdates;
+      return this;
+    }
+
+    public Builder nextUpdate(long nextUpdate) {
+      this.nextUpdate = nextUpdate;
+      return this;
+    }
+
+    public Settings build() {
+      return new Settings(this);
+    }
+  }
+}
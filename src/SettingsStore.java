@@ -0,0 +1,102 @@
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Holds the current {@link Settings} in an atomic reference. Readers take the current version
+ * without locking and keep using it for as long as they need one consistent set of values. Changes
+ * are transactions: any number of values are changed on one builder and published together, and
+ * listeners are told once per transaction, so whatever is derived from the settings is recomputed
+ * once per change rather than checked on every flash. Listeners are called after the store's lock
+ * is released, so they may publish changes themselves or wait for a thread that does.
+ */
+public final class SettingsStore {
+  /**
+   * Told about every published change, on the thread that made it. Changes published at the same
+   * time on different threads may be told in either order, so a listener that must end up with the
+   * latest version reads it from {@link #get}.
+   */
+  public interface Listener {
+    /**
+     * Called after a new version has been published.
+     *
+     * @param before the version replaced
+     * @param after the version now current
+     */
+    void settingsChanged(Settings before, Settings after);
+  }
+
+  private final AtomicReference<Settings> current;
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Creates a store.
+   *
+   * @param initial the first version
+   */
+  public SettingsStore(Settings initial) {
+    current = new AtomicReference<>(initial);
+  }
+
+  /**
+   * Returns the current version.
+   *
+   * @return the settings, which never change
+   */
+  public Settings get() {
+    return current.get();
+  }
+
+  /**
+   * Replaces the current version without telling the listeners, e.g. with the settings read at
+   * startup before anything depends on them.
+   *
+   * @param settings the new version
+   */
+  public void set(Settings settings) {
+    current.set(settings);
+  }
+
+  /**
+   * Changes any number of values as one transaction and tells the listeners once. Transactions are
+   * applied one at a time, so no change is lost, and each listener is told the version it replaced.
+   *
+   * @param change given the current version and a builder starting from it, sets the new values
+   * @return the version published
+   */
+  public Settings update(BiConsumer<Settings, Settings.Builder> change) {
+    Settings before;
+    Settings after;
+    synchronized (this) {
+      before = current.get();
+      Settings.Builder builder = before.toBuilder();
+      change.accept(before, builder);
+      after = builder.build();
+      current.set(after);
+    }
+    // Iterates a snapshot of the listeners, taken without the lock
+    for (Listener listener : listeners) {
+      listener.settingsChanged(before, after);
+    }
+    return after;
+  }
+
+  /**
+   * Adds a listener for changes published from now on.
+   *
+   * @param listener listener to add
+   */
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Removes a listener.
+   *
+   * @param listener listener to remove
+   */
+  public void removeListener(Listener listener) {
+    listeners.remove(listener);
+  }
+}
@@ -0,0 +1,105 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Hands out every index of a list once, in random order, before any index comes round again. Each
+ * draw does one step of a Fisher-Yates shuffle over the indices not yet drawn this round, so there
+ * is never a pause to reshuffle the whole list. An edited list is followed with {@link #remap},
+ * which keeps the round in progress. Not thread safe.
+ */
+public final class ShuffleBag {
+  // Indices drawn this round come first, then the ones still to draw
+  private int[] order;
+  // Where each index sits in order
+  private int[] slot;
+  private int size;
+  private int drawn;
+  private int last = -1;
+
+  /**
+   * Creates a bag.
+   *
+   * @param size number of indices
+   */
+  public ShuffleBag(int size) {
+    order = new int[Math.max(size, 1)];
+    slot = new int[Math.max(size, 1)];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+      slot[i] = i;
+    }
+    this.size = size;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Draws the next index. A new round does not start with the index that ended the last one.
+   *
+   * @param rnd source of randomness
+   * @return an index not yet drawn this round, or -1 if the bag is empty
+   */
+  public int next(Random rnd) {
+    if (size == 0) {
+      return -1;
+    }
+    if (drawn == size) {
+      drawn = 0;
+    }
+    swap(drawn, drawn + rnd.nextInt(size - drawn));
+    if (drawn == 0 && order[0] == last && size > 1) {
+      swap(0, 1 + rnd.nextInt(size - 1));
+    }
+    last = order[drawn++];
+    return last;
+  }
+
+  /**
+   * Moves to another version of the list, keeping the round in progress: indices drawn this round
+   * that are in the new list stay drawn, all others are still to draw. Takes time proportional to
+   * the list size.
+   *
+   * @param newSize number of indices in the new list
+   * @param map index in the new list of an index of the old one, or -1 if it is gone
+   */
+  public void remap(int newSize, IntUnaryOperator map) {
+    int[] done = Arrays.copyOf(order, drawn);
+    int mappedLast = last < 0 ? -1 : map.applyAsInt(last);
+    order = new int[Math.max(newSize, 1)];
+    slot = new int[Math.max(newSize, 1)];
+    for (int i = 0; i < newSize; i++) {
+      order[i] = i;
+      slot[i] = i;
+    }
+    size = newSize;
+    drawn = 0;
+    for (int index : done) {
+      int mapped = map.applyAsInt(index);
+      if (mapped >= 0 && mapped < newSize && slot[mapped] >= drawn) {
+        swap(drawn++, slot[mapped]);
+      }
+    }
+    last = mappedLast < newSize ? mappedLast : -1;
+  }
+
+  /**
+   * Returns how many indices have been drawn in the current round.
+   *
+   * @return indices drawn since the round started
+   */
+  int getDrawn() {
+    return drawn;
+  }
+
+  private void swap(int a, int b) {
+    int x = order[a];
+    int y = order[b];
+    order[a] = y;
+    order[b] = x;
+    slot[y] = a;
+    slot[x] = b;
+  }
+}
@@ -0,0 +1,235 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.font.FontRenderContext;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Caches pre-rendered message sprites so painting a flash is a single image blit. Each (text, font,
+ * colour) combination is rasterised once into a translucent image; the least recently used sprites
+ * are evicted once the cache grows past its byte budget. Sprites are rendered for one screen scale
+ * factor, so screens with different scales each use their own cache.
+ */
+public class SpriteCache {
+  /** Bytes per pixel of a translucent ARGB sprite, used for the budget accounting. */
+  static final int BYTES_PER_PIXEL = 4;
+
+  /**
+   * A rendered message and the offset of its text origin inside the image. Origin and size are in
+   * user space; the image holds {@code scale} device pixels per unit so HiDPI screens blit it 1:1.
+   */
+  public static final class Sprite {
+    private final BufferedImage image;
+    private final int originX;
+    private final int originY;
+    private final int width;
+    private final int height;
+
+    Sprite(BufferedImage image, int originX, int originY, int width, int height) {
+      this.image = image;
+      this.originX = originX;
+      this.originY = originY;
+      this.width = width;
+      this.height = height;
+    }
+
+    BufferedImage getImage() {
+      return image;
+    }
+
+    int getOriginX() {
+      return originX;
+    }
+
+    int getOriginY() {
+      return originY;
+    }
+
+    int getBytes() {
+      return image.getWidth() * image.getHeight() * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Returns the area the sprite covers when its text baseline starts at (x, baseline).
+     *
+     * @param x text origin x
+     * @param baseline text baseline y
+     * @return the covered rectangle
+     */
+    public Rectangle getBounds(int x, int baseline) {
+      return new Rectangle(x - originX, baseline - originY, width, height);
+    }
+
+    /**
+     * Draws the sprite so that its text baseline starts at (x, baseline).
+     *
+     * @param g target graphics
+     * @param x text origin x
+     * @param baseline text baseline y
+     */
+    public void draw(Graphics g, int x, int baseline) {
+      if (image.getWidth() == width && image.getHeight() == height) {
+        g.drawImage(image, x - originX, baseline - originY, null);
+      } else {
+        g.drawImage(image, x - originX, baseline - originY, width, height, null);
+      }
+    }
+  }
+
+  private static final class Key {
+    private final String text;
+    private final Font font;
+    private final Color color;
+    private final int hash;
+
+    Key(String text, Font font, Color color) {
+      this.text = text;
+      this.font = font;
+      this.color = color;
+      this.hash = Objects.hash(text, font, color);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key k = (Key) o;
+      return hash == k.hash && text.equals(k.text) && font.equals(k.font) && color.equals(k.color);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private final Map<Key, Sprite> sprites = new LinkedHashMap<>(64, 0.75f, true);
+  private final double scale;
+  private long budget;
+  private long bytes = 0;
+
+  /**
+   * Creates a sprite cache for screens without scaling.
+   *
+   * @param budget maximum number of bytes of sprite pixels to retain
+   */
+  public SpriteCache(long budget) {
+    this(budget, 1.0);
+  }
+
+  /**
+   * Creates a sprite cache rendering for screens with the given scale factor.
+   *
+   * @param budget maximum number of bytes of sprite pixels to retain
+   * @param scale device pixels per user space unit
+   */
+  public SpriteCache(long budget, double scale) {
+    this.budget = budget;
+    this.scale = scale;
+  }
+
+  public double getScale() {
+    return scale;
+  }
+
+  /**
+   * Changes the byte budget, evicting sprites if the cache is now over it.
+   *
+   * @param budget maximum number of bytes of sprite pixels to retain
+   */
+  public synchronized void setBudget(long budget) {
+    this.budget = budget;
+    evict(null);
+  }
+
+  /**
+   * Returns the sprite for the given text, rendering it on a miss.
+   *
+   * @param text message text
+   * @param font font to render with
+   * @param color text colour, including alpha
+   * @param gc configuration to create a compatible image for, or null for a plain ARGB image
+   * @return the cached or newly rendered sprite
+   */
+  public synchronized Sprite get(String text, Font font, Color color, GraphicsConfiguration gc) {
+    Key key = new Key(text, font, color);
+    Sprite sprite = sprites.get(key);
+    if (sprite == null) {
+      sprite = render(text, font, color, gc, scale);
+      sprites.put(key, sprite);
+      bytes += sprite.getBytes();
+      evict(sprite);
+    }
+    return sprite;
+  }
+
+  /** Drops every cached sprite. */
+  public synchronized void clear() {
+    sprites.clear();
+    bytes = 0;
+  }
+
+  synchronized int size() {
+    return sprites.size();
+  }
+
+  synchronized long getBytes() {
+    return bytes;
+  }
+
+  /** Evicts least recently used sprites until under budget, never evicting {@code keep}. */
+  private void evict(Sprite keep) {
+    Iterator<Sprite> iter = sprites.values().iterator();
+    while (bytes > budget && iter.hasNext()) {
+      Sprite s = iter.next();
+      if (s != keep) {
+        bytes -= s.getBytes();
+        iter.remove();
+      }
+    }
+  }
+
+  static Sprite render(String text, Font font, Color color, GraphicsConfiguration gc) {
+    return render(text, font, color, gc, 1.0);
+  }
+
+  static Sprite render(
+      String text, Font font, Color color, GraphicsConfiguration gc, double scale) {
+    FontRenderContext frc = TextMetrics.FRC;
+    Rectangle bounds = font.createGlyphVector(frc, text).getPixelBounds(frc, 0, 0);
+    int ascent = (int) Math.ceil(font.getLineMetrics(text, frc).getAscent());
+    int descent = (int) Math.ceil(font.getLineMetrics(text, frc).getDescent());
+    int advance = (int) Math.ceil(font.getStringBounds(text, frc).getWidth());
+    int minX = Math.min(0, bounds.x);
+    int minY = Math.min(-ascent, bounds.y);
+    int width = Math.max(1, Math.max(advance, bounds.x + bounds.width) - minX);
+    int height = Math.max(1, Math.max(descent, bounds.y + bounds.height) - minY);
+    int imageWidth = (int) Math.ceil(width * scale);
+    int imageHeight = (int) Math.ceil(height * scale);
+
+    BufferedImage image =
+        gc == null || GraphicsEnvironment.isHeadless()
+            ? new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB)
+            : gc.createCompatibleImage(imageWidth, imageHeight, Transparency.TRANSLUCENT);
+    Graphics2D g = image.createGraphics();
+    try {
+      g.scale(scale, scale);
+      g.setFont(font);
+      g.setColor(color);
+      g.drawString(text, -minX, -minY);
+    } finally {
+      g.dispose();
+    }
+    return new Sprite(image, -minX, -minY, width, height);
+  }
+}
@@ -0,0 +1,69 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * Startup timing log, printed with {@code --startup-log}. Each mark prints the time since the JVM
+ * started and the heap in use, so the cost of each startup step and the time to the first flash can
+ * be compared between versions. The idle heap is measured once, after a collection, a few seconds
+ * after the first flash.
+ */
+public final class StartupTiming {
+  static final long IDLE_DELAY_MILLIS = 5000L;
+  private static final double BYTES_PER_MIB = 1024.0 * 1024.0;
+
+  private static volatile boolean enabled = false;
+  private static volatile boolean firstFlash = false;
+
+  private StartupTiming() {
+    // Static helpers only
+  }
+
+  /** Starts printing marks. */
+  public static void enable() {
+    enabled = true;
+    mark("main");
+  }
+
+  /**
+   * Prints a startup step, if the log is enabled.
+   *
+   * @param step name of the step that just finished
+   */
+  public static void mark(String step) {
+    if (enabled) {
+      System.out.println(format(step));
+    }
+  }
+
+  /** Marks the first flash shown, then measures the idle heap a little later in the background. */
+  public static void firstFlash() {
+    if (!enabled || firstFlash) {
+      return;
+    }
+    firstFlash = true;
+    mark("first-flash");
+    Thread idle =
+        new Thread(
+            () -> {
+              try {
+                Thread.sleep(IDLE_DELAY_MILLIS);
+              } catch (InterruptedException ex) {
+                return;
+              }
+              System.gc();
+              mark("idle");
+            },
+            "FST-startup-idle");
+    idle.setDaemon(true);
+    idle.start();
+  }
+
+  static String format(String step) {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    return String.format(
+        "startup %-16s %7d ms %8.1f MiB heap",
+        step,
+        ManagementFactory.getRuntimeMXBean().getUptime(),
+        memory.getHeapMemoryUsage().getUsed() / BYTES_PER_MIB);
+  }
+}
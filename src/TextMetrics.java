@@ -0,0 +1,162 @@
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Text measurement without any window or graphics: everything is measured in an offscreen {@link
+ * FontRenderContext} matching how sprites are rendered. Line metrics are computed once per font,
+ * for the most recently used fonts, and the advances of recently measured messages are kept per
+ * font, as are the advances of single characters for estimating messages whose letters are
+ * shuffled. Bulk measurement goes through {@link #measure}, which keeps nothing and takes no lock.
+ */
+public final class TextMetrics {
+  /** Window graphics render without antialiasing or fractional metrics, so measure the same way. */
+  static final FontRenderContext FRC = new FontRenderContext(null, false, false);
+
+  static final int ADVANCE_CACHE_SIZE = 1024;
+  // Fonts whose metrics are kept, each with its caches
+  static final int FONT_CACHE_SIZE = 16;
+  // Characters below this have their advance kept once measured
+  static final int GLYPH_CACHE_SIZE = 0x800;
+  private static final float ROUNDING_UP = 0.95f;
+
+  private static final Map<Font, TextMetrics> METRICS =
+      Collections.synchronizedMap(
+          new LinkedHashMap<Font, TextMetrics>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Font, TextMetrics> eldest) {
+              return size() > FONT_CACHE_SIZE;
+            }
+          });
+
+  private final Font font;
+  private final int ascent;
+  private final int height;
+  // Advance of each character, NaN until measured; racing threads store the same value
+  private final float[] glyphs = new float[GLYPH_CACHE_SIZE];
+  private final Map<String, Integer> advances =
+      new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+          return size() > ADVANCE_CACHE_SIZE;
+        }
+      };
+
+  private TextMetrics(Font font) {
+    this.font = font;
+    LineMetrics line = font.getLineMetrics("", FRC);
+    // Rounded up the same way as FontMetrics
+    this.ascent = (int) (ROUNDING_UP + line.getAscent());
+    this.height = ascent + (int) (ROUNDING_UP + line.getDescent() + line.getLeading());
+    Arrays.fill(glyphs, Float.NaN);
+  }
+
+  /**
+   * Returns the metrics of a font, measuring it on first use.
+   *
+   * @param font font to measure
+   * @return its metrics, shared by every caller while the font is among the most recently used
+   */
+  public static TextMetrics of(Font font) {
+    return METRICS.computeIfAbsent(font, TextMetrics::new);
+  }
+
+  /**
+   * Returns the distance from the top of a line to its baseline.
+   *
+   * @return ascent in pixels
+   */
+  public int getAscent() {
+    return ascent;
+  }
+
+  /**
+   * Returns the distance between the baselines of two lines.
+   *
+   * @return line height in pixels
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Returns the advance width of a message, like {@code FontMetrics.stringWidth}.
+   *
+   * @param text message text
+   * @return width in pixels
+   */
+  public int advance(String text) {
+    synchronized (advances) {
+      Integer cached = advances.get(text);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    int width = measure(text);
+    synchronized (advances) {
+      advances.put(text, width);
+    }
+    return width;
+  }
+
+  /**
+   * Measures the advance width of a message without looking it up in or adding it to the cache, so
+   * measuring many messages from several threads neither waits on the cache nor evicts the messages
+   * being flashed.
+   *
+   * @param text message text
+   * @return width in pixels, the same as {@link #advance}
+   */
+  public int measure(String text) {
+    return (int) Math.round(font.getStringBounds(text, FRC).getWidth());
+  }
+
+  /**
+   * Returns the number of message advances kept.
+   *
+   * @return cached advances
+   */
+  int getCachedAdvances() {
+    synchronized (advances) {
+      return advances.size();
+    }
+  }
+
+  /**
+   * Returns the sum of the advances of a message's characters, measured one at a time. Kerning and
+   * ligatures are ignored, so this is the same for any order of the same characters.
+   *
+   * @param text message text
+   * @return estimated width in pixels
+   */
+  public int glyphAdvanceSum(String text) {
+    float sum = 0;
+    int i = 0;
+    while (i < text.length()) {
+      int c = text.codePointAt(i);
+      sum += glyphAdvance(c);
+      i += Character.charCount(c);
+    }
+    return Math.round(sum);
+  }
+
+  private float glyphAdvance(int c) {
+    if (c >= GLYPH_CACHE_SIZE) {
+      return measureGlyph(c);
+    }
+    float advance = glyphs[c];
+    if (Float.isNaN(advance)) {
+      advance = measureGlyph(c);
+      glyphs[c] = advance;
+    }
+    return advance;
+  }
+
+  private float measureGlyph(int c) {
+    return (float) font.getStringBounds(new String(Character.toChars(c)), FRC).getWidth();
+  }
+}
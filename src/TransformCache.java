@@ -0,0 +1,86 @@
+import java.util.Arrays;
+
+/**
+ * Ordered text of recently selected messages, for word and letter orders that always give the same
+ * text. Entries are kept per message index in a direct-mapped table, so a lookup is an array read
+ * and the memory used is bounded. The table belongs to one version of the messages and one pair of
+ * orders; it is emptied when either changes. Not thread safe.
+ */
+public final class TransformCache {
+  private final int[] keys;
+  private final String[] values;
+  private final int mask;
+  private MessageSet messages;
+  private int wordOrder;
+  private int letterOrder;
+  private long hits;
+  private long misses;
+
+  /**
+   * Creates an empty cache.
+   *
+   * @param capacity most entries kept, rounded up to a power of two
+   */
+  public TransformCache(int capacity) {
+    int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+    keys = new int[size];
+    values = new String[size];
+    mask = size - 1;
+    Arrays.fill(keys, -1);
+  }
+
+  /**
+   * Returns the ordered text of a message, ordering it only if it is not cached.
+   *
+   * @param messages version of the messages the index belongs to
+   * @param index index of the message
+   * @param wordOrder word ordering mode, not random
+   * @param letterOrder letter ordering mode, not random
+   * @return the message text, without weight, in the given orders
+   */
+  public String get(MessageSet messages, int index, int wordOrder, int letterOrder) {
+    if (messages != this.messages
+        || wordOrder != this.wordOrder
+        || letterOrder != this.letterOrder) {
+      clear();
+      this.messages = messages;
+      this.wordOrder = wordOrder;
+      this.letterOrder = letterOrder;
+    }
+    int slot = index & mask;
+    if (keys[slot] == index) {
+      hits++;
+      return values[slot];
+    }
+    misses++;
+    String text = MessageSelector.orderMessage(messages.get(index), wordOrder, letterOrder);
+    keys[slot] = index;
+    values[slot] = text;
+    return text;
+  }
+
+  /** Drops every entry. The hit and miss counts are kept. */
+  public void clear() {
+    Arrays.fill(keys, -1);
+    Arrays.fill(values, null);
+    messages = null;
+  }
+
+  /**
+   * Returns the number of lookups answered from the cache.
+   *
+   * @return hits since the cache was created
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of lookups that had to order the message.
+   *
+   * @return misses since the cache was created
+   */
+  public long getMisses() {
+    return misses;
+  }
+}
@@ -0,0 +1,86 @@
+import java.awt.Font;
+import java.util.stream.IntStream;
+
+/**
+ * The width of every message of one {@link MessageSet} in one font and word/letter order, so laying
+ * out a message is an array lookup instead of a measurement. With orders that always give the same
+ * text the width is exact. With random orders it is the sum of the advances of the message's
+ * characters, which is the same for every shuffle. The widths are measured in parallel across
+ * cores, straight from the font rather than through the shared advance cache. Immutable, so it can
+ * be shared between threads.
+ */
+public final class WidthTable {
+  // Larger message stores are measured per message as they are shown
+  static final int MAX_MESSAGES = 1 << 21;
+
+  private final MessageSet messages;
+  private final Font font;
+  private final int wordOrder;
+  private final int letterOrder;
+  private final int[] widths;
+
+  private WidthTable(MessageSet messages, Font font, int wordOrder, int letterOrder, int[] widths) {
+    this.messages = messages;
+    this.font = font;
+    this.wordOrder = wordOrder;
+    this.letterOrder = letterOrder;
+    this.widths = widths;
+  }
+
+  /**
+   * Measures every message.
+   *
+   * @param messages messages to measure, with their weight prefixes
+   * @param font font they are shown in
+   * @param wordOrder word ordering mode
+   * @param letterOrder letter ordering mode
+   * @return the table, or null if there are more than {@link #MAX_MESSAGES} messages
+   */
+  public static WidthTable build(MessageSet messages, Font font, int wordOrder, int letterOrder) {
+    if (messages.size() > MAX_MESSAGES) {
+      return null;
+    }
+    TextMetrics metrics = TextMetrics.of(font);
+    boolean exact =
+        MessageSelector.isDeterministic(wordOrder) && MessageSelector.isDeterministic(letterOrder);
+    int[] widths = new int[messages.size()];
+    IntStream.range(0, widths.length)
+        .parallel()
+        .forEach(
+            i -> {
+              String text = messages.get(i);
+              widths[i] =
+                  exact
+                      ? metrics.measure(MessageSelector.orderMessage(text, wordOrder, letterOrder))
+                      : metrics.glyphAdvanceSum(text);
+            });
+    return new WidthTable(messages, font, wordOrder, letterOrder, widths);
+  }
+
+  /**
+   * Returns whether the table was measured for these inputs.
+   *
+   * @param messages version of the messages
+   * @param font font
+   * @param wordOrder word ordering mode
+   * @param letterOrder letter ordering mode
+   * @return true if its widths apply
+   */
+  public boolean matches(MessageSet messages, Font font, int wordOrder, int letterOrder) {
+    return this.messages == messages
+        && this.font.equals(font)
+        && this.wordOrder == wordOrder
+        && this.letterOrder == letterOrder;
+  }
+
+  /**
+   * Returns the width of a message.
+   *
+   * @param messages version the index belongs to
+   * @param index index of the message
+   * @return width in pixels, or -1 if the message is not from this table's version
+   */
+  public int width(MessageSet messages, int index) {
+    return messages == this.messages && index >= 0 && index < widths.length ? widths[index] : -1;
+  }
+}
@@ -0,0 +1,77 @@
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Random;
+import net.jqwik.api.*;
+import net.jqwik.api.constraints.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("AliasTable Tests")
+class AliasTableTest {
+
+  @Test
+  @DisplayName("Samples follow the weights")
+  void testDistribution() {
+    double[] weights = {1, 0, 3, 6};
+    AliasTable table = new AliasTable(weights);
+    Random rnd = new Random(3);
+    int[] counts = new int[weights.length];
+
+    int samples = 100000;
+    for (int i = 0; i < samples; i++) {
+      counts[table.sample(rnd)]++;
+    }
+
+    assertThat(counts[1]).isZero();
+    for (int i = 0; i < weights.length; i++) {
+      assertThat(counts[i] / (double) samples).isCloseTo(weights[i] / 10.0, within(0.01));
+    }
+  }
+
+  @Test
+  @DisplayName("Nothing is sampled when every weight is zero")
+  void testAllZero() {
+    AliasTable table = new AliasTable(new double[] {0, 0});
+
+    assertThat(table.sample(new Random(1))).isEqualTo(-1);
+    assertThat(table.getTotal()).isZero();
+  }
+
+  @Test
+  @DisplayName("Negative and NaN weights are rejected")
+  void testInvalidWeights() {
+    assertThatThrownBy(() -> new AliasTable(new double[] {1, -1}))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new AliasTable(new double[] {Double.NaN}))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Property(tries = 200)
+  @Label("Indices of weight zero are never sampled")
+  void zeroWeightsNeverSampled(@ForAll("weights") double[] weights, @ForAll long seed) {
+    weights[0] = 0;
+    AliasTable table = new AliasTable(weights);
+    Random rnd = new Random(seed);
+
+    for (int i = 0; i < 500; i++) {
+      int index = table.sample(rnd);
+      if (table.getTotal() == 0) {
+        assertThat(index).isEqualTo(-1);
+      } else {
+        assertThat(weights[index]).isPositive();
+      }
+    }
+  }
+
+  @Provide
+  Arbitrary<double[]> weights() {
+    return Arbitraries.doubles()
+        .between(0, 5)
+        .ofScale(1)
+        .array(double[].class)
+        .ofMinSize(1)
+        .ofMaxSize(50);
+  }
+}
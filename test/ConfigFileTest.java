@@ -0,0 +1,139 @@
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import net.jqwik.api.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+@DisplayName("ConfigFile Tests")
+class ConfigFileTest {
+
+  private static ConfigFile read(String xml) throws XMLStreamException {
+    return ConfigFile.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  @DisplayName("Sections keep the attributes of the first element of each name")
+  void testSections() throws XMLStreamException {
+    ConfigFile config =
+        read(
+            "<fst author=\"a\"><timing on=\"50\" off=\"200\"/><timing on=\"1\"/>"
+                + "<font size=\"20\"/></fst>");
+
+    assertThat(config.getSection("fst").getAttribute("author")).isEqualTo("a");
+    assertThat(config.getSection("timing").getAttribute("on")).isEqualTo("50");
+    assertThat(config.getSection("timing").getAttribute("off")).isEqualTo("200");
+    assertThat(config.getSection("font").getAttribute("family")).isEmpty();
+    assertThat(config.getSection("position")).isNull();
+  }
+
+  @Test
+  @DisplayName("Message text includes entities, CDATA and nested text")
+  void testMessageText() throws XMLStreamException {
+    ConfigFile config =
+        read(
+            "<fst><message>Fish &amp; chips</message><message><![CDATA[<b>]]> bold</message>"
+                + "<message>a<i>b</i>c</message><message/></fst>");
+
+    assertThat(config.getMessages()).containsExactly("Fish & chips", "<b> bold", "abc", "");
+  }
+
+  @Test
+  @DisplayName("Message weights are read from a weight attribute, 1 if it is missing or bad")
+  void testReadWeights() throws XMLStreamException {
+    MessageSet messages =
+        read("<fst><message weight=\"3\">{2} Three</message><message weight=\"0\">Off</message>"
+                + "<message>One</message><message weight=\"x\">Bad</message>"
+                + "<message weight=\"-2\">Negative</message></fst>")
+            .getMessages();
+
+    assertThat(messages).containsExactly("{2} Three", "Off", "One", "Bad", "Negative");
+    assertThat(messages.getWeight(0)).isEqualTo(3.0);
+    assertThat(messages.getWeight(1)).isZero();
+    for (int i = 2; i < 5; i++) {
+      assertThat(messages.getWeight(i)).isEqualTo(1.0);
+    }
+  }
+
+  @Test
+  @DisplayName("Weights other than 1 are written as a weight attribute and read back")
+  void testWriteWeights(@TempDir File dir) throws Exception {
+    File file = new File(dir, "FSTConfig.xml");
+    ConfigFile.write(
+        file,
+        Map.of("fst.author", "a"),
+        MessageSet.of(List.of("A", "B", "C"), new double[] {2.5, 1, 0}));
+
+    assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8))
+        .contains("<message weight=\"2.5\">A</message>")
+        .contains("<message>B</message>")
+        .contains("<message weight=\"0\">C</message>");
+    MessageSet messages = ConfigFile.read(file).getMessages();
+    assertThat(messages).containsExactly("A", "B", "C");
+    assertThat(messages.getWeight(0)).isEqualTo(2.5);
+    assertThat(messages.getWeight(1)).isEqualTo(1.0);
+    assertThat(messages.getWeight(2)).isZero();
+  }
+
+  @Test
+  @DisplayName("Malformed XML is rejected")
+  void testMalformed() {
+    assertThatThrownBy(() -> read("<fst><message>unclosed</fst>"))
+        .isInstanceOf(XMLStreamException.class);
+  }
+
+  @Property(tries = 200)
+  @Label("Messages match what the DOM loader read from a saved config")
+  void messagesMatchDom(@ForAll("messageLists") List<String> messages) throws Exception {
+    Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    Element top = doc.createElement("fst");
+    for (String msg : messages) {
+      Element messageNode = doc.createElement("message");
+      messageNode.setTextContent(msg);
+      top.appendChild(messageNode);
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TransformerFactory.newInstance()
+        .newTransformer()
+        .transform(new DOMSource(top), new StreamResult(out));
+    byte[] xml = out.toByteArray();
+
+    NodeList nl =
+        DocumentBuilderFactory.newInstance()
+            .newDocumentBuilder()
+            .parse(new ByteArrayInputStream(xml))
+            .getElementsByTagName("message");
+    List<String> dom = new ArrayList<>();
+    for (int x = 0; x < nl.getLength(); x++) {
+      dom.add(nl.item(x).getTextContent());
+    }
+
+    assertThat(ConfigFile.read(new ByteArrayInputStream(xml)).getMessages()).isEqualTo(dom);
+  }
+
+  @Provide
+  Arbitrary<List<String>> messageLists() {
+    return Arbitraries.strings()
+        .withChars("ab <>&\"']]\u00e9")
+        .ofMaxLength(30)
+        .list()
+        .ofMaxSize(20);
+  }
+}
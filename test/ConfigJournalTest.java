@@ -0,0 +1,342 @@
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLStreamException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("ConfigJournal Tests")
+class ConfigJournalTest {
+
+  private static final long NO_COMPACTION = Long.MAX_VALUE;
+
+  @TempDir File dir;
+
+  private File snapshot() {
+    return new File(dir, "FSTConfig.xml");
+  }
+
+  private File journalFile() {
+    return new File(dir, "FSTConfig.journal");
+  }
+
+  private ConfigJournal open(long compactBytes) {
+    return new ConfigJournal(snapshot(), journalFile(), compactBytes);
+  }
+
+  private static Map<String, String> settings(String... pairs) {
+    Map<String, String> settings = new LinkedHashMap<>();
+    for (int i = 0; i < pairs.length; i += 2) {
+      settings.put(pairs[i], pairs[i + 1]);
+    }
+    return settings;
+  }
+
+  private ConfigFile reopen(long compactBytes) throws IOException, XMLStreamException {
+    ConfigJournal journal = open(compactBytes);
+    try {
+      return journal.recover();
+    } finally {
+      journal.close();
+    }
+  }
+
+  @Test
+  @DisplayName("Recovery without a snapshot or journal reports a missing config")
+  void testNothingSaved() {
+    ConfigJournal journal = open(NO_COMPACTION);
+
+    assertThatThrownBy(journal::recover).isInstanceOf(FileNotFoundException.class);
+    journal.close();
+  }
+
+  @Test
+  @DisplayName("Saved settings and message edits are recovered from the journal alone")
+  void testRecoverJournal() throws Exception {
+    ConfigJournal journal = open(NO_COMPACTION);
+    assertThatThrownBy(journal::recover).isInstanceOf(FileNotFoundException.class);
+    journal.save(settings("fst.author", "a", "font.size", "35"), Arrays.asList("one", "two"));
+    journal.flush(10_000);
+    journal.save(
+        settings("fst.author", "a", "font.size", "40", "store.path", "x"),
+        Arrays.asList("one", "\u00e9", "two", "three"));
+    journal.save(settings("fst.author", "a", "font.size", "41"), Arrays.asList("zero", "two"));
+    journal.close();
+
+    ConfigFile config = reopen(NO_COMPACTION);
+
+    assertThat(config.getSettings())
+        .containsExactly(Map.entry("fst.author", "a"), Map.entry("font.size", "41"));
+    assertThat(config.getMessages()).containsExactly("zero", "two");
+    assertThat(snapshot()).doesNotExist();
+  }
+
+  @Test
+  @DisplayName("Unchanged saves append nothing")
+  void testNoChange() throws Exception {
+    ConfigFile.write(snapshot(), settings("fst.author", "a"), Arrays.asList("one"));
+    ConfigJournal journal = open(NO_COMPACTION);
+    ConfigFile config = journal.recover();
+
+    journal.save(config.getSettings(), config.getMessages());
+    journal.save(settings("fst.author", "a"), new ArrayList<>(Arrays.asList("one")));
+    journal.close();
+
+    assertThat(journalFile().length()).isZero();
+  }
+
+  @Test
+  @DisplayName("A torn record at the end of the journal is dropped and later saves still recover")
+  void testTornTail() throws Exception {
+    ConfigJournal journal = open(NO_COMPACTION);
+    assertThatThrownBy(journal::recover).isInstanceOf(FileNotFoundException.class);
+    journal.save(settings("fst.author", "a"), Arrays.asList("one"));
+    journal.flush(10_000);
+    long good = journalFile().length();
+    journal.save(settings("fst.author", "b"), Arrays.asList("one", "two"));
+    journal.close();
+    try (RandomAccessFile raf = new RandomAccessFile(journalFile(), "rw")) {
+      raf.setLength(raf.length() - 3);
+    }
+
+    journal = open(NO_COMPACTION);
+    ConfigFile config = journal.recover();
+    assertThat(config.getSettings()).containsEntry("fst.author", "b");
+    assertThat(config.getMessages()).containsExactly("one");
+    journal.save(settings("fst.author", "c"), Arrays.asList("one", "three"));
+    journal.close();
+
+    assertThat(journalFile().length()).isGreaterThan(good);
+    config = reopen(NO_COMPACTION);
+    assertThat(config.getSettings()).containsEntry("fst.author", "c");
+    assertThat(config.getMessages()).containsExactly("one", "three");
+  }
+
+  @Test
+  @DisplayName("A record with a bad checksum ends replay")
+  void testCorruptRecord() throws Exception {
+    ConfigJournal journal = open(NO_COMPACTION);
+    assertThatThrownBy(journal::recover).isInstanceOf(FileNotFoundException.class);
+    journal.save(settings("fst.author", "a"), Arrays.asList("one"));
+    journal.flush(10_000);
+    long good = journalFile().length();
+    journal.save(settings("fst.author", "b"), Arrays.asList("one"));
+    journal.close();
+    try (RandomAccessFile raf = new RandomAccessFile(journalFile(), "rw")) {
+      raf.seek(good + 14);
+      raf.write(raf.read() ^ 0xFF);
+    }
+
+    ConfigFile config = reopen(NO_COMPACTION);
+
+    assertThat(config.getSettings()).containsEntry("fst.author", "a");
+    assertThat(journalFile().length()).isEqualTo(good);
+  }
+
+  @Test
+  @DisplayName("Compaction writes a snapshot and keeps only later records in the journal")
+  void testCompaction() throws Exception {
+    ConfigJournal journal = open(1);
+    assertThatThrownBy(journal::recover).isInstanceOf(FileNotFoundException.class);
+    List<String> messages = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      messages = new ArrayList<>(messages);
+      messages.add("message " + i);
+      journal.save(settings("fst.author", "a", "timing.on", Integer.toString(i)), messages);
+    }
+    journal.close();
+
+    assertThat(snapshot()).exists();
+    ConfigFile config = reopen(NO_COMPACTION);
+    assertThat(config.getSettings())
+        .containsExactly(Map.entry("fst.author", "a"), Map.entry("timing.on", "49"));
+    assertThat(config.getMessages()).hasSize(50).endsWith("message 49");
+  }
+
+  @Test
+  @DisplayName("Records already in the snapshot are not applied again")
+  void testSnapshotCoversJournal() throws Exception {
+    ConfigJournal journal = open(NO_COMPACTION);
+    assertThatThrownBy(journal::recover).isInstanceOf(FileNotFoundException.class);
+    journal.save(settings("fst.author", "a"), Arrays.asList("one"));
+    journal.save(settings("fst.author", "a"), Arrays.asList("one", "two"));
+    journal.flush(10_000);
+    long sequence = journal.getSequence();
+    journal.close();
+    // As if the process died after the snapshot was written but before the journal was trimmed
+    Map<String, String> covered = settings("fst.author", "a");
+    covered.put(ConfigJournal.SEQUENCE, Long.toString(sequence));
+    ConfigFile.write(snapshot(), covered, Arrays.asList("one", "two"));
+
+    ConfigFile config = reopen(NO_COMPACTION);
+
+    assertThat(config.getMessages()).containsExactly("one", "two");
+    assertThat(config.getSettings()).doesNotContainKey(ConfigJournal.SEQUENCE);
+  }
+
+  @Test
+  @DisplayName("A snapshot that is not well-formed is set aside and the journal discarded")
+  void testBadSnapshot() throws Exception {
+    Files.write(snapshot().toPath(), "<fst><message>".getBytes(StandardCharsets.UTF_8));
+    ConfigJournal journal = open(NO_COMPACTION);
+
+    assertThatThrownBy(journal::recover).isInstanceOf(XMLStreamException.class);
+    journal.save(settings("fst.author", "a"), Arrays.asList("one"));
+    journal.close();
+
+    assertThat(new File(dir, "FSTConfig.xml.bad")).exists();
+    assertThat(reopen(NO_COMPACTION).getMessages()).containsExactly("one");
+  }
+
+  @Test
+  @DisplayName("Snapshots round trip through the FSTConfig.xml layout")
+  void testSnapshotRoundTrip() throws Exception {
+    Map<String, String> settings =
+        settings("fst.author", "a", "font.family", "Sans & <Serif>", "timing.on", "100");
+    List<String> messages = Arrays.asList("one", "", "a < b & \"c\"", "\u65e5\u672c");
+
+    ConfigFile.write(snapshot(), settings, messages);
+    ConfigFile config = ConfigFile.read(snapshot());
+
+    assertThat(config.getSettings()).isEqualTo(settings);
+    assertThat(config.getMessages()).isEqualTo(messages);
+    assertThat(config.getSection("fst").getAttribute("author")).isEqualTo("a");
+    assertThat(new File(dir, "FSTConfig.xml.tmp")).doesNotExist();
+  }
+
+  @Test
+  @DisplayName("The binary snapshot is written after reading the XML and used while they match")
+  void testBinarySnapshot() throws Exception {
+    File binary = new File(dir, "FSTConfig.bin");
+    ConfigFile.write(snapshot(), settings("fst.author", "a"), Arrays.asList("one", "two"));
+    ConfigJournal journal = new ConfigJournal(snapshot(), binary, journalFile(), NO_COMPACTION);
+    journal.recover();
+    journal.save(settings("fst.author", "a"), Arrays.asList("one", "two", "three"));
+    journal.close();
+
+    assertThat(ConfigSnapshot.read(binary, snapshot()).getMessages()).containsExactly("one", "two");
+    journal = new ConfigJournal(snapshot(), binary, journalFile(), NO_COMPACTION);
+    assertThat(journal.recover().getMessages()).containsExactly("one", "two", "three");
+    journal.close();
+
+    // A hand edit of the XML wins over the journal written before it
+    ConfigFile.write(snapshot(), settings("fst.author", "a"), Arrays.asList("edited"));
+    journal = new ConfigJournal(snapshot(), binary, journalFile(), NO_COMPACTION);
+    assertThat(journal.recover().getMessages()).containsExactly("edited");
+    journal.close();
+  }
+
+  @Test
+  @DisplayName("Compaction also refreshes the binary snapshot")
+  void testCompactionWritesBinary() throws Exception {
+    File binary = new File(dir, "FSTConfig.bin");
+    ConfigJournal journal = new ConfigJournal(snapshot(), binary, journalFile(), 1);
+    assertThatThrownBy(journal::recover).isInstanceOf(FileNotFoundException.class);
+    journal.save(settings("fst.author", "a"), Arrays.asList("one"));
+    journal.close();
+
+    ConfigFile config = ConfigSnapshot.read(binary, snapshot());
+    assertThat(config).isNotNull();
+    assertThat(config.getMessages()).containsExactly("one");
+  }
+
+  @Test
+  @DisplayName("A change of weight alone is journaled and recovered")
+  void testWeightChange() throws Exception {
+    ConfigFile.write(snapshot(), settings("fst.author", "a"), Arrays.asList("one", "two"));
+    ConfigJournal journal = open(NO_COMPACTION);
+    MessageSet messages = journal.recover().getMessages();
+    journal.save(settings("fst.author", "a"), messages.withWeight(1, 0).withWeight(0, 2.5));
+    journal.close();
+
+    MessageSet recovered = reopen(NO_COMPACTION).getMessages();
+
+    assertThat(recovered).containsExactly("one", "two");
+    assertThat(recovered.getWeight(0)).isEqualTo(2.5);
+    assertThat(recovered.getWeight(1)).isZero();
+  }
+
+  @Test
+  @DisplayName("A journal written before the XML was edited by hand is ignored")
+  void testHandEditedSnapshot() throws Exception {
+    ConfigFile.write(
+        snapshot(), settings("fst.author", "a"), Arrays.asList("1", "2", "3", "4", "5"));
+    ConfigJournal journal = open(NO_COMPACTION);
+    journal.recover();
+    journal.save(settings("fst.author", "a"), Arrays.asList("1", "2", "3", "4"));
+    journal.close();
+
+    ConfigFile.write(snapshot(), settings("fst.author", "b"), Arrays.asList("1", "2"));
+    ConfigFile config = reopen(NO_COMPACTION);
+
+    assertThat(config.getSettings()).containsEntry("fst.author", "b");
+    assertThat(config.getMessages()).containsExactly("1", "2");
+    assertThat(journalFile().length()).isZero();
+  }
+
+  @Test
+  @DisplayName("A splice that does not fit the messages ends replay")
+  void testSpliceOutOfRange() throws Exception {
+    ConfigFile.write(
+        snapshot(), settings("fst.author", "a"), Arrays.asList("1", "2", "3", "4", "5"));
+    ConfigJournal journal = open(NO_COMPACTION);
+    journal.recover();
+    journal.save(settings("fst.author", "b"), Arrays.asList("1", "2", "3", "4"));
+    journal.close();
+    // As if a snapshot holding the settings record had been written over fewer messages
+    Map<String, String> covered = settings("fst.author", "b");
+    covered.put(ConfigJournal.SEQUENCE, "1");
+    ConfigFile.write(snapshot(), covered, Arrays.asList("1", "2"));
+    long written = journalFile().length();
+
+    ConfigFile config = reopen(NO_COMPACTION);
+
+    assertThat(config.getMessages()).containsExactly("1", "2");
+    // The splice and anything after it are dropped
+    assertThat(journalFile().length()).isLessThan(written);
+    config = reopen(NO_COMPACTION);
+    assertThat(config.getMessages()).containsExactly("1", "2");
+  }
+
+  @Test
+  @DisplayName("A few dozen records write a new snapshot whatever their size")
+  void testCompactAfterRecords() throws Exception {
+    ConfigJournal journal = open(NO_COMPACTION);
+    assertThatThrownBy(journal::recover).isInstanceOf(FileNotFoundException.class);
+    for (int i = 0; i < ConfigJournal.COMPACT_RECORDS; i++) {
+      journal.save(settings("fst.author", "a", "timing.on", Integer.toString(i)), List.of());
+      journal.flush(10_000);
+    }
+    journal.close();
+
+    assertThat(snapshot()).exists();
+    assertThat(ConfigFile.read(snapshot()).getSettings()).containsEntry("timing.on", "31");
+  }
+
+  @Test
+  @DisplayName("Compacting on exit leaves the XML current and the journal empty")
+  void testCompactOnExit() throws Exception {
+    ConfigFile.write(snapshot(), settings("fst.author", "a"), Arrays.asList("one"));
+    ConfigJournal journal = open(NO_COMPACTION);
+    journal.recover();
+    journal.save(settings("fst.author", "a"), Arrays.asList("one", "two"));
+    journal.compact();
+    journal.close();
+
+    assertThat(ConfigFile.read(snapshot()).getMessages()).containsExactly("one", "two");
+    assertThat(journalFile().length()).isEqualTo(ConfigJournal.FILE_HEADER_BYTES);
+    assertThat(reopen(NO_COMPACTION).getMessages()).containsExactly("one", "two");
+  }
+}
@@ -0,0 +1,117 @@
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("ConfigSnapshot Tests")
+class ConfigSnapshotTest {
+
+  private static final List<String> MESSAGES =
+      Arrays.asList("one", "", "caf\u00e9 \u65e5\u672c", "last");
+
+  @TempDir File dir;
+
+  private File xml() {
+    return new File(dir, "FSTConfig.xml");
+  }
+
+  private File bin() {
+    return new File(dir, "FSTConfig.bin");
+  }
+
+  private static Map<String, String> settings() {
+    Map<String, String> settings = new LinkedHashMap<>();
+    settings.put("fst.author", "a");
+    settings.put("order.position", "7");
+    settings.put("font.family", "caf\u00e9");
+    return settings;
+  }
+
+  private void writeBoth() throws Exception {
+    ConfigFile.write(xml(), settings(), MESSAGES);
+    ConfigSnapshot.write(bin(), xml(), settings(), MESSAGES);
+  }
+
+  @Test
+  @DisplayName("Settings and messages read back from the binary snapshot")
+  void testRoundTrip() throws Exception {
+    writeBoth();
+
+    ConfigFile config = ConfigSnapshot.read(bin(), xml());
+
+    assertThat(config).isNotNull();
+    assertThat(config.getSettings()).containsExactlyEntriesOf(settings());
+    assertThat(config.getMessages()).containsExactlyElementsOf(MESSAGES);
+  }
+
+  @Test
+  @DisplayName("Message weights read back from the binary snapshot")
+  void testWeights() throws Exception {
+    MessageSet messages = MessageSet.of(MESSAGES, new double[] {0, 2.5, 1, 1});
+    ConfigFile.write(xml(), settings(), messages);
+    ConfigSnapshot.write(bin(), xml(), settings(), messages);
+
+    MessageSet read = ConfigSnapshot.read(bin(), xml()).getMessages();
+
+    assertThat(read).containsExactlyElementsOf(MESSAGES);
+    for (int i = 0; i < MESSAGES.size(); i++) {
+      assertThat(read.getWeight(i)).isEqualTo(messages.getWeight(i));
+    }
+  }
+
+  @Test
+  @DisplayName("A missing binary or XML file gives no snapshot")
+  void testMissing() throws Exception {
+    assertThat(ConfigSnapshot.read(bin(), xml())).isNull();
+    writeBoth();
+    xml().delete();
+
+    assertThat(ConfigSnapshot.read(bin(), xml())).isNull();
+  }
+
+  @Test
+  @DisplayName("An edited XML file makes the binary snapshot stale")
+  void testStale() throws Exception {
+    writeBoth();
+
+    ConfigFile.write(xml(), settings(), Arrays.asList("edited"));
+
+    assertThat(ConfigSnapshot.read(bin(), xml())).isNull();
+  }
+
+  @Test
+  @DisplayName("An XML file touched without a change in length still makes the snapshot stale")
+  void testTouched() throws Exception {
+    writeBoth();
+
+    assertThat(xml().setLastModified(xml().lastModified() - 10_000)).isTrue();
+
+    assertThat(ConfigSnapshot.read(bin(), xml())).isNull();
+  }
+
+  @Test
+  @DisplayName("A damaged or truncated binary snapshot is ignored")
+  void testDamaged() throws Exception {
+    writeBoth();
+    try (RandomAccessFile raf = new RandomAccessFile(bin(), "rw")) {
+      raf.seek(30);
+      int b = raf.read();
+      raf.seek(30);
+      raf.write(b ^ 0x01);
+    }
+    assertThat(ConfigSnapshot.read(bin(), xml())).isNull();
+
+    writeBoth();
+    try (RandomAccessFile raf = new RandomAccessFile(bin(), "rw")) {
+      raf.setLength(raf.length() - 1);
+    }
+    assertThat(ConfigSnapshot.read(bin(), xml())).isNull();
+  }
+}
@@ -0,0 +1,78 @@
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("DisplayGeometry Tests")
+class DisplayGeometryTest {
+
+  private static OverlayManager.Screen screen(int x, int width, int height) {
+    return new OverlayManager.Screen(null, new Rectangle(x, 0, width, height), 1.0);
+  }
+
+  @Test
+  @DisplayName("Screens are read once up front and kept until a refresh")
+  void testCached() {
+    AtomicInteger reads = new AtomicInteger();
+    DisplayGeometry geometry =
+        new DisplayGeometry(
+            () -> {
+              reads.incrementAndGet();
+              return Arrays.asList(screen(0, 100, 100));
+            });
+
+    for (int i = 0; i < 10; i++) {
+      assertThat(geometry.getScreens()).hasSize(1);
+    }
+
+    assertThat(reads).hasValue(1);
+    assertThatThrownBy(() -> geometry.getScreens().add(screen(0, 1, 1)))
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  @DisplayName("Listeners are told only when the screens change")
+  void testRefresh() {
+    AtomicReference<List<OverlayManager.Screen>> current =
+        new AtomicReference<>(Arrays.asList(screen(0, 100, 100)));
+    DisplayGeometry geometry = new DisplayGeometry(current::get);
+    List<List<OverlayManager.Screen>> seen = new ArrayList<>();
+    geometry.addListener(seen::add);
+
+    assertThat(geometry.refresh()).isFalse();
+    // Same area read again as new objects
+    current.set(Arrays.asList(screen(0, 100, 100)));
+    assertThat(geometry.refresh()).isFalse();
+    assertThat(seen).isEmpty();
+
+    // A panel takes 20 pixels, then a second screen is added
+    current.set(Arrays.asList(screen(0, 100, 80)));
+    assertThat(geometry.refresh()).isTrue();
+    current.set(Arrays.asList(screen(0, 100, 80), screen(100, 50, 50)));
+    assertThat(geometry.refresh()).isTrue();
+
+    assertThat(seen).hasSize(2);
+    assertThat(seen.get(0).get(0).getBounds().height).isEqualTo(80);
+    assertThat(geometry.getScreens()).hasSize(2);
+  }
+
+  @Test
+  @DisplayName("A read with no screens is ignored")
+  void testNoScreens() {
+    AtomicReference<List<OverlayManager.Screen>> current =
+        new AtomicReference<>(Arrays.asList(screen(0, 100, 100)));
+    DisplayGeometry geometry = new DisplayGeometry(current::get);
+
+    current.set(new ArrayList<>());
+
+    assertThat(geometry.refresh()).isFalse();
+    assertThat(geometry.getScreens()).hasSize(1);
+  }
+}
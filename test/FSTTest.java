@@ -31,18 +31,18 @@ public class FSTTest {
     @DisplayName("Test default font settings")
     public void testDefaultFontSettings() {
         // Verify default font settings
-        assertThat(FST.font).isNotNull();
-        assertThat(FST.font.getFamily()).isEqualTo("Dialog");
-        assertThat(FST.font.getSize()).isEqualTo(35);
+        assertThat(FST.settings().getFont()).isNotNull();
+        assertThat(FST.settings().getFont().getFamily()).isEqualTo("Dialog");
+        assertThat(FST.settings().getFont().getSize()).isEqualTo(35);
     }
 
     @Test
     @DisplayName("Test default color settings")
     public void testDefaultColorSettings() {
         // Verify default color settings
-        assertThat(FST.fontColour).isNotNull();
-        assertThat(FST.fontColour.getAlpha()).isEqualTo(30);
-        assertThat(FST.fontColour.getBlue()).isEqualTo(255);
+        assertThat(FST.settings().getColour()).isNotNull();
+        assertThat(FST.settings().getColour().getAlpha()).isEqualTo(30);
+        assertThat(FST.settings().getColour().getBlue()).isEqualTo(255);
     }
 
     @Test
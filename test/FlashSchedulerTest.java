@@ -0,0 +1,177 @@
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("FlashScheduler Tests")
+class FlashSchedulerTest {
+
+  /** Records when each phase ran, counting down after the given number of hides. */
+  private static class RecordingTarget implements FlashScheduler.Target {
+    final List<Long> shows = new ArrayList<>();
+    final List<Long> hides = new ArrayList<>();
+    final CountDownLatch done;
+    volatile boolean available = true;
+    volatile boolean onEdt = true;
+
+    RecordingTarget(int cycles) {
+      done = new CountDownLatch(cycles);
+    }
+
+    @Override
+    public boolean show() {
+      onEdt &= SwingUtilities.isEventDispatchThread();
+      synchronized (this) {
+        shows.add(System.nanoTime());
+      }
+      if (!available) {
+        done.countDown();
+      }
+      return available;
+    }
+
+    @Override
+    public void hide() {
+      onEdt &= SwingUtilities.isEventDispatchThread();
+      synchronized (this) {
+        hides.add(System.nanoTime());
+      }
+      done.countDown();
+    }
+  }
+
+  private FlashScheduler scheduler;
+
+  @AfterEach
+  void tearDown() {
+    if (scheduler != null) {
+      scheduler.stop();
+    }
+  }
+
+  @Test
+  @DisplayName("Shows and hides on the EDT with the requested durations")
+  void testCycleDurations() throws Exception {
+    RecordingTarget target = new RecordingTarget(5);
+    scheduler = new FlashScheduler(target, 40, 20);
+
+    scheduler.start();
+    assertThat(target.done.await(5, TimeUnit.SECONDS)).isTrue();
+    scheduler.stop();
+
+    assertThat(target.onEdt).isTrue();
+    synchronized (target) {
+      for (int i = 0; i < 5; i++) {
+        long visible = TimeUnit.NANOSECONDS.toMillis(target.hides.get(i) - target.shows.get(i));
+        assertThat(visible).isGreaterThanOrEqualTo(35L);
+        if (i > 0) {
+          long hidden =
+              TimeUnit.NANOSECONDS.toMillis(target.shows.get(i) - target.hides.get(i - 1));
+          assertThat(hidden).isGreaterThanOrEqualTo(15L);
+        }
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Waits the delay and retries when there is nothing to show")
+  void testNothingToShow() throws Exception {
+    RecordingTarget target = new RecordingTarget(3);
+    target.available = false;
+    scheduler = new FlashScheduler(target, 1000, 20);
+
+    scheduler.start();
+    assertThat(target.done.await(5, TimeUnit.SECONDS)).isTrue();
+    scheduler.stop();
+
+    synchronized (target) {
+      assertThat(target.hides).isEmpty();
+      assertThat(target.shows.size()).isGreaterThanOrEqualTo(3);
+    }
+  }
+
+  @Test
+  @DisplayName("First message waits for the start delay")
+  void testStartDelay() throws Exception {
+    RecordingTarget target = new RecordingTarget(1);
+    scheduler = new FlashScheduler(target, 20, 20);
+
+    long started = System.nanoTime();
+    scheduler.start(TimeUnit.MILLISECONDS.toNanos(100));
+    assertThat(target.done.await(5, TimeUnit.SECONDS)).isTrue();
+    scheduler.stop();
+
+    synchronized (target) {
+      assertThat(TimeUnit.NANOSECONDS.toMillis(target.shows.get(0) - started))
+          .isGreaterThanOrEqualTo(95L);
+    }
+  }
+
+  @Test
+  @DisplayName("Duration changes take effect on the next cycle")
+  void testSetDurations() throws Exception {
+    RecordingTarget target = new RecordingTarget(3);
+    scheduler = new FlashScheduler(target, 2000, 2000);
+    scheduler.setDurations(10, 10);
+
+    long start = System.nanoTime();
+    scheduler.start();
+    assertThat(target.done.await(5, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000L);
+  }
+
+  @Test
+  @DisplayName("Duration changes while running apply from the next cycle")
+  void testSetDurationsWhileRunning() throws Exception {
+    RecordingTarget target = new RecordingTarget(5);
+    scheduler = new FlashScheduler(target, 20, 20);
+
+    scheduler.start();
+    // Two cycles with the first durations
+    while (target.done.getCount() > 3) {
+      Thread.sleep(1);
+    }
+    long changed = System.nanoTime();
+    scheduler.setDurations(150, 100);
+    assertThat(target.done.await(5, TimeUnit.SECONDS)).isTrue();
+    scheduler.stop();
+
+    synchronized (target) {
+      int changedCycles = 0;
+      for (int i = 0; i < target.hides.size(); i++) {
+        if (target.shows.get(i) > changed) {
+          long visible = TimeUnit.NANOSECONDS.toMillis(target.hides.get(i) - target.shows.get(i));
+          assertThat(visible).isGreaterThanOrEqualTo(145L);
+          changedCycles++;
+        }
+        if (i > 0 && target.hides.get(i - 1) > changed) {
+          long hidden =
+              TimeUnit.NANOSECONDS.toMillis(target.shows.get(i) - target.hides.get(i - 1));
+          assertThat(hidden).isGreaterThanOrEqualTo(95L);
+        }
+      }
+      assertThat(changedCycles).isGreaterThanOrEqualTo(2);
+    }
+  }
+
+  @Test
+  @DisplayName("Runs on a thread with the given name")
+  void testThreadName() throws Exception {
+    RecordingTarget target = new RecordingTarget(1);
+    scheduler = new FlashScheduler("FST-flash-scheduler-3", target, 20, 20);
+
+    scheduler.start();
+    assertThat(target.done.await(5, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(Thread.getAllStackTraces().keySet())
+        .extracting(Thread::getName)
+        .contains("FST-flash-scheduler-3");
+  }
+}
@@ -0,0 +1,77 @@
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("FontFamilyCache Tests")
+class FontFamilyCacheTest {
+
+  @TempDir File dir;
+
+  private final AtomicInteger scans = new AtomicInteger();
+
+  private Supplier<String[]> scan(String... families) {
+    return () -> {
+      scans.incrementAndGet();
+      return families;
+    };
+  }
+
+  private FontFamilyCache cache(File fonts) {
+    return new FontFamilyCache(new File(dir, "FSTFonts.cache"), Collections.singletonList(fonts));
+  }
+
+  @Test
+  @DisplayName("Families are scanned once and then read from the cache")
+  void testCached() {
+    File fonts = new File(dir, "fonts");
+    fonts.mkdir();
+
+    assertThat(cache(fonts).load(scan("Dialog", "Serif"))).containsExactly("Dialog", "Serif");
+    assertThat(cache(fonts).load(scan("Other"))).containsExactly("Dialog", "Serif");
+    assertThat(scans).hasValue(1);
+  }
+
+  @Test
+  @DisplayName("A change in a font directory or below it causes a new scan")
+  void testFontsChanged() throws Exception {
+    File fonts = new File(dir, "fonts");
+    File sub = new File(fonts, "truetype");
+    sub.mkdirs();
+    cache(fonts).load(scan("Dialog"));
+
+    assertThat(sub.setLastModified(sub.lastModified() - 10_000)).isTrue();
+
+    assertThat(cache(fonts).load(scan("Dialog", "New"))).containsExactly("Dialog", "New");
+    new File(sub, "extra").mkdir();
+    assertThat(cache(fonts).load(scan("Dialog", "New", "Extra"))).hasSize(3);
+    assertThat(scans).hasValue(3);
+  }
+
+  @Test
+  @DisplayName("A damaged cache file is replaced by a scan")
+  void testDamagedCache() throws Exception {
+    File fonts = new File(dir, "fonts");
+    fonts.mkdir();
+    Files.write(new File(dir, "FSTFonts.cache").toPath(), "junk".getBytes(StandardCharsets.UTF_8));
+
+    assertThat(cache(fonts).load(scan("Dialog"))).containsExactly("Dialog");
+    assertThat(cache(fonts).load(scan("Other"))).containsExactly("Dialog");
+    assertThat(scans).hasValue(1);
+  }
+
+  @Test
+  @DisplayName("Missing font directories still give a stable fingerprint")
+  void testMissingDirs() {
+    File fonts = new File(dir, "absent");
+
+    assertThat(cache(fonts).fingerprint()).isEqualTo(cache(fonts).fingerprint());
+  }
+}
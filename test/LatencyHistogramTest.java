@@ -0,0 +1,94 @@
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.concurrent.TimeUnit;
+import net.jqwik.api.*;
+import net.jqwik.api.constraints.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("LatencyHistogram Tests")
+class LatencyHistogramTest {
+
+  @Test
+  @DisplayName("Empty histogram reports zeros")
+  void testEmpty() {
+    LatencyHistogram h = new LatencyHistogram();
+
+    assertThat(h.getCount()).isZero();
+    assertThat(h.getMean()).isZero();
+    assertThat(h.getPercentile(99)).isZero();
+  }
+
+  @Test
+  @DisplayName("Small values are counted exactly")
+  void testExactSmallValues() {
+    LatencyHistogram h = new LatencyHistogram();
+    for (int i = 1; i <= 10; i++) {
+      h.record(i);
+    }
+
+    assertThat(h.getPercentile(50)).isEqualTo(5);
+    assertThat(h.getPercentile(100)).isEqualTo(10);
+    assertThat(h.getMean()).isEqualTo(5.5);
+  }
+
+  @Test
+  @DisplayName("Percentiles of a uniform millisecond range are within bucket error")
+  void testUniformPercentiles() {
+    LatencyHistogram h = new LatencyHistogram();
+    for (int ms = 1; ms <= 1000; ms++) {
+      h.record(TimeUnit.MILLISECONDS.toNanos(ms));
+    }
+
+    assertThat((double) h.getPercentile(50)).isCloseTo(500e6, within(500e6 * 0.04));
+    assertThat((double) h.getPercentile(99)).isCloseTo(990e6, within(990e6 * 0.04));
+    assertThat(h.getPercentile(100)).isEqualTo(h.getMax()).isEqualTo(1000_000_000L);
+  }
+
+  @Test
+  @DisplayName("Negative and huge values are clamped into range")
+  void testClamping() {
+    LatencyHistogram h = new LatencyHistogram();
+    h.record(-5);
+    h.record(Long.MAX_VALUE);
+
+    assertThat(h.getCount()).isEqualTo(2);
+    assertThat(h.getPercentile(1)).isZero();
+    assertThat(h.getPercentile(100)).isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test
+  @DisplayName("Reset clears all counts")
+  void testReset() {
+    LatencyHistogram h = new LatencyHistogram();
+    h.record(123_456);
+    h.reset();
+
+    assertThat(h.getCount()).isZero();
+    assertThat(h.getMax()).isZero();
+    assertThat(h.getPercentile(50)).isZero();
+  }
+
+  @Test
+  @DisplayName("Timing report lists every histogram")
+  void testReport() {
+    FlashTiming timing = new FlashTiming();
+    timing.recordVisible(100, TimeUnit.MILLISECONDS.toNanos(104));
+    timing.recordPrepare(TimeUnit.MICROSECONDS.toNanos(300));
+    timing.recordPaint(TimeUnit.MICROSECONDS.toNanos(50));
+
+    assertThat(timing.getFlashCount()).isEqualTo(1);
+    assertThat(timing.getVisibleErrorP50Millis()).isCloseTo(4.0, within(0.2));
+    assertThat(timing.report()).contains("visible", "visible-error", "prepare", "paint");
+  }
+
+  @Property
+  @Label("Bucket upper bound is within 1/32 of every value it holds")
+  void bucketRelativeError(@ForAll @LongRange(min = 0, max = 1L << 40) long value) {
+    long upper = LatencyHistogram.upperBound(LatencyHistogram.bucketOf(value));
+
+    assertThat(upper).isGreaterThanOrEqualTo(value);
+    assertThat((double) (upper - value)).isLessThanOrEqualTo(value / 32.0 + 1);
+  }
+}
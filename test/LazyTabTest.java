@@ -0,0 +1,44 @@
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.JLabel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("LazyTab Tests")
+class LazyTabTest {
+
+  @Test
+  @DisplayName("Contents are built on the first build only")
+  void testBuildOnce() {
+    AtomicInteger builds = new AtomicInteger();
+    LazyTab tab = new LazyTab();
+    tab.setContent(
+        "test",
+        () -> {
+          builds.incrementAndGet();
+          return new JLabel("contents");
+        });
+
+    assertThat(tab.isBuilt()).isFalse();
+    assertThat(tab.getComponentCount()).isZero();
+
+    tab.build();
+    tab.build();
+
+    assertThat(tab.isBuilt()).isTrue();
+    assertThat(builds).hasValue(1);
+    assertThat(tab.getComponent(0)).isInstanceOf(JLabel.class);
+  }
+
+  @Test
+  @DisplayName("A tab without contents counts as built")
+  void testNoContent() {
+    LazyTab tab = new LazyTab();
+
+    tab.build();
+
+    assertThat(tab.isBuilt()).isTrue();
+    assertThat(tab.getComponentCount()).isZero();
+  }
+}
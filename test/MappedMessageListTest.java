@@ -0,0 +1,146 @@
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("MappedMessageList Tests")
+class MappedMessageListTest {
+
+  @TempDir File dir;
+
+  @Test
+  @DisplayName("Messages read back by index, including non-ASCII and empty ones")
+  void testRoundTrip() throws IOException {
+    List<String> messages = Arrays.asList("hello world", "", "caf\u00e9 \u65e5\u672c", "last");
+
+    MappedMessageList list = MappedMessageList.write(new File(dir, "m"), messages.iterator());
+
+    assertThat(list).containsExactlyElementsOf(messages);
+    assertThat(MappedMessageList.open(new File(dir, "m"))).containsExactlyElementsOf(messages);
+  }
+
+  @Test
+  @DisplayName("Many messages are stored without holding them in a list")
+  void testLargeStore() throws IOException {
+    int count = 100_000;
+
+    MappedMessageList list =
+        MappedMessageList.write(
+            new File(dir, "m"), IntStream.range(0, count).mapToObj(i -> "message " + i).iterator());
+
+    assertThat(list).hasSize(count);
+    assertThat(list.get(0)).isEqualTo("message 0");
+    assertThat(list.get(count / 2)).isEqualTo("message " + count / 2);
+    assertThat(list.get(count - 1)).isEqualTo("message " + (count - 1));
+  }
+
+  @Test
+  @DisplayName("Text import takes one message per line and skips blank lines")
+  void testImportText() throws IOException {
+    File text = new File(dir, "messages.txt");
+    Files.write(text.toPath(), "one\n\ntwo \u00e9\r\nthree".getBytes(StandardCharsets.UTF_8));
+
+    MappedMessageList list = MappedMessageList.importText(text, new File(dir, "m"));
+
+    assertThat(list).containsExactly("one", "two \u00e9", "three");
+  }
+
+  @Test
+  @DisplayName("XML import takes the message elements of a config file")
+  void testImportXml() throws IOException {
+    File xml = new File(dir, "FSTConfig.xml");
+    Files.write(
+        xml.toPath(),
+        ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<fst author=\"http://richard.warburton.it\">"
+                + "<font size=\"35\"/><message>I am calm</message>"
+                + "<message>Fish &amp; chips</message></fst>")
+            .getBytes(StandardCharsets.UTF_8));
+
+    MappedMessageList list = MappedMessageList.importXml(xml, new File(dir, "m"));
+
+    assertThat(list).containsExactly("I am calm", "Fish & chips");
+  }
+
+  @Test
+  @DisplayName("Opening something that is not a store fails")
+  void testOpenInvalid() throws IOException {
+    Files.write(new File(dir, "m.idx").toPath(), new byte[32]);
+    Files.write(new File(dir, "m.dat").toPath(), new byte[0]);
+
+    assertThatThrownBy(() -> MappedMessageList.open(new File(dir, "m")))
+        .isInstanceOf(IOException.class);
+    assertThatThrownBy(() -> MappedMessageList.open(new File(dir, "missing")))
+        .isInstanceOf(IOException.class);
+  }
+
+  @Test
+  @DisplayName("List is read-only")
+  void testReadOnly() throws IOException {
+    MappedMessageList list =
+        MappedMessageList.write(new File(dir, "m"), Arrays.asList("a").iterator());
+
+    assertThatThrownBy(() -> list.add("b")).isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> list.get(1)).isInstanceOf(IndexOutOfBoundsException.class);
+  }
+
+  @Test
+  @DisplayName("Selector walks a store in sequential order")
+  void testSelectorOverStore() throws IOException {
+    MappedMessageList list =
+        MappedMessageList.write(new File(dir, "m"), Arrays.asList("a", "b", "c").iterator());
+    MessageSelector selector =
+        new MessageSelector(
+            list, MessageSelector.SEQUENTIAL, MessageSelector.FORWARD, MessageSelector.FORWARD);
+
+    List<String> seen =
+        IntStream.range(0, 4).mapToObj(i -> selector.getNextMessage()).collect(Collectors.toList());
+
+    assertThat(seen).containsExactly("a", "b", "c", "a");
+  }
+
+  @Test
+  @DisplayName("A new import goes to a new generation and leaves the store in use intact")
+  void testNewGeneration() throws IOException {
+    File first = MappedMessageList.newBase(dir, "FSTMessages");
+    MappedMessageList inUse = MappedMessageList.write(first, Arrays.asList("old").iterator());
+
+    File second = MappedMessageList.newBase(dir, "FSTMessages");
+    MappedMessageList imported =
+        MappedMessageList.write(second, Arrays.asList("new", "newer").iterator());
+
+    assertThat(second).isNotEqualTo(first);
+    assertThat(inUse).containsExactly("old");
+    assertThat(MappedMessageList.open(first)).containsExactly("old");
+    assertThat(imported).containsExactly("new", "newer");
+  }
+
+  @Test
+  @DisplayName("Unused generations and half-written files are deleted, other files are kept")
+  void testDeleteUnused() throws IOException {
+    File old = MappedMessageList.newBase(dir, "FSTMessages");
+    MappedMessageList.write(old, Arrays.asList("old").iterator());
+    File current = MappedMessageList.newBase(dir, "FSTMessages");
+    MappedMessageList.write(current, Arrays.asList("current").iterator());
+    Files.write(new File(dir, "FSTMessages.dat").toPath(), new byte[0]);
+    Files.write(new File(dir, "FSTMessages-1.idx.tmp").toPath(), new byte[0]);
+    Files.write(new File(dir, "FSTConfig.xml").toPath(), new byte[0]);
+
+    MappedMessageList.deleteUnused(dir, "FSTMessages", current);
+
+    assertThat(dir.list())
+        .containsExactlyInAnyOrder(
+            current.getName() + ".dat", current.getName() + ".idx", "FSTConfig.xml");
+    assertThat(MappedMessageList.open(current)).containsExactly("current");
+  }
+}
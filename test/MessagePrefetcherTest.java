@@ -0,0 +1,258 @@
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("MessagePrefetcher Tests")
+class MessagePrefetcherTest {
+
+  private static final List<String> MESSAGES = Arrays.asList("a", "b", "c", "d", "e", "f");
+
+  private MessagePrefetcher prefetcher;
+
+  @AfterEach
+  void tearDown() {
+    if (prefetcher != null) {
+      prefetcher.stop();
+    }
+  }
+
+  private static FST.MessageState layout(String text) {
+    return new FST.MessageState(text, 0, null, null);
+  }
+
+  private static void awaitReady(MessagePrefetcher p, int ready) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (p.getReady() < ready && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertThat(p.getReady()).isEqualTo(ready);
+  }
+
+  private List<String> take(int count) {
+    List<String> taken = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      taken.add(prefetcher.take().text);
+    }
+    return taken;
+  }
+
+  @Test
+  @DisplayName("Background thread fills the buffer with messages in order")
+  void testFillsAhead() throws InterruptedException {
+    MessageSelector selector =
+        new MessageSelector(
+            MESSAGES, MessageSelector.SEQUENTIAL, MessageSelector.FORWARD, MessageSelector.FORWARD);
+    prefetcher = new MessagePrefetcher(selector, MessagePrefetcherTest::layout, 4);
+    prefetcher.start();
+
+    awaitReady(prefetcher, 4);
+    assertThat(take(6)).containsExactly("a", "b", "c", "d", "e", "f");
+  }
+
+  @Test
+  @DisplayName("Works without the background thread")
+  void testTakeWithoutThread() {
+    MessageSelector selector =
+        new MessageSelector(
+            MESSAGES, MessageSelector.SEQUENTIAL, MessageSelector.FORWARD, MessageSelector.FORWARD);
+    prefetcher = new MessagePrefetcher(selector, MessagePrefetcherTest::layout, 4);
+
+    assertThat(take(3)).containsExactly("a", "b", "c");
+  }
+
+  @Test
+  @DisplayName("Invalidate redoes prepared messages without skipping any")
+  void testInvalidateKeepsSequence() throws InterruptedException {
+    MessageSelector selector =
+        new MessageSelector(
+            Arrays.asList("ab", "cd", "ef", "gh", "ij", "kl"),
+            MessageSelector.SEQUENTIAL,
+            MessageSelector.FORWARD,
+            MessageSelector.FORWARD);
+    prefetcher = new MessagePrefetcher(selector, MessagePrefetcherTest::layout, 4);
+    prefetcher.start();
+    awaitReady(prefetcher, 4);
+    assertThat(take(2)).containsExactly("ab", "cd");
+
+    selector.setLetterOrder(MessageSelector.REVERSE);
+    prefetcher.invalidate();
+
+    awaitReady(prefetcher, 4);
+    assertThat(take(3)).containsExactly("fe", "hg", "ji");
+  }
+
+  @Test
+  @DisplayName("Returns null while there are no messages and resumes once there are")
+  void testEmpty() throws InterruptedException {
+    MessageSelector selector =
+        new MessageSelector(
+            new ArrayList<>(),
+            MessageSelector.SEQUENTIAL,
+            MessageSelector.FORWARD,
+            MessageSelector.FORWARD);
+    prefetcher = new MessagePrefetcher(selector, MessagePrefetcherTest::layout, 2);
+    prefetcher.start();
+
+    assertThat(prefetcher.take()).isNull();
+
+    selector.setMessages(Arrays.asList("x", "y"));
+    prefetcher.invalidate();
+    awaitReady(prefetcher, 2);
+    assertThat(take(3)).containsExactly("x", "y", "x");
+  }
+
+  @Test
+  @DisplayName("Taking while the background thread lays out a message keeps the order")
+  void testTakeDuringSlowLayout() throws InterruptedException {
+    MessageSelector selector =
+        new MessageSelector(
+            MESSAGES, MessageSelector.SEQUENTIAL, MessageSelector.FORWARD, MessageSelector.FORWARD);
+    CountDownLatch laying = new CountDownLatch(1);
+    prefetcher =
+        new MessagePrefetcher(
+            selector,
+            text -> {
+              if (Thread.currentThread().getName().equals("FST-message-prefetch")) {
+                laying.countDown();
+                try {
+                  Thread.sleep(20);
+                } catch (InterruptedException ex) {
+                  Thread.currentThread().interrupt();
+                }
+              }
+              return layout(text);
+            },
+            1);
+    prefetcher.start();
+    // The background thread has selected the first message and is laying it out
+    assertThat(laying.await(5, TimeUnit.SECONDS)).isTrue();
+
+    int previous = -1;
+    List<String> taken = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      taken.add(prefetcher.take().text);
+      int position = prefetcher.getPosition();
+      assertThat(position).isEqualTo((previous + 1) % MESSAGES.size());
+      previous = position;
+    }
+    assertThat(taken).containsExactly("a", "b", "c", "d", "e", "f", "a", "b", "c", "d", "e", "f");
+  }
+
+  @Test
+  @DisplayName("Taking a ready message does not wait for the one being laid out")
+  void testTakeReadyDuringLayout() throws InterruptedException {
+    MessageSelector selector =
+        new MessageSelector(
+            MESSAGES, MessageSelector.SEQUENTIAL, MessageSelector.FORWARD, MessageSelector.FORWARD);
+    CountDownLatch laying = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    prefetcher =
+        new MessagePrefetcher(
+            selector,
+            text -> {
+              if (text.equals("c")) {
+                laying.countDown();
+                try {
+                  release.await();
+                } catch (InterruptedException ex) {
+                  Thread.currentThread().interrupt();
+                }
+              }
+              return layout(text);
+            },
+            2);
+    prefetcher.start();
+    awaitReady(prefetcher, 2);
+    assertThat(prefetcher.take().text).isEqualTo("a");
+    // The background thread now holds its lock until "c" is released
+    assertThat(laying.await(5, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(prefetcher.take().text).isEqualTo("b");
+    release.countDown();
+    assertThat(take(2)).containsExactly("c", "d");
+  }
+
+  @Test
+  @DisplayName("An exception on the background thread is thrown by take after the ready messages")
+  void testBackgroundFailure() throws InterruptedException {
+    MessageSelector selector =
+        new MessageSelector(
+            MESSAGES, MessageSelector.SEQUENTIAL, MessageSelector.FORWARD, MessageSelector.FORWARD);
+    prefetcher =
+        new MessagePrefetcher(
+            selector,
+            text -> {
+              if (text.equals("c")) {
+                throw new IllegalStateException("layout failed");
+              }
+              return layout(text);
+            },
+            4);
+    prefetcher.start();
+    awaitReady(prefetcher, 2);
+
+    assertThat(take(2)).containsExactly("a", "b");
+    assertThatThrownBy(prefetcher::take).hasMessage("layout failed");
+  }
+
+  @Test
+  @DisplayName("The same seed lays out the same messages in the same places on any thread")
+  void testSeededReplay() {
+    List<String> first = seededRun(42L, true);
+
+    assertThat(seededRun(42L, true)).isEqualTo(first);
+    assertThat(seededRun(42L, false)).isEqualTo(first);
+    assertThat(seededRun(43L, true)).isNotEqualTo(first);
+  }
+
+  /** Takes messages selected and laid out from one seed, with or without the background thread. */
+  private static List<String> seededRun(long seed, boolean background) {
+    RandomSource source = RandomSource.seeded(seed);
+    MessageSelector selector =
+        new MessageSelector(
+            Arrays.asList("one two three", "four five", "six seven eight nine", "ten"),
+            MessageSelector.NO_REPEAT,
+            MessageSelector.RND,
+            MessageSelector.RND_INNER,
+            source.stream("messages"));
+    Random random = source.stream("layout");
+    // Capacity 1 keeps the buffer empty often, so take() also lays out messages itself
+    MessagePrefetcher p =
+        new MessagePrefetcher(
+            selector,
+            text ->
+                new FST.MessageState(
+                    text,
+                    random.nextInt(1920),
+                    random.nextInt(1080),
+                    null,
+                    null,
+                    random.nextInt(3)),
+            1);
+    List<String> states = new ArrayList<>();
+    try {
+      if (background) {
+        p.start();
+      }
+      for (int i = 0; i < 300; i++) {
+        FST.MessageState state = p.take();
+        states.add(state.text + "@" + state.x + "," + state.baseline + "/" + state.screen);
+        if (i % 7 == 0) {
+          Thread.yield();
+        }
+      }
+    } finally {
+      p.stop();
+    }
+    return states;
+  }
+}
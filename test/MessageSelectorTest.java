@@ -2,9 +2,12 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
 import net.jqwik.api.*;
 import net.jqwik.api.constraints.*;
@@ -220,7 +223,7 @@ class MessageSelectorTest {
   }
 
   @Test
-  @DisplayName("Modifying message list affects future calls")
+  @DisplayName("Modifying a message list affects future calls once it is set again")
   void testMessageListModification() {
     List<String> messages = new ArrayList<>(Arrays.asList("First"));
     MessageSelector selector = new MessageSelector(messages, SEQUENTIAL, FORWARD, FORWARD);
@@ -228,6 +231,8 @@ class MessageSelectorTest {
     assertThat(selector.getNextMessage()).isEqualTo("First");
 
     messages.add("Second");
+    assertThat(selector.getNextMessage()).isEqualTo("First"); // still the version handed over
+    selector.setMessages(messages);
     assertThat(selector.getNextMessage()).isEqualTo("Second");
     assertThat(selector.getNextMessage()).isEqualTo("First"); // wraps around
   }
@@ -246,6 +251,368 @@ class MessageSelectorTest {
     assertThat(selector.getNextMessage()).isEqualTo("New1"); // wraps around
   }
 
+  @Test
+  @DisplayName("Sequential order carries on from the same message when lines are added or removed")
+  void testSequentialEdit() {
+    MessageSelector selector =
+        new MessageSelector(Arrays.asList("A", "B", "C", "D"), SEQUENTIAL, FORWARD, FORWARD);
+    selector.getNextMessage();
+    assertThat(selector.getNextMessage()).isEqualTo("B");
+
+    selector.setMessages(Arrays.asList("New", "A", "B", "C", "D"));
+    assertThat(selector.getNextMessage()).isEqualTo("C");
+
+    selector.setMessages(Arrays.asList("New", "A", "B", "D"));
+    assertThat(selector.getNextMessage()).isEqualTo("D");
+
+    selector.setMessages(Arrays.asList("New", "A", "B"));
+    assertThat(selector.getNextMessage()).isEqualTo("New");
+  }
+
+  @Test
+  @DisplayName(
+      "Selecting while another thread publishes edits never fails or shows a half-built list")
+  void testConcurrentEdits() throws Exception {
+    List<List<String>> versions = new ArrayList<>();
+    Set<String> known = new HashSet<>();
+    for (int v = 0; v < 8; v++) {
+      List<String> version = new ArrayList<>();
+      // Lengths change between versions, so a stale size would index past the end
+      for (int i = 0; i < 1 + v * 37; i++) {
+        version.add("v" + v + "m" + i);
+      }
+      versions.add(version);
+      known.addAll(version);
+    }
+    for (int order :
+        new int[] {RANDOM, SEQUENTIAL, MessageSelector.SHUFFLE, MessageSelector.NO_REPEAT}) {
+      MessageSelector selector = new MessageSelector(versions.get(0), order, FORWARD, FORWARD);
+      AtomicBoolean done = new AtomicBoolean();
+      Thread editor =
+          new Thread(
+              () -> {
+                for (int i = 0; !done.get(); i++) {
+                  selector.setMessages(versions.get(i % versions.size()));
+                }
+              });
+      editor.start();
+      try {
+        // Selection is single threaded, as through MessagePrefetcher
+        for (int i = 0; i < 200_000; i++) {
+          assertThat(known).contains(selector.getNextMessage());
+        }
+      } finally {
+        done.set(true);
+        editor.join();
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Text is shown as written, braces included, whatever its weight")
+  void testTextKeptWithWeights() {
+    MessageSet messages =
+        MessageSet.of(Arrays.asList("{0} Shown", "{3} Off", "{{"), new double[] {1, 0, 2});
+    for (int order :
+        new int[] {RANDOM, SEQUENTIAL, MessageSelector.SHUFFLE, MessageSelector.NO_REPEAT}) {
+      MessageSelector selector = new MessageSelector(messages, order, FORWARD, FORWARD);
+      for (int i = 0; i < 50; i++) {
+        assertThat(selector.getNextMessage()).isIn("{0} Shown", "{{");
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Random order follows weights and never shows disabled messages")
+  void testWeightedRandomOrder() {
+    MessageSet messages =
+        MessageSet.of(Arrays.asList("Off", "One", "Three"), new double[] {0, 1, 3});
+    MessageSelector selector = new MessageSelector(messages, RANDOM, FORWARD, FORWARD);
+
+    int one = 0;
+    int three = 0;
+    for (int i = 0; i < 8000; i++) {
+      String msg = selector.getNextMessage();
+      assertThat(msg).isIn("One", "Three");
+      if (msg.equals("One")) {
+        one++;
+      } else {
+        three++;
+      }
+    }
+    assertThat(three / (double) one).isBetween(2.6, 3.4);
+  }
+
+  @Test
+  @DisplayName("Sequential order skips disabled messages")
+  void testSequentialSkipsDisabled() {
+    MessageSet messages =
+        MessageSet.of(Arrays.asList("First", "Off", "Third"), new double[] {2, 0, 1});
+    MessageSelector selector = new MessageSelector(messages, SEQUENTIAL, FORWARD, FORWARD);
+
+    assertThat(selector.getNextMessage()).isEqualTo("First");
+    assertThat(selector.getNextMessage()).isEqualTo("Third");
+    assertThat(selector.getNextMessage()).isEqualTo("First");
+  }
+
+  @Test
+  @DisplayName("Nothing is selected when every message is disabled")
+  void testAllDisabled() {
+    MessageSet messages = MessageSet.of(Arrays.asList("Off", "Also off"), new double[] {0, 0});
+
+    assertThat(new MessageSelector(messages, RANDOM, FORWARD, FORWARD).getNextMessage()).isNull();
+    assertThat(new MessageSelector(messages, SEQUENTIAL, FORWARD, FORWARD).getNextMessage())
+        .isNull();
+  }
+
+  @Test
+  @DisplayName("Weights of large lists are read in the background")
+  void testBackgroundWeights() throws Exception {
+    List<String> text = new ArrayList<>();
+    double[] weights = new double[MessageSelector.SYNC_WEIGHTS + 1];
+    for (int i = 0; i < weights.length; i++) {
+      text.add(i == 0 ? "Shown" : "Off " + i);
+      weights[i] = i == 0 ? 1 : 0;
+    }
+    MessageSelector selector =
+        new MessageSelector(MessageSet.of(text, weights), RANDOM, FORWARD, FORWARD);
+
+    // Until the table is ready picks are uniform but still skip disabled messages
+    String early = selector.getNextMessage();
+    assertThat(early == null || early.equals("Shown")).isTrue();
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!selector.isWeighted() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(selector.isWeighted()).isTrue();
+    assertThat(selector.getNextMessage()).isEqualTo("Shown");
+  }
+
+  @Test
+  @DisplayName("Shuffle order shows every message once per round")
+  void testShuffleOrder() {
+    MessageSet messages =
+        MessageSet.of(Arrays.asList("A", "B", "C", "D", "Off"), new double[] {1, 1, 1, 1, 0});
+    MessageSelector selector =
+        new MessageSelector(messages, MessageSelector.SHUFFLE, FORWARD, FORWARD);
+
+    for (int round = 0; round < 4; round++) {
+      Set<String> shown = new HashSet<>();
+      for (int i = 0; i < 4; i++) {
+        shown.add(selector.getNextMessage());
+      }
+      assertThat(shown).containsExactlyInAnyOrder("A", "B", "C", "D");
+    }
+  }
+
+  @Test
+  @DisplayName("Shuffle order keeps its round when messages move")
+  void testShuffleFollowsEdit() {
+    List<String> messages = new ArrayList<>(Arrays.asList("A", "B", "C", "D", "E", "F"));
+    MessageSelector selector =
+        new MessageSelector(
+            messages,
+            MessageSelector.SHUFFLE,
+            FORWARD,
+            FORWARD,
+            RandomSource.seeded(3L).stream("messages"));
+    Set<String> round = new HashSet<>();
+    for (int i = 0; i < 3; i++) {
+      round.add(selector.getNextMessage());
+    }
+
+    // Same size, every message at a new index
+    Collections.reverse(messages);
+    selector.setMessages(messages);
+    for (int i = 0; i < 3; i++) {
+      round.add(selector.getNextMessage());
+    }
+
+    assertThat(round).containsExactlyInAnyOrder("A", "B", "C", "D", "E", "F");
+  }
+
+  @Test
+  @DisplayName("Shuffle order carries on when the list is edited")
+  void testShuffleEdit() {
+    MessageSelector selector =
+        new MessageSelector(
+            Arrays.asList("A", "B", "C"), MessageSelector.SHUFFLE, FORWARD, FORWARD);
+    selector.getNextMessage();
+
+    selector.setMessages(Arrays.asList("A", "B"));
+    for (int i = 0; i < 10; i++) {
+      assertThat(selector.getNextMessage()).isIn("A", "B");
+    }
+  }
+
+  @Test
+  @DisplayName("No-repeat order keeps recent messages from coming up again")
+  void testNoRepeatOrder() {
+    List<String> messages = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      messages.add("M" + i);
+    }
+    MessageSelector selector =
+        new MessageSelector(
+            messages,
+            MessageSelector.NO_REPEAT,
+            FORWARD,
+            FORWARD,
+            RandomSource.seeded(19L).stream("messages"));
+
+    List<String> shown = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      shown.add(selector.getNextMessage());
+    }
+
+    assertThat(repeatsWithin(shown, MessageSelector.REPEAT_WINDOW)).isZero();
+  }
+
+  @Test
+  @DisplayName("No-repeat order follows the messages through an edit")
+  void testNoRepeatEdit() {
+    List<String> messages = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      messages.add("M" + i);
+    }
+    MessageSelector selector =
+        new MessageSelector(
+            messages,
+            MessageSelector.NO_REPEAT,
+            FORWARD,
+            FORWARD,
+            RandomSource.seeded(23L).stream("messages"));
+
+    List<String> shown = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      if (i % 20 == 10) {
+        // Every index moves, and the list keeps or changes its size
+        messages.add(0, "New" + i);
+        if (i % 40 == 10) {
+          messages.remove(messages.size() - 1);
+        }
+        selector.setMessages(messages);
+      }
+      shown.add(selector.getNextMessage());
+    }
+
+    assertThat(repeatsWithin(shown, MessageSelector.REPEAT_WINDOW)).isZero();
+  }
+
+  @Test
+  @DisplayName("No-repeat order never shows the same message twice in a row in a short list")
+  void testNoRepeatShortList() {
+    MessageSelector selector =
+        new MessageSelector(
+            MessageSet.of(Arrays.asList("A", "B", "C", "Off"), new double[] {1, 1, 1, 0}),
+            MessageSelector.NO_REPEAT,
+            FORWARD,
+            FORWARD,
+            RandomSource.seeded(7L).stream("messages"));
+
+    List<String> shown = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      shown.add(selector.getNextMessage());
+    }
+
+    // Half of the three enabled messages, rounded down, are kept back
+    assertThat(repeatsWithin(shown, 1)).isZero();
+    assertThat(new HashSet<>(shown)).containsExactlyInAnyOrder("A", "B", "C");
+  }
+
+  /** Counts messages shown again within window messages of showing them last. */
+  private static int repeatsWithin(List<String> shown, int window) {
+    int repeats = 0;
+    for (int i = 1; i < shown.size(); i++) {
+      if (shown.subList(Math.max(0, i - window), i).contains(shown.get(i))) {
+        repeats++;
+      }
+    }
+    return repeats;
+  }
+
+  @Test
+  @DisplayName("Fixed orders are cached per message until the messages or an order change")
+  void testTransformCache() {
+    MessageSelector selector =
+        new MessageSelector(
+            MessageSet.of(Arrays.asList("ab cd", "ef gh"), new double[] {1, 2}),
+            SEQUENTIAL,
+            REVERSE,
+            FORWARD);
+
+    for (int i = 0; i < 4; i++) {
+      selector.getNextMessage();
+    }
+    assertThat(selector.getTransformMisses()).isEqualTo(2);
+    assertThat(selector.getTransformHits()).isEqualTo(2);
+
+    selector.setLetterOrder(REVERSE);
+    assertThat(selector.getNextMessage()).isEqualTo("dc ba");
+    selector.setMessages(Arrays.asList("ab cd", "ij kl"));
+    assertThat(selector.getNextMessage()).isEqualTo("lk ji");
+    assertThat(selector.getTransformMisses()).isEqualTo(4);
+
+    // Setting an order to the value it already has keeps the entries
+    selector.setWordOrder(REVERSE);
+    assertThat(selector.getNextMessage()).isEqualTo("dc ba");
+    assertThat(selector.getTransformHits()).isEqualTo(2);
+    assertThat(selector.getNextMessage()).isEqualTo("lk ji");
+    assertThat(selector.getTransformHits()).isEqualTo(3);
+  }
+
+  @Test
+  @DisplayName("Random orders are never cached")
+  void testTransformCacheBypass() {
+    MessageSelector selector =
+        new MessageSelector(Arrays.asList("ab cd ef"), SEQUENTIAL, RND, RND_INNER);
+
+    for (int i = 0; i < 10; i++) {
+      selector.getNextMessage();
+    }
+    selector.setWordOrder(FORWARD);
+    selector.setLetterOrder(FORWARD);
+    selector.getNextMessage();
+    assertThat(selector.getTransformHits()).isZero();
+    assertThat(selector.getTransformMisses()).isZero();
+  }
+
+  @ParameterizedTest
+  @MethodSource("seededOrders")
+  @DisplayName("The same seed selects and orders the same messages")
+  void testSeededReplay(int messageOrder, int wordOrder, int letterOrder) {
+    List<String> messages = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      messages.add("{" + (i % 3 + 1) + "} message number " + i);
+    }
+    MessageSelector first =
+        new MessageSelector(
+            messages,
+            messageOrder,
+            wordOrder,
+            letterOrder,
+            RandomSource.seeded(99L).stream("messages"));
+    MessageSelector second =
+        new MessageSelector(
+            messages,
+            messageOrder,
+            wordOrder,
+            letterOrder,
+            RandomSource.seeded(99L).stream("messages"));
+
+    for (int i = 0; i < 200; i++) {
+      assertThat(second.getNextMessage()).isEqualTo(first.getNextMessage());
+    }
+  }
+
+  static Stream<Arguments> seededOrders() {
+    return Stream.of(
+        Arguments.of(RANDOM, RND, RND_INNER),
+        Arguments.of(MessageSelector.SHUFFLE, FORWARD, RND),
+        Arguments.of(MessageSelector.NO_REPEAT, RND_INNER, REVERSE));
+  }
+
   @Test
   @DisplayName("Empty string message returns empty string")
   void testEmptyStringMessage() {
@@ -408,4 +775,81 @@ class MessageSelectorTest {
     String result = MessageSelector.orderMessage(input, wordOrder, letterOrder);
     assertThat(result).isNotNull();
   }
+
+  @Property
+  @Label("Ordering matches the list-based implementation under a fixed seed")
+  void orderingMatchesListImplementation(
+      @ForAll("spacedStrings") String input,
+      @ForAll @IntRange(min = 0, max = 4) int wordOrder,
+      @ForAll @IntRange(min = 0, max = 4) int letterOrder,
+      @ForAll long seed) {
+
+    String expected = listOrderMessage(input, wordOrder, letterOrder, new Random(seed));
+    String actual = MessageSelector.orderMessage(input, wordOrder, letterOrder, new Random(seed));
+
+    assertThat(actual).isEqualTo(expected);
+  }
+
+  @Property
+  @Label("Repeated calls reuse buffers without leaking earlier messages")
+  void orderingIsIndependentOfPreviousCalls(
+      @ForAll("spacedStrings") String first,
+      @ForAll("spacedStrings") String second,
+      @ForAll @IntRange(min = 0, max = 4) int wordOrder,
+      @ForAll @IntRange(min = 0, max = 4) int letterOrder) {
+
+    String fresh = MessageSelector.orderMessage(second, wordOrder, letterOrder, new Random(7));
+    MessageSelector.orderMessage(first, wordOrder, letterOrder, new Random(7));
+    String reused = MessageSelector.orderMessage(second, wordOrder, letterOrder, new Random(7));
+
+    assertThat(reused).isEqualTo(fresh);
+  }
+
+  @Provide
+  Arbitrary<String> spacedStrings() {
+    return Arbitraries.strings().withChars("ab cd\u00e9").ofMaxLength(200);
+  }
+
+  /** The original split/shuffle/join implementation, kept as the reference for equivalence. */
+  private static String listOrderMessage(String msg, int wordOrder, int letterOrder, Random rnd) {
+    if (wordOrder == FORWARD && letterOrder == FORWARD) {
+      return msg;
+    }
+    List<String> words =
+        wordOrder == JOIN ? new ArrayList<>(List.of(msg)) : Arrays.asList(msg.split(" "));
+    orderList(words, wordOrder, rnd);
+    if (letterOrder != FORWARD) {
+      for (int i = 0; i < words.size(); i++) {
+        List<Character> letters = new ArrayList<>();
+        for (char c : words.get(i).toCharArray()) {
+          letters.add(c);
+        }
+        orderList(letters, letterOrder, rnd);
+        StringBuilder word = new StringBuilder();
+        letters.forEach(word::append);
+        words.set(i, word.toString());
+      }
+    }
+    return String.join(" ", words);
+  }
+
+  private static void orderList(List<?> list, int mode, Random rnd) {
+    if (list.size() > 1) {
+      switch (mode) {
+        case REVERSE:
+          Collections.reverse(list);
+          break;
+        case RND:
+          Collections.shuffle(list, rnd);
+          break;
+        case RND_INNER:
+          if (list.size() > 3) {
+            Collections.shuffle(list.subList(1, list.size() - 1), rnd);
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
 }
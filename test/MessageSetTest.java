@@ -0,0 +1,90 @@
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("MessageSet Tests")
+class MessageSetTest {
+
+  @Test
+  @DisplayName("A set is a copy that cannot be changed, and later sets have higher versions")
+  void testCopyAndVersion() {
+    List<String> source = new ArrayList<>(Arrays.asList("A", "B"));
+    MessageSet first = MessageSet.of(source);
+    source.add("C");
+    MessageSet second = MessageSet.of(source);
+
+    assertThat(first).containsExactly("A", "B");
+    assertThat(second).containsExactly("A", "B", "C");
+    assertThat(second.getVersion()).isGreaterThan(first.getVersion());
+    assertThat(MessageSet.of(first)).isSameAs(first);
+    assertThatThrownBy(() -> first.add("D")).isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  @DisplayName("An index follows its message past added and removed lines")
+  void testMapMoved() {
+    MessageSet before = MessageSet.of(Arrays.asList("A", "B", "C", "D"));
+
+    assertThat(MessageSet.of(Arrays.asList("X", "Y", "A", "B", "C", "D")).mapIndex(before, 2))
+        .isEqualTo(4);
+    assertThat(MessageSet.of(Arrays.asList("B", "C", "D")).mapIndex(before, 2)).isEqualTo(1);
+    assertThat(MessageSet.of(Arrays.asList("A", "B", "C", "D")).mapIndex(before, -1)).isEqualTo(-1);
+  }
+
+  @Test
+  @DisplayName("An index of a removed message points just before the message that followed it")
+  void testMapRemoved() {
+    MessageSet before = MessageSet.of(Arrays.asList("A", "B", "C", "D"));
+
+    assertThat(MessageSet.of(Arrays.asList("A", "C", "D")).mapIndex(before, 1)).isEqualTo(0);
+    assertThat(MessageSet.of(Arrays.asList("A", "D")).mapIndex(before, 2)).isEqualTo(0);
+    // Nothing left to follow, the index is kept within the new list
+    assertThat(MessageSet.of(Arrays.asList("X", "Y")).mapIndex(before, 3)).isEqualTo(1);
+    assertThat(MessageSet.of(Arrays.asList()).mapIndex(before, 1)).isEqualTo(-1);
+  }
+
+  @Test
+  @DisplayName("Weights default to 1 and a changed weight makes a new version")
+  void testWeights() {
+    MessageSet plain = MessageSet.of(Arrays.asList("A", "B"));
+    MessageSet weighted = plain.withWeight(1, 0);
+
+    assertThat(plain.isWeighted()).isFalse();
+    assertThat(plain.getWeight(1)).isEqualTo(1.0);
+    assertThat(weighted).containsExactly("A", "B");
+    assertThat(weighted.getWeight(1)).isZero();
+    assertThat(weighted.getVersion()).isGreaterThan(plain.getVersion());
+    assertThat(MessageSet.of(plain, new double[] {1, 1}).isWeighted()).isFalse();
+    assertThatThrownBy(() -> MessageSet.of(plain, new double[] {1}))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  @DisplayName("Edited text keeps the weights of the lines it replaces")
+  void testEditKeepsWeights() {
+    MessageSet before = MessageSet.of(Arrays.asList("A", "B", "C", "D"), new double[] {2, 0, 3, 4});
+
+    // Added lines have weight 1, the others keep theirs
+    MessageSet added = before.edit(Arrays.asList("A", "X", "B", "C", "D"));
+    assertThat(weights(added)).containsExactly(2, 1, 0, 3, 4);
+    // A line edited in place keeps the weight of the line it was
+    MessageSet fixed = before.edit(Arrays.asList("A", "b", "C", "D"));
+    assertThat(weights(fixed)).containsExactly(2, 0, 3, 4);
+    // Lines moved within the edited run keep their weights
+    MessageSet moved = before.edit(Arrays.asList("A", "C", "B", "Y", "D"));
+    assertThat(weights(moved)).containsExactly(2, 3, 0, 1, 4);
+  }
+
+  private static double[] weights(MessageSet messages) {
+    double[] weights = new double[messages.size()];
+    for (int i = 0; i < weights.length; i++) {
+      weights[i] = messages.getWeight(i);
+    }
+    return weights;
+  }
+}
@@ -0,0 +1,108 @@
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import net.jqwik.api.*;
+import net.jqwik.api.constraints.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("OccupancyGrid Tests")
+class OccupancyGridTest {
+  private static final Rectangle SCREEN = new Rectangle(100, 50, 1920, 1080);
+
+  @Test
+  @DisplayName("Overlapping boxes are rejected")
+  void testOverlap() {
+    OccupancyGrid grid = new OccupancyGrid(SCREEN, 16);
+
+    assertThat(grid.tryOccupy(new Rectangle(200, 200, 300, 60))).isTrue();
+
+    assertThat(grid.tryOccupy(new Rectangle(450, 240, 300, 60))).isFalse();
+    assertThat(grid.tryOccupy(new Rectangle(600, 200, 300, 60))).isTrue();
+  }
+
+  @Test
+  @DisplayName("Released boxes free their cells")
+  void testRelease() {
+    OccupancyGrid grid = new OccupancyGrid(SCREEN, 16);
+    Rectangle box = new Rectangle(1000, 500, 900, 40);
+    grid.tryOccupy(box);
+
+    grid.release(box);
+
+    assertThat(grid.isFree(box)).isTrue();
+  }
+
+  @Test
+  @DisplayName("Boxes spanning several bitset words are checked in every word")
+  void testWideBox() {
+    OccupancyGrid grid = new OccupancyGrid(SCREEN, 8);
+    grid.tryOccupy(new Rectangle(SCREEN.x + 8 * 70, SCREEN.y + 8 * 30, 8, 8));
+
+    assertThat(grid.isFree(new Rectangle(SCREEN.x, SCREEN.y + 8 * 30, SCREEN.width, 8))).isFalse();
+    assertThat(grid.isFree(new Rectangle(SCREEN.x, SCREEN.y + 8 * 31, SCREEN.width, 8))).isTrue();
+  }
+
+  @Test
+  @DisplayName("Boxes partly off screen count against the edge cells")
+  void testOffScreen() {
+    OccupancyGrid grid = new OccupancyGrid(SCREEN, 16);
+
+    assertThat(grid.tryOccupy(new Rectangle(SCREEN.x - 50, SCREEN.y - 50, 60, 60))).isTrue();
+
+    assertThat(grid.isFree(new Rectangle(SCREEN.x, SCREEN.y, 4, 4))).isFalse();
+  }
+
+  @Test
+  @DisplayName("Clear frees everything")
+  void testClear() {
+    OccupancyGrid grid = new OccupancyGrid(SCREEN, 16);
+    grid.tryOccupy(SCREEN);
+
+    grid.clear();
+
+    assertThat(grid.isFree(SCREEN)).isTrue();
+  }
+
+  @Property(tries = 200)
+  @Label("Occupied boxes never share a cell, and a box is only rejected when one does")
+  void matchesCellByCellCheck(
+      @ForAll @Size(max = 30) List<@From("boxes") Rectangle> boxes,
+      @ForAll @IntRange(min = 1, max = 40) int cellSize) {
+    Rectangle area = new Rectangle(0, 0, 1000, 700);
+    OccupancyGrid grid = new OccupancyGrid(area, cellSize);
+    List<Rectangle> placed = new ArrayList<>();
+
+    for (Rectangle box : boxes) {
+      boolean overlaps = false;
+      for (Rectangle other : placed) {
+        overlaps |= cells(box, cellSize, area).intersects(cells(other, cellSize, area));
+      }
+      assertThat(grid.tryOccupy(box)).isEqualTo(!overlaps);
+      if (!overlaps) {
+        placed.add(box);
+      }
+    }
+  }
+
+  @Provide
+  Arbitrary<Rectangle> boxes() {
+    Arbitrary<Integer> x = Arbitraries.integers().between(0, 999);
+    Arbitrary<Integer> y = Arbitraries.integers().between(0, 699);
+    Arbitrary<Integer> size = Arbitraries.integers().between(1, 300);
+    return Combinators.combine(x, y, size, size).as(Rectangle::new);
+  }
+
+  /** The cells a box touches, as a rectangle in cell units, clamped to the area. */
+  private static Rectangle cells(Rectangle box, int cellSize, Rectangle area) {
+    int columns = (area.width + cellSize - 1) / cellSize;
+    int rows = (area.height + cellSize - 1) / cellSize;
+    int x0 = Math.min(columns - 1, box.x / cellSize);
+    int y0 = Math.min(rows - 1, box.y / cellSize);
+    int x1 = Math.min(columns - 1, (box.x + box.width - 1) / cellSize);
+    int y1 = Math.min(rows - 1, (box.y + box.height - 1) / cellSize);
+    return new Rectangle(x0, y0, x1 - x0 + 1, y1 - y0 + 1);
+  }
+}
@@ -0,0 +1,123 @@
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("OverlayManager Tests")
+class OverlayManagerTest {
+  private static final long BUDGET = 1 << 20;
+
+  private static OverlayManager manager(OverlayManager.Screen... screens) {
+    return new OverlayManager(Arrays.asList(screens), BUDGET);
+  }
+
+  private static OverlayManager.Screen screen(int width, int height, double scale) {
+    return new OverlayManager.Screen(null, new Rectangle(0, 0, width, height), scale);
+  }
+
+  @Test
+  @DisplayName("Round robin visits every screen in turn")
+  void testRoundRobin() {
+    OverlayManager overlays =
+        manager(screen(100, 100, 1.0), screen(100, 100, 1.0), screen(100, 100, 1.0));
+
+    int[] picks = new int[6];
+    for (int i = 0; i < picks.length; i++) {
+      picks[i] = overlays.selectScreen();
+    }
+
+    assertThat(picks).containsExactly(0, 1, 2, 0, 1, 2);
+  }
+
+  @Test
+  @DisplayName("Fixed policy uses the chosen screen, or the first if it is gone")
+  void testFixed() {
+    OverlayManager overlays = manager(screen(100, 100, 1.0), screen(100, 100, 1.0));
+
+    overlays.setPolicy(OverlayManager.FIXED, 1);
+    assertThat(overlays.selectScreen()).isEqualTo(1);
+
+    overlays.setPolicy(OverlayManager.FIXED, 5);
+    assertThat(overlays.selectScreen()).isZero();
+  }
+
+  @Test
+  @DisplayName("Weighted policy follows screen area and skips empty screens")
+  void testWeighted() {
+    OverlayManager overlays =
+        manager(screen(100, 100, 1.0), screen(0, 0, 1.0), screen(300, 100, 1.0));
+    overlays.setPolicy(OverlayManager.WEIGHTED, 0);
+    Random rnd = new Random(42);
+
+    int[] counts = new int[3];
+    for (int i = 0; i < 40000; i++) {
+      counts[overlays.selectScreen(rnd)]++;
+    }
+
+    assertThat(counts[1]).isZero();
+    assertThat(counts[2] / (double) counts[0]).isBetween(2.8, 3.2);
+  }
+
+  @Test
+  @DisplayName("Random policy stays within the screens")
+  void testRandom() {
+    OverlayManager overlays = manager(screen(100, 100, 1.0), screen(100, 100, 1.0));
+    overlays.setPolicy(OverlayManager.RANDOM, 0);
+    Random rnd = new Random(7);
+
+    boolean[] seen = new boolean[2];
+    for (int i = 0; i < 100; i++) {
+      seen[overlays.selectScreen(rnd)] = true;
+    }
+
+    assertThat(seen).containsOnly(true);
+  }
+
+  @Test
+  @DisplayName("Screens of the same scale share a sprite cache")
+  void testCachesByScale() {
+    OverlayManager overlays =
+        manager(screen(100, 100, 1.0), screen(100, 100, 2.0), screen(100, 100, 1.0));
+
+    assertThat(overlays.getCache(0)).isSameAs(overlays.getCache(2));
+    assertThat(overlays.getCache(1)).isNotSameAs(overlays.getCache(0));
+    assertThat(overlays.getCache(1).getScale()).isEqualTo(2.0);
+  }
+
+  @Test
+  @DisplayName("Overlay windows are mapped per flash unless made persistent")
+  void testMode() {
+    OverlayManager overlays = manager(screen(100, 100, 1.0));
+    assertThat(overlays.getMode()).isEqualTo(OverlayManager.PER_FLASH);
+
+    overlays.setMode(OverlayManager.PERSISTENT);
+
+    assertThat(overlays.getMode()).isEqualTo(OverlayManager.PERSISTENT);
+  }
+
+  @Test
+  @DisplayName("Replacing the screens keeps caches by scale and sends old indices to the first")
+  void testSetScreens() {
+    OverlayManager overlays = manager(screen(100, 100, 1.0), screen(100, 100, 2.0));
+    SpriteCache hiDpi = overlays.getCache(1);
+
+    overlays.setScreens(Arrays.asList(screen(200, 100, 2.0)));
+
+    assertThat(overlays.getScreenCount()).isEqualTo(1);
+    assertThat(overlays.getCache(0)).isSameAs(hiDpi);
+    assertThat(overlays.getScreen(1).getBounds().width).isEqualTo(200);
+    assertThat(overlays.selectScreen()).isZero();
+  }
+
+  @Test
+  @DisplayName("At least one screen is required")
+  void testNoScreens() {
+    assertThatThrownBy(() -> new OverlayManager(Collections.emptyList(), BUDGET))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
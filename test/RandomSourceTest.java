@@ -0,0 +1,50 @@
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("RandomSource Tests")
+class RandomSourceTest {
+
+  private static long[] draw(Random rnd, int count) {
+    long[] values = new long[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = i % 2 == 0 ? rnd.nextInt(1000) : rnd.nextLong();
+    }
+    return values;
+  }
+
+  @Test
+  @DisplayName("The same seed and name give the same sequence")
+  void testSeededReplay() {
+    long[] first = draw(RandomSource.seeded(42L).stream("messages"), 100);
+    long[] second = draw(RandomSource.seeded(42L).stream("messages"), 100);
+
+    assertThat(second).isEqualTo(first);
+  }
+
+  @Test
+  @DisplayName("Streams of other names or seeds differ")
+  void testIndependentStreams() {
+    RandomSource source = RandomSource.seeded(42L);
+    long[] messages = draw(source.stream("messages"), 100);
+
+    assertThat(draw(source.stream("layout"), 100)).isNotEqualTo(messages);
+    assertThat(draw(RandomSource.seeded(43L).stream("messages"), 100)).isNotEqualTo(messages);
+  }
+
+  @Test
+  @DisplayName("Unseeded streams draw values in range without a seed")
+  void testUnseeded() {
+    RandomSource source = RandomSource.unseeded();
+    Random rnd = source.stream("messages");
+
+    assertThat(source.isSeeded()).isFalse();
+    assertThat(RandomSource.seeded(7L).getSeed()).isEqualTo(7L);
+    for (int i = 0; i < 100; i++) {
+      assertThat(rnd.nextInt(5)).isBetween(0, 4);
+      assertThat(rnd.nextDouble()).isBetween(0.0, 1.0);
+    }
+  }
+}
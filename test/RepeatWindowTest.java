@@ -0,0 +1,140 @@
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import net.jqwik.api.*;
+import net.jqwik.api.constraints.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("RepeatWindow Tests")
+class RepeatWindowTest {
+
+  @Test
+  @DisplayName("Only the most recent indices are remembered")
+  void testWindow() {
+    RepeatWindow window = new RepeatWindow(3, 100);
+
+    for (int index : new int[] {5, 70, 64, 9}) {
+      window.add(index);
+    }
+
+    assertThat(window.size()).isEqualTo(3);
+    assertThat(window.contains(5)).isFalse();
+    assertThat(window.contains(70)).isTrue();
+    assertThat(window.contains(64)).isTrue();
+    assertThat(window.contains(9)).isTrue();
+    assertThat(window.contains(99)).isFalse();
+  }
+
+  @Test
+  @DisplayName("Lowering the limit forgets the oldest first")
+  void testSetLimit() {
+    RepeatWindow window = new RepeatWindow(4, 10);
+    for (int index = 0; index < 4; index++) {
+      window.add(index);
+    }
+
+    window.setLimit(2);
+
+    assertThat(window.contains(1)).isFalse();
+    assertThat(window.contains(2)).isTrue();
+    assertThat(window.contains(3)).isTrue();
+
+    window.setLimit(0);
+    window.add(7);
+    assertThat(window.size()).isZero();
+  }
+
+  @Test
+  @DisplayName("Shrinking the list forgets indices past its end")
+  void testShrink() {
+    RepeatWindow window = new RepeatWindow(4, 200);
+    for (int index : new int[] {150, 3, 199, 7}) {
+      window.add(index);
+    }
+
+    window.remap(100, null, index -> index < 100 ? index : -1);
+
+    assertThat(window.size()).isEqualTo(2);
+    assertThat(window.contains(3)).isTrue();
+    assertThat(window.contains(7)).isTrue();
+    assertThat(window.contains(150)).isFalse();
+    window.add(50);
+    window.add(60);
+    window.add(70);
+    assertThat(window.contains(3)).isFalse();
+  }
+
+  @Test
+  @DisplayName("Remapping after the ring has wrapped keeps the newest indices")
+  void testRemapAfterWrap() {
+    RepeatWindow window = new RepeatWindow(4, 10);
+    for (int index = 0; index < 6; index++) {
+      window.add(index);
+    }
+
+    window.remap(99, null, index -> index);
+
+    assertThat(window.size()).isEqualTo(4);
+    for (int index = 0; index < 6; index++) {
+      assertThat(window.contains(index)).isEqualTo(index >= 2);
+    }
+    assertThat(window.getFree()).isEqualTo(95);
+    // Still forgets in the order shown
+    window.add(50);
+    assertThat(window.contains(2)).isFalse();
+    assertThat(window.contains(3)).isTrue();
+  }
+
+  @Test
+  @DisplayName("Draws only enabled indices outside the window")
+  void testNext() {
+    long[] enabled = {0b1111_0111L};
+    RepeatWindow window = new RepeatWindow(3, 8, enabled);
+    Random rnd = new Random(3);
+
+    for (int i = 0; i < 500; i++) {
+      int index = window.next(rnd);
+      assertThat(index).isNotEqualTo(3);
+      assertThat(window.contains(index)).isFalse();
+      window.add(index);
+      assertThat(window.getFree() + window.size()).isEqualTo(7);
+    }
+    window.add(3);
+    assertThat(window.contains(3)).isFalse();
+  }
+
+  @Test
+  @DisplayName("Remapping follows the remembered indices to the new list")
+  void testRemap() {
+    RepeatWindow window = new RepeatWindow(4, 10);
+    for (int index : new int[] {1, 5, 9}) {
+      window.add(index);
+    }
+
+    // Index 5 is gone, the others moved up one
+    window.remap(12, null, index -> index == 5 ? -1 : index + 1);
+
+    assertThat(window.size()).isEqualTo(2);
+    assertThat(window.contains(2)).isTrue();
+    assertThat(window.contains(10)).isTrue();
+    assertThat(window.contains(1)).isFalse();
+    assertThat(window.getFree()).isEqualTo(10);
+  }
+
+  @Property
+  @Label("Never draws a remembered index")
+  void neverDrawsRecent(
+      @ForAll @IntRange(min = 1, max = 40) int listSize,
+      @ForAll @IntRange(min = 0, max = 20) int limit,
+      @ForAll long seed) {
+    RepeatWindow window = new RepeatWindow(16, listSize);
+    window.setLimit(Math.min(limit, listSize - 1));
+    Random rnd = new Random(seed);
+    for (int i = 0; i < 100; i++) {
+      int index = window.next(rnd);
+      assertThat(window.contains(index)).isFalse();
+      window.add(index);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("RingBuffer Tests")
+class RingBufferTest {
+
+  @Test
+  @DisplayName("Capacity is rounded up to a power of two")
+  void testCapacity() {
+    assertThat(new RingBuffer<>(1).capacity()).isEqualTo(1);
+    assertThat(new RingBuffer<>(4).capacity()).isEqualTo(4);
+    assertThat(new RingBuffer<>(5).capacity()).isEqualTo(8);
+    assertThatThrownBy(() -> new RingBuffer<>(0)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  @DisplayName("Elements come out in order and offer fails when full")
+  void testFifoAndFull() {
+    RingBuffer<Integer> ring = new RingBuffer<>(2);
+
+    assertThat(ring.poll()).isNull();
+    assertThat(ring.offer(1)).isTrue();
+    assertThat(ring.offer(2)).isTrue();
+    assertThat(ring.isFull()).isTrue();
+    assertThat(ring.offer(3)).isFalse();
+    assertThat(ring.poll()).isEqualTo(1);
+    assertThat(ring.offer(3)).isTrue();
+    assertThat(ring.poll()).isEqualTo(2);
+    assertThat(ring.poll()).isEqualTo(3);
+    assertThat(ring.poll()).isNull();
+    assertThat(ring.size()).isZero();
+  }
+
+  @Test
+  @DisplayName("A producer and consumer thread pass every element in order")
+  void testConcurrentHandOff() throws InterruptedException {
+    int count = 100_000;
+    RingBuffer<Integer> ring = new RingBuffer<>(8);
+    Thread producer =
+        new Thread(
+            () -> {
+              for (int i = 0; i < count; i++) {
+                while (!ring.offer(i)) {
+                  Thread.yield();
+                }
+              }
+            });
+    producer.start();
+
+    List<Integer> received = new ArrayList<>(count);
+    while (received.size() < count) {
+      Integer e = ring.poll();
+      if (e == null) {
+        Thread.yield();
+      } else {
+        received.add(e);
+      }
+    }
+    producer.join();
+
+    int outOfOrder = 0;
+    for (int i = 0; i < count; i++) {
+      outOfOrder += received.get(i) == i ? 0 : 1;
+    }
+    assertThat(outOfOrder).isZero();
+  }
+}
@@ -0,0 +1,126 @@
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("SettingsStore Tests")
+class SettingsStoreTest {
+
+  @Test
+  @DisplayName("A transaction publishes all its changes in one version and tells listeners once")
+  void testTransaction() {
+    SettingsStore store = new SettingsStore(Settings.DEFAULTS);
+    List<Settings[]> changes = new ArrayList<>();
+    store.addListener((before, after) -> changes.add(new Settings[] {before, after}));
+    Font font = new Font("serif", Font.BOLD, 20);
+
+    Settings after = store.update((s, b) -> b.font(font).display(s.getDisplay() * 2).marginX(7));
+
+    assertThat(store.get()).isSameAs(after);
+    assertThat(after.getFont()).isEqualTo(font);
+    assertThat(after.getDisplay()).isEqualTo(Settings.DEFAULTS.getDisplay() * 2);
+    assertThat(after.getMarginX()).isEqualTo(7);
+    assertThat(after.getDelay()).isEqualTo(Settings.DEFAULTS.getDelay());
+    assertThat(changes).hasSize(1);
+    assertThat(changes.get(0)[0]).isSameAs(Settings.DEFAULTS);
+    assertThat(changes.get(0)[1]).isSameAs(after);
+  }
+
+  @Test
+  @DisplayName("set replaces the settings without telling listeners")
+  void testSetIsSilent() {
+    SettingsStore store = new SettingsStore(Settings.DEFAULTS);
+    List<Settings> seen = new ArrayList<>();
+    store.addListener((before, after) -> seen.add(after));
+    Settings loaded = Settings.DEFAULTS.toBuilder().delay(5).build();
+
+    store.set(loaded);
+
+    assertThat(store.get()).isSameAs(loaded);
+    assertThat(seen).isEmpty();
+  }
+
+  @Test
+  @DisplayName("A builder keeps every value it does not change")
+  void testToBuilder() {
+    Settings s =
+        Settings.DEFAULTS.toBuilder()
+            .colour(new Color(1, 2, 3, 4))
+            .placementY(FST.CENTER)
+            .wordOrder(MessageSelector.REVERSE)
+            .concurrentFlashes(3)
+            .screenDevice(2)
+            .checkUpdates(false)
+            .nextUpdate(42)
+            .build();
+
+    Settings copy = s.toBuilder().build();
+
+    assertThat(copy).usingRecursiveComparison().isEqualTo(s);
+    assertThat(copy.layoutDiffers(s)).isFalse();
+    assertThat(copy.toBuilder().delay(1).build().layoutDiffers(s)).isFalse();
+    assertThat(copy.toBuilder().marginY(1).build().layoutDiffers(s)).isTrue();
+  }
+
+  @Test
+  @DisplayName("Readers never see half a transaction while another thread publishes changes")
+  void testConsistentReads() throws Exception {
+    SettingsStore store =
+        new SettingsStore(Settings.DEFAULTS.toBuilder().display(0).delay(0).marginX(0).build());
+    AtomicBoolean done = new AtomicBoolean();
+    Thread writer =
+        new Thread(
+            () -> {
+              for (int i = 0; !done.get(); i++) {
+                int value = i;
+                store.update((s, b) -> b.display(value).delay(value).marginX(value));
+              }
+            });
+    writer.start();
+    try {
+      for (int i = 0; i < 1_000_000; i++) {
+        Settings s = store.get();
+        assertThat(s.getDelay()).isEqualTo(s.getDisplay());
+        assertThat(s.getMarginX()).isEqualTo(s.getDisplay());
+      }
+    } finally {
+      done.set(true);
+      writer.join();
+    }
+  }
+
+  @Test
+  @DisplayName("A listener waiting for another thread does not keep that thread from publishing")
+  void testListenerOutsideLock() throws InterruptedException {
+    SettingsStore store = new SettingsStore(Settings.DEFAULTS);
+    CountDownLatch published = new CountDownLatch(1);
+    AtomicBoolean waited = new AtomicBoolean();
+    store.addListener(
+        (before, after) -> {
+          if (after.getDelay() == 1) {
+            Thread other = new Thread(() -> store.update((s, b) -> b.delay(2)));
+            other.start();
+            try {
+              waited.set(published.await(5, TimeUnit.SECONDS));
+              other.join();
+            } catch (InterruptedException ex) {
+              Thread.currentThread().interrupt();
+            }
+          } else {
+            published.countDown();
+          }
+        });
+
+    store.update((s, b) -> b.delay(1));
+
+    assertThat(waited).isTrue();
+    assertThat(store.get().getDelay()).isEqualTo(2);
+  }
+}
@@ -0,0 +1,123 @@
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import net.jqwik.api.*;
+import net.jqwik.api.constraints.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("ShuffleBag Tests")
+class ShuffleBagTest {
+
+  @Test
+  @DisplayName("Each round draws every index once")
+  void testRounds() {
+    ShuffleBag bag = new ShuffleBag(10);
+    Random rnd = new Random(5);
+
+    for (int round = 0; round < 5; round++) {
+      Set<Integer> drawn = new HashSet<>();
+      for (int i = 0; i < 10; i++) {
+        drawn.add(bag.next(rnd));
+      }
+      assertThat(drawn).hasSize(10);
+    }
+  }
+
+  @Test
+  @DisplayName("A new round never repeats the last index")
+  void testNoRepeatAcrossRounds() {
+    ShuffleBag bag = new ShuffleBag(2);
+    Random rnd = new Random(9);
+
+    int previous = bag.next(rnd);
+    for (int i = 0; i < 100; i++) {
+      int next = bag.next(rnd);
+      assertThat(next).isNotEqualTo(previous);
+      previous = next;
+    }
+  }
+
+  @Test
+  @DisplayName("Shrinking after a full round keeps the bag consistent")
+  void testShrinkAfterFullRound() {
+    Random rnd = new Random(1);
+    for (int n = 0; n < 1000; n++) {
+      ShuffleBag bag = new ShuffleBag(4);
+      for (int i = 0; i < 4; i++) {
+        bag.next(rnd);
+      }
+
+      bag.remap(2, index -> index < 2 ? index : -1);
+
+      assertThat(bag.getDrawn()).isLessThanOrEqualTo(2);
+      assertThat(List.of(bag.next(rnd), bag.next(rnd))).containsExactlyInAnyOrder(0, 1);
+    }
+  }
+
+  @Test
+  @DisplayName("Remapping keeps the indices drawn this round drawn at their new places")
+  void testRemap() {
+    ShuffleBag bag = new ShuffleBag(6);
+    Random rnd = new Random(4);
+    Set<Integer> drawn = new HashSet<>();
+    for (int i = 0; i < 3; i++) {
+      drawn.add(bag.next(rnd));
+    }
+
+    // A new first index moves every old one up
+    bag.remap(7, index -> index + 1);
+
+    assertThat(bag.getDrawn()).isEqualTo(3);
+    Set<Integer> rest = new HashSet<>();
+    for (int i = 0; i < 4; i++) {
+      rest.add(bag.next(rnd));
+    }
+    Set<Integer> expected = new HashSet<>(List.of(0, 1, 2, 3, 4, 5, 6));
+    for (int index : drawn) {
+      expected.remove(index + 1);
+    }
+    assertThat(rest).isEqualTo(expected);
+  }
+
+  @Test
+  @DisplayName("Empty bag draws nothing")
+  void testEmpty() {
+    assertThat(new ShuffleBag(0).next(new Random(1))).isEqualTo(-1);
+  }
+
+  @Property(tries = 300)
+  @Label(
+      "Shrinking or growing keeps the round: the rest of it draws exactly the undrawn indices left")
+  void remapKeepsRound(
+      @ForAll @IntRange(min = 1, max = 60) int size,
+      @ForAll @IntRange(min = 0, max = 60) int before,
+      @ForAll @IntRange(min = 0, max = 80) int newSize,
+      @ForAll long seed) {
+    ShuffleBag bag = new ShuffleBag(size);
+    Random rnd = new Random(seed);
+    Set<Integer> drawn = new HashSet<>();
+    for (int i = 0; i < Math.min(before, size - 1); i++) {
+      drawn.add(bag.next(rnd));
+    }
+
+    bag.remap(newSize, index -> index < newSize ? index : -1);
+
+    List<Integer> rest = new ArrayList<>();
+    for (int i = bag.getDrawn(); i < newSize; i++) {
+      rest.add(bag.next(rnd));
+    }
+    Set<Integer> expected = new HashSet<>();
+    for (int i = 0; i < newSize; i++) {
+      if (!drawn.contains(i)) {
+        expected.add(i);
+      }
+    }
+    assertThat(rest).doesNotHaveDuplicates();
+    assertThat(new HashSet<>(rest)).isEqualTo(expected);
+  }
+}
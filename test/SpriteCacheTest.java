@@ -0,0 +1,111 @@
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Rectangle;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("SpriteCache Tests")
+class SpriteCacheTest {
+
+  private static final Font FONT = new Font("sans-serif", Font.PLAIN, 20);
+  private static final Color COLOR = new Color(0, 0, 255, 30);
+
+  @Test
+  @DisplayName("Same text, font and colour reuse the rendered sprite")
+  void testCacheHit() {
+    SpriteCache cache = new SpriteCache(Long.MAX_VALUE);
+
+    SpriteCache.Sprite first = cache.get("hello", FONT, COLOR, null);
+    SpriteCache.Sprite second = cache.get("hello", FONT, COLOR, null);
+
+    assertThat(second).isSameAs(first);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Different colour or font renders a separate sprite")
+  void testDistinctKeys() {
+    SpriteCache cache = new SpriteCache(Long.MAX_VALUE);
+
+    SpriteCache.Sprite base = cache.get("hello", FONT, COLOR, null);
+    SpriteCache.Sprite recoloured = cache.get("hello", FONT, new Color(0, 0, 255, 31), null);
+    SpriteCache.Sprite resized = cache.get("hello", FONT.deriveFont(21f), COLOR, null);
+
+    assertThat(recoloured).isNotSameAs(base);
+    assertThat(resized).isNotSameAs(base);
+    assertThat(cache.size()).isEqualTo(3);
+  }
+
+  @Test
+  @DisplayName("Sprite contains translucent text pixels")
+  void testRenderedPixels() {
+    SpriteCache.Sprite sprite = SpriteCache.render("W", FONT, COLOR, null);
+
+    boolean painted = false;
+    for (int x = 0; x < sprite.getImage().getWidth(); x++) {
+      for (int y = 0; y < sprite.getImage().getHeight(); y++) {
+        int alpha = sprite.getImage().getRGB(x, y) >>> 24;
+        assertThat(alpha).isLessThanOrEqualTo(COLOR.getAlpha());
+        painted |= alpha > 0;
+      }
+    }
+    assertThat(painted).isTrue();
+    assertThat(sprite.getOriginY()).isPositive();
+  }
+
+  @Test
+  @DisplayName("Bounds place the text origin at the requested point")
+  void testBounds() {
+    SpriteCache.Sprite sprite = SpriteCache.render("hello", FONT, COLOR, null);
+
+    Rectangle bounds = sprite.getBounds(100, 50);
+
+    assertThat(bounds.x).isEqualTo(100 - sprite.getOriginX());
+    assertThat(bounds.y).isEqualTo(50 - sprite.getOriginY());
+    assertThat(bounds.width).isEqualTo(sprite.getImage().getWidth());
+    assertThat(bounds.height).isEqualTo(sprite.getImage().getHeight());
+  }
+
+  @Test
+  @DisplayName("HiDPI sprites have more pixels but the same bounds")
+  void testScaledRender() {
+    SpriteCache.Sprite plain = SpriteCache.render("hello", FONT, COLOR, null);
+    SpriteCache.Sprite scaled = SpriteCache.render("hello", FONT, COLOR, null, 2.0);
+
+    assertThat(scaled.getBounds(100, 50)).isEqualTo(plain.getBounds(100, 50));
+    assertThat(scaled.getImage().getWidth()).isEqualTo(plain.getImage().getWidth() * 2);
+    assertThat(scaled.getImage().getHeight()).isEqualTo(plain.getImage().getHeight() * 2);
+    assertThat(new SpriteCache(1 << 20, 2.0).get("hello", FONT, COLOR, null).getImage().getWidth())
+        .isEqualTo(scaled.getImage().getWidth());
+  }
+
+  @Test
+  @DisplayName("Least recently used sprites are evicted once over budget")
+  void testEviction() {
+    long oneSprite = SpriteCache.render("message", FONT, COLOR, null).getBytes();
+    SpriteCache cache = new SpriteCache(oneSprite * 5 / 2);
+
+    SpriteCache.Sprite a = cache.get("message", FONT, COLOR, null);
+    SpriteCache.Sprite b = cache.get("massage", FONT, COLOR, null);
+    cache.get("message", FONT, COLOR, null); // touch a so b is least recent
+    cache.get("messager", FONT, COLOR, null);
+
+    assertThat(cache.getBytes()).isLessThanOrEqualTo(oneSprite * 5 / 2);
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.get("message", FONT, COLOR, null)).isSameAs(a);
+    assertThat(cache.get("massage", FONT, COLOR, null)).isNotSameAs(b);
+  }
+
+  @Test
+  @DisplayName("Sprite larger than the budget is still returned")
+  void testOversizedSprite() {
+    SpriteCache cache = new SpriteCache(1);
+
+    SpriteCache.Sprite sprite = cache.get("too big", FONT, COLOR, null);
+
+    assertThat(sprite).isNotNull();
+    assertThat(cache.size()).isEqualTo(1);
+  }
+}
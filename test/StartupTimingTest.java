@@ -0,0 +1,15 @@
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("StartupTiming Tests")
+class StartupTimingTest {
+
+  @Test
+  @DisplayName("A mark shows the step, the time since JVM start and the heap in use")
+  void testFormat() {
+    assertThat(StartupTiming.format("config-read"))
+        .matches("startup config-read +\\d+ ms +\\d+[.,]\\d MiB heap");
+  }
+}
@@ -0,0 +1,83 @@
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.constraints.StringLength;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("TextMetrics Tests")
+class TextMetricsTest {
+
+  private static final Font FONT = new Font("sans-serif", Font.PLAIN, 35);
+
+  private static FontMetrics graphicsMetrics(Font font) {
+    Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+    try {
+      return g.getFontMetrics(font);
+    } finally {
+      g.dispose();
+    }
+  }
+
+  @Test
+  @DisplayName("Metrics are measured once per font and shared")
+  void testSharedPerFont() {
+    assertThat(TextMetrics.of(FONT)).isSameAs(TextMetrics.of(FONT));
+    assertThat(TextMetrics.of(FONT.deriveFont(36f))).isNotSameAs(TextMetrics.of(FONT));
+  }
+
+  @Test
+  @DisplayName("Line metrics match FontMetrics from default graphics")
+  void testLineMetrics() {
+    FontMetrics expected = graphicsMetrics(FONT);
+    TextMetrics metrics = TextMetrics.of(FONT);
+
+    assertThat(metrics.getAscent()).isEqualTo(expected.getAscent());
+    assertThat(metrics.getHeight()).isEqualTo(expected.getHeight());
+  }
+
+  @Property(tries = 200)
+  void advanceMatchesStringWidth(@ForAll @StringLength(max = 40) String text) {
+    FontMetrics expected = graphicsMetrics(FONT);
+    TextMetrics metrics = TextMetrics.of(FONT);
+
+    assertThat(metrics.advance(text)).isEqualTo(expected.stringWidth(text));
+    assertThat(metrics.advance(text)).isEqualTo(expected.stringWidth(text));
+  }
+
+  @Test
+  @DisplayName("Measuring without the cache gives the cached advance and keeps nothing")
+  void testMeasure() {
+    TextMetrics metrics = TextMetrics.of(FONT.deriveFont(Font.ITALIC, 21f));
+
+    assertThat(metrics.measure("measured once"))
+        .isEqualTo(graphicsMetrics(FONT.deriveFont(Font.ITALIC, 21f)).stringWidth("measured once"));
+    assertThat(metrics.getCachedAdvances()).isZero();
+    assertThat(metrics.advance("measured once")).isEqualTo(metrics.measure("measured once"));
+    assertThat(metrics.getCachedAdvances()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Only the most recently used fonts keep their metrics")
+  void testFontCacheBounded() {
+    TextMetrics first = TextMetrics.of(FONT.deriveFont(101f));
+    for (int i = 0; i < TextMetrics.FONT_CACHE_SIZE; i++) {
+      TextMetrics.of(FONT.deriveFont(200f + i));
+    }
+
+    assertThat(TextMetrics.of(FONT.deriveFont(101f))).isNotSameAs(first);
+  }
+
+  @Property(tries = 200)
+  void glyphAdvanceSumIgnoresOrder(@ForAll @StringLength(max = 40) String text) {
+    TextMetrics metrics = TextMetrics.of(FONT);
+    String reversed = new StringBuilder(text).reverse().toString();
+
+    assertThat(metrics.glyphAdvanceSum(reversed)).isEqualTo(metrics.glyphAdvanceSum(text));
+  }
+}
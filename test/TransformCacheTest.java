@@ -0,0 +1,64 @@
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("TransformCache Tests")
+class TransformCacheTest {
+
+  private static final int FORWARD = MessageSelector.FORWARD;
+  private static final int REVERSE = MessageSelector.REVERSE;
+  private static final int JOIN = MessageSelector.JOIN;
+
+  @Test
+  @DisplayName("A message is ordered once and then read from the cache")
+  void testHitsAndMisses() {
+    MessageSet set = MessageSet.of(Arrays.asList("ab cd", "ef gh"));
+    TransformCache cache = new TransformCache(8);
+
+    assertThat(cache.get(set, 1, REVERSE, REVERSE)).isEqualTo("hg fe");
+    assertThat(cache.get(set, 1, REVERSE, REVERSE)).isEqualTo("hg fe");
+    assertThat(cache.get(set, 0, JOIN, REVERSE)).isEqualTo("dc ba");
+    assertThat(cache.get(set, 0, JOIN, REVERSE)).isEqualTo("dc ba");
+
+    assertThat(cache.getHits()).isEqualTo(2);
+    assertThat(cache.getMisses()).isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("Another version of the messages or other orders empty the cache")
+  void testKeyedByVersionAndOrders() {
+    MessageSet set = MessageSet.of(Arrays.asList("ab cd"));
+    MessageSet edited = MessageSet.of(Arrays.asList("wx yz"));
+    TransformCache cache = new TransformCache(8);
+
+    cache.get(set, 0, REVERSE, FORWARD);
+    assertThat(cache.get(edited, 0, REVERSE, FORWARD)).isEqualTo("yz wx");
+    assertThat(cache.get(edited, 0, FORWARD, REVERSE)).isEqualTo("xw zy");
+    assertThat(cache.get(set, 0, FORWARD, REVERSE)).isEqualTo("ba dc");
+
+    assertThat(cache.getHits()).isZero();
+    assertThat(cache.getMisses()).isEqualTo(4);
+  }
+
+  @Test
+  @DisplayName("The cache holds at most its capacity, later messages replace earlier ones")
+  void testBounded() {
+    String[] messages = new String[32];
+    for (int i = 0; i < messages.length; i++) {
+      messages[i] = "m" + i + " x";
+    }
+    MessageSet set = MessageSet.of(Arrays.asList(messages));
+    TransformCache cache = new TransformCache(8);
+
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < messages.length; i++) {
+        assertThat(cache.get(set, i, REVERSE, FORWARD)).isEqualTo("x m" + i);
+      }
+    }
+    assertThat(cache.getHits()).isZero();
+    assertThat(cache.get(set, messages.length - 1, REVERSE, FORWARD)).isEqualTo("x m31");
+    assertThat(cache.getHits()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,88 @@
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Font;
+import java.util.Arrays;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("WidthTable Tests")
+class WidthTableTest {
+
+  private static final Font FONT = new Font("sans-serif", Font.PLAIN, 35);
+
+  @Test
+  @DisplayName("Widths with fixed orders are the widths of the ordered text")
+  void testExactWidths() {
+    MessageSet set = MessageSet.of(Arrays.asList("hello world", "3:weighted message", "", "ab cd"));
+    TextMetrics metrics = TextMetrics.of(FONT);
+
+    WidthTable table =
+        WidthTable.build(set, FONT, MessageSelector.REVERSE, MessageSelector.FORWARD);
+
+    for (int i = 0; i < set.size(); i++) {
+      String ordered =
+          MessageSelector.orderMessage(
+              set.get(i), MessageSelector.REVERSE, MessageSelector.FORWARD);
+      assertThat(table.width(set, i)).isEqualTo(metrics.advance(ordered));
+    }
+  }
+
+  @Test
+  @DisplayName("Measuring a table leaves the advance cache to the messages being flashed")
+  void testBypassesAdvanceCache() {
+    Font font = FONT.deriveFont(Font.BOLD, 17f);
+    String[] messages = new String[TextMetrics.ADVANCE_CACHE_SIZE + 10];
+    for (int i = 0; i < messages.length; i++) {
+      messages[i] = "message " + i;
+    }
+
+    WidthTable table =
+        WidthTable.build(
+            MessageSet.of(Arrays.asList(messages)),
+            font,
+            MessageSelector.FORWARD,
+            MessageSelector.FORWARD);
+
+    assertThat(table).isNotNull();
+    assertThat(TextMetrics.of(font).getCachedAdvances()).isZero();
+  }
+
+  @Test
+  @DisplayName("Widths with random orders are the same for every shuffle")
+  void testRandomOrderWidths() {
+    MessageSet set = MessageSet.of(Arrays.asList("hello world", "shuffled letters"));
+    TextMetrics metrics = TextMetrics.of(FONT);
+
+    WidthTable table = WidthTable.build(set, FONT, MessageSelector.RND, MessageSelector.RND_INNER);
+
+    for (int i = 0; i < set.size(); i++) {
+      String text = set.get(i);
+      assertThat(table.width(set, i)).isEqualTo(metrics.glyphAdvanceSum(text));
+      String shuffled =
+          MessageSelector.orderMessage(text, MessageSelector.RND, MessageSelector.RND_INNER);
+      assertThat(metrics.glyphAdvanceSum(shuffled)).isEqualTo(table.width(set, i));
+    }
+  }
+
+  @Test
+  @DisplayName("A table only applies to the version, font and orders it was measured for")
+  void testMatches() {
+    MessageSet set = MessageSet.of(Arrays.asList("A", "B"));
+    MessageSet edited = MessageSet.of(Arrays.asList("A", "B"));
+
+    WidthTable table =
+        WidthTable.build(set, FONT, MessageSelector.FORWARD, MessageSelector.FORWARD);
+
+    assertThat(table.matches(set, FONT, MessageSelector.FORWARD, MessageSelector.FORWARD)).isTrue();
+    assertThat(table.matches(edited, FONT, MessageSelector.FORWARD, MessageSelector.FORWARD))
+        .isFalse();
+    assertThat(
+            table.matches(
+                set, FONT.deriveFont(20f), MessageSelector.FORWARD, MessageSelector.FORWARD))
+        .isFalse();
+    assertThat(table.matches(set, FONT, MessageSelector.FORWARD, MessageSelector.RND)).isFalse();
+    assertThat(table.width(edited, 0)).isEqualTo(-1);
+    assertThat(table.width(set, 2)).isEqualTo(-1);
+    assertThat(table.width(set, -1)).isEqualTo(-1);
+  }
+}